@@ -0,0 +1,165 @@
+package de.hhu.bsinfo.dxramfs.connector;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.Block;
+import de.hhu.bsinfo.dxapp.dxramfscore.BlockPool;
+import de.hhu.bsinfo.dxapp.dxramfscore.Blockinfo;
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+import de.hhu.bsinfo.dxapp.dxramfscore.FsNode;
+import de.hhu.bsinfo.dxapp.dxramfscore.rpc.AskBlockMessage;
+import de.hhu.bsinfo.dxapp.dxramfscore.rpc.FlushMessage;
+import de.hhu.bsinfo.dxnet.DXNet;
+
+/**
+ * sends and gets blocks in fragments of DxramFileSystem.fragmentSize bytes. Up to fragmentWindow
+ * fragments of a block are on the way at the same time: a fragment is sent, if the peer has
+ * answered an older one. Thus a large block does not fill the buffers of the connection and
+ * other requests (e.g. metadata) get through between the fragments.
+ * A fragmentSize of 0 (or not smaller than the block) sends the block in a single message.
+ */
+public class BlockTransfer {
+
+    // shared by all streams: the threads only wait for responses of the peers
+    private static final ExecutorService FRAGMENTS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "dxramfs-fragment");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static int fragmentSize() {
+        int size = DxramFileSystem.fragmentSize;
+        return size <= 0 || size >= DxramFsConfig.file_blocksize ? 0 : size;
+    }
+
+    /**
+     * the messages to flush the bytes from, ..., to-1 of the block. They copy the values of
+     * fsNode and blockinfo, thus the caller can change them after this call.
+     */
+    public static List<FlushMessage> flushMessages(
+            short peer, FsNode fsNode, Blockinfo blockinfo, Block block, int from, int to
+    ) {
+        ArrayList<FlushMessage> back = new ArrayList<>();
+        int size = fragmentSize();
+        if (size == 0 || to - from <= size) {
+            back.add(new FlushMessage(peer, fsNode, blockinfo, block, from, to));
+            return back;
+        }
+        int count = (to - from + size - 1) / size;
+        for (int start = from; start < to; start += size) {
+            FlushMessage msg = new FlushMessage(peer, fsNode, blockinfo, block, start, Math.min(start + size, to));
+            msg.setFragments(count);
+            back.add(msg);
+        }
+        return back;
+    }
+
+    /**
+     * sends the messages of flushMessages() and waits for all FlushOkMessages.
+     *
+     * @return true, if the peer has stored the block
+     */
+    public static boolean flush(DXNet dxnet, List<FlushMessage> messages) throws InterruptedIOException {
+        if (messages.size() == 1) {
+            return messages.get(0).send(dxnet);
+        }
+        ArrayDeque<Future<Boolean>> window = new ArrayDeque<>();
+        boolean ok = true;
+        for (FlushMessage msg : messages) {
+            if (window.size() >= DxramFileSystem.fragmentWindow) {
+                ok &= result(window.poll());
+            }
+            window.add(FRAGMENTS.submit(() -> msg.send(dxnet)));
+        }
+        while (!window.isEmpty()) {
+            ok &= result(window.poll());
+        }
+        return ok;
+    }
+
+    /**
+     * asks the owner for the block in fragments and puts them together.
+     *
+     * @param stamp of the FsNode of the file
+     * @param index of the block in the file
+     * @return the Block or null, e.g. if storageId holds no longer this block (see AskBlockMessage)
+     */
+    public static Block ask(DXNet dxnet, short peer, long storageId, long stamp, int index) throws InterruptedIOException {
+        int size = fragmentSize();
+        if (size == 0) {
+            return new AskBlockMessage(peer, storageId, stamp, index).send(dxnet);
+        }
+
+        // the fragment at offset 0 lets the peer get the block. The others are answered from its cache
+        Block first = new AskBlockMessage(peer, storageId, stamp, index, 0, size).send(dxnet);
+        if (first == null) return null;
+        if (first._data.length < size) return first;
+
+        byte[] data = BlockPool.take(DxramFsConfig.file_blocksize);
+        System.arraycopy(first._data, 0, data, 0, size);
+        int end = data.length;
+
+        ArrayDeque<Future<Block>> window = new ArrayDeque<>();
+        ArrayDeque<Integer> offsets = new ArrayDeque<>();
+        int offset = size;
+        boolean ok = true;
+        while (offset < data.length || !window.isEmpty()) {
+            if (offset < data.length && window.size() < DxramFileSystem.fragmentWindow) {
+                final int o = offset;
+                final int len = Math.min(size, data.length - o);
+                window.add(FRAGMENTS.submit(() -> new AskBlockMessage(peer, storageId, stamp, index, o, len).send(dxnet)));
+                offsets.add(o);
+                offset += len;
+                continue;
+            }
+            Block fragment = block(window.poll());
+            int o = offsets.poll();
+            if (fragment == null) {
+                ok = false;
+                continue;
+            }
+            System.arraycopy(fragment._data, 0, data, o, fragment._data.length);
+            if (fragment._data.length < Math.min(size, data.length - o)) {
+                // the stored block is shorter
+                end = Math.min(end, o + fragment._data.length);
+            }
+        }
+        if (!ok) {
+            BlockPool.release(data);
+            return null;
+        }
+
+        Block back = new Block();
+        back.ID = storageId;
+        back._data = end == data.length ? data : Arrays.copyOf(data, end);
+        return back;
+    }
+
+    private static boolean result(Future<Boolean> f) throws InterruptedIOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("waiting for a fragment");
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    private static Block block(Future<Block> f) throws InterruptedIOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("waiting for a fragment");
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+}
@@ -19,10 +19,28 @@ public class ConfigKeys extends CommonConfigurationKeys {
     // you can (some of this are) overwrite THESE IMPORTANT DEFAULTS with etc/hadoop/core-site.xml
     public static final String BLOCK_SIZE_KEY = "dxram.file_blocksize";
     public static final long BLOCK_SIZE_DEFAULT = 4194304; // 4*1024*1024;
+    public static final String HADOOP_BLOCK_SIZE_KEY = "dxram.hadoop_blocksize";
+    public static final long HADOOP_BLOCK_SIZE_DEFAULT = 0; // block size for splits and BlockLocations. 0 = file_blocksize
     public static final String  REPLICATION_KEY = "dxram.replication";
     public static final short REPLICATION_DEFAULT = 1;
     public static final String STREAM_BUFFER_SIZE_KEY = "dxram.stream-buffer-size";
     public static final int STREAM_BUFFER_SIZE_DEFAULT = 4096;
+    public static final String READ_AHEAD_BLOCKS_KEY = "dxram.read_ahead_blocks";
+    public static final int READ_AHEAD_BLOCKS_DEFAULT = 2; // blocks, a DxramInputStream loads in the background
+    public static final String PARALLEL_READ_BLOCKS_KEY = "dxram.parallel_read_blocks";
+    public static final int PARALLEL_READ_BLOCKS_DEFAULT = 0; // blocks, a striped DxramInputStream loads at once. 0 = off
+    public static final String FLUSH_WINDOW_BLOCKS_KEY = "dxram.flush_window_blocks";
+    public static final int FLUSH_WINDOW_BLOCKS_DEFAULT = 4; // full blocks, a DxramOutputStream sends without waiting
+    public static final String FRAGMENT_SIZE_KEY = "dxram.fragment_size";
+    public static final int FRAGMENT_SIZE_DEFAULT = 1048576; // bytes of a block in a single message. 0 = whole blocks
+    public static final String FRAGMENT_WINDOW_KEY = "dxram.fragment_window";
+    public static final int FRAGMENT_WINDOW_DEFAULT = 4; // fragments of a block on the way at the same time
+    public static final String LIST_PAGE_SIZE_KEY = "dxram.list_page_size";
+    public static final int LIST_PAGE_SIZE_DEFAULT = 256; // folder entries with status in a single listStatus response
+    public static final String METADATA_CACHE_SIZE_KEY = "dxram.metadata_cache_size";
+    public static final int METADATA_CACHE_SIZE_DEFAULT = 1024; // cached FileStatus entries. 0 = off
+    public static final String METADATA_CACHE_TTL_KEY = "dxram.metadata_cache_ttl_ms";
+    public static final long METADATA_CACHE_TTL_DEFAULT = 5000; // ms a FileStatus is cached (lease time on the peer)
     public static final String BYTES_PER_CHECKSUM_KEY = "dxram.bytes-per-checksum";
     public static final int BYTES_PER_CHECKSUM_DEFAULT = 512;
     public static final String CLIENT_WRITE_PACKET_SIZE_KEY = "dxram.client-write-packet-size";
@@ -33,8 +51,17 @@ public class ConfigKeys extends CommonConfigurationKeys {
     public static final String KEY_PROVIDER_URI_DEFAULT = "";
 
     public static FsServerDefaults getServerDefaults() throws IOException {
+        return getServerDefaults(BLOCK_SIZE_DEFAULT);
+    }
+
+    /**
+     * @param blockSize the block size, hadoop sees
+     * @return
+     * @throws IOException
+     */
+    public static FsServerDefaults getServerDefaults(long blockSize) throws IOException {
         return new FsServerDefaults(
-            BLOCK_SIZE_DEFAULT,
+            blockSize,
             BYTES_PER_CHECKSUM_DEFAULT,
             CLIENT_WRITE_PACKET_SIZE_DEFAULT,
             REPLICATION_DEFAULT,
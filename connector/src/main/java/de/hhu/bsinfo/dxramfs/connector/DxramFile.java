@@ -12,11 +12,16 @@ import java.io.*;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import de.hhu.bsinfo.dxapp.dxramfscore.Blockinfo;
 import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+import de.hhu.bsinfo.dxapp.dxramfscore.FsNode;
+import de.hhu.bsinfo.dxapp.dxramfscore.FsNodeType;
 import de.hhu.bsinfo.dxapp.dxramfscore.rpc.*;
 
 public class DxramFile {
@@ -27,7 +32,7 @@ public class DxramFile {
     
     private Path        _absPath;
     private URI         _uri;
-    private long        _blocksize; // never changed: it is the number of bytes for 1block in the dxramfs filesystem
+    private long        _blocksize; // never changed: the block size, hadoop sees (a multiple of the dxram file_blocksize)
     private DXNet       _dxnet;
 
     /// @todo File OP
@@ -36,7 +41,7 @@ public class DxramFile {
     public DxramFile(DXNet dxnet, Path absPath, URI uri) {
         _dxnet      = dxnet;
         _uri        = uri;
-        _blocksize  = DxramFsConfig.file_blocksize;
+        _blocksize  = DxramFileSystem.hadoopBlockSize;
         _absPath    = absPath;
         
         /// @todo File OP
@@ -49,10 +54,28 @@ public class DxramFile {
 
 
 
+    /**
+     * the dxram peer on this host or (if there is none) a peer chosen by our node id.
+     * Block data requests should use getBlockPeerId().
+     */
     public short getNearPeerId() {
-        // @todo try to match my hadoop host or ip to the same host or ip in the node-peer mapping list!
-        // @todo it should be a dxnet peer with a dxram peer mapping, because the other ones are hadoop requesting dxnet-peers
-        return DxramFileSystem.nopeConfig.peerMappings.get(0).nodeId;
+        return DxramFileSystem.peerRouter.getNearPeerId();
+    }
+
+    /**
+     * @param blockinfo from the block table of a FsNode
+     * @return the dxnet peer, which owns the BlockChunk of blockinfo or the near peer
+     */
+    public short getBlockPeerId(Blockinfo blockinfo) {
+        return getBlockPeerId(blockinfo.owner);
+    }
+
+    /**
+     * @param dxnetNodeId of the owner from a BlockLocationsResponse (-1, if it has no dxnet mapping)
+     * @return the dxnet peer, which owns the BlockChunk or the near peer
+     */
+    public short getBlockPeerId(short dxnetNodeId) {
+        return dxnetNodeId < 0 ? getNearPeerId() : dxnetNodeId;
     }
 
 
@@ -143,7 +166,16 @@ public class DxramFile {
     }
 
     public boolean delete() throws IOException {
-        DeleteMessage msg = new DeleteMessage(getNearPeerId(), hpath2path(_absPath));
+        return delete(false);
+    }
+
+    /**
+     * @param recursive the peer deletes a folder with all its entries
+     * @return false, if the path does not exist, is a folder with entries (not recursive) or the peer fails
+     * @throws IOException
+     */
+    public boolean delete(boolean recursive) throws IOException {
+        DeleteMessage msg = new DeleteMessage(getNearPeerId(), hpath2path(_absPath), recursive);
         boolean res = msg.send(_dxnet);
         LOG.debug("delete msg Response: " + String.valueOf(res));
         if (res) _dummy.delete();
@@ -162,15 +194,68 @@ public class DxramFile {
         return res;
     }
 
-    public FileStatus getFileStatus() {
+    /**
+     * the status with a single FsNodeMessage.
+     *
+     * @param leaseMs the peer sends an InvalidateMessage, if the path changes within this time. 0 = no lease
+     * @return
+     * @throws FileNotFoundException
+     */
+    public FileStatus getFileStatus(int leaseMs) throws FileNotFoundException {
+        FsNodeMessage msg = new FsNodeMessage(getNearPeerId(), hpath2path(_absPath), leaseMs);
+        FsNode fsNode = msg.send(_dxnet);
+        if (fsNode == null) {
+            throw new FileNotFoundException("getFileStatus: " + _absPath + " not exists");
+        }
+        boolean isDir = fsNode.type == FsNodeType.FOLDER;
         return new FileStatus(
-                this.length(),
-                this.isDirectory(),
+                isDir ? 0 : fsNode.size,
+                isDir,
                 0, _blocksize, 0L, 0L, (FsPermission)null, (String)null, (String)null,
                 getPath()
         );
     }
 
+    /**
+     * the status of all entries in this folder (or of this file) with ListStatusMessages.
+     * Each response has up to pageSize entries. The next page starts behind the last name of a page.
+     *
+     * @param pageSize
+     * @return
+     * @throws FileNotFoundException
+     */
+    public FileStatus[] listStatus(int pageSize) throws FileNotFoundException, IOException {
+        ArrayList<FileStatus> statusArrayList = new ArrayList<>();
+        String reqPath = hpath2path(_absPath);
+        String after = "";
+        boolean lastPage = false;
+
+        while (!lastPage) {
+            ListStatusMessage msg = new ListStatusMessage(getNearPeerId(), reqPath, after, pageSize);
+            ListStatusResponse res = msg.send(_dxnet);
+            if (res == null) {
+                if (after.isEmpty()) throw new FileNotFoundException("listStatus: " + _absPath + " not exists");
+                throw new IOException("listStatus: " + _absPath + " changed while listing");
+            }
+            String[] names = res.getNames();
+            int[] types = res.getTypes();
+            long[] sizes = res.getSizes();
+            for (int i = 0; i < names.length; i++) {
+                Path p = res.isFile() ? _absPath : new Path(_absPath, names[i]);
+                statusArrayList.add(new FileStatus(
+                        sizes[i],
+                        types[i] == FsNodeType.FOLDER,
+                        0, _blocksize, 0L, 0L, (FsPermission)null, (String)null, (String)null,
+                        p
+                ));
+            }
+            lastPage = res.isLastPage() || names.length == 0;
+            if (!lastPage) after = names[names.length - 1];
+        }
+
+        return statusArrayList.toArray(new FileStatus[statusArrayList.size()]);
+    }
+
     public DxramFile[] listFiles() throws FileNotFoundException, IOException {
         ArrayList<DxramFile> fArrayList = new ArrayList<>();
 
@@ -216,7 +301,7 @@ public class DxramFile {
 
 
     public FSDataOutputStream append(int bufferSize) throws IOException {
-        DxramOutputStream dxouts = new DxramOutputStream(this, _dxnet);
+        DxramOutputStream dxouts = new DxramOutputStream(this, _dxnet, DxramFileSystem.flushWindowBlocks);
         FSDataOutputStream outs = new FSDataOutputStream(dxouts, (Statistics) null) {
             @Override
             public void close() throws IOException {
@@ -284,15 +369,11 @@ public class DxramFile {
     //-------------------------------------------------------------------------------------- open (get,read - maybe write?)
     public FSDataInputStream open(int bufferSize) throws IOException {
         if (this.isDirectory()) throw new IOException("is directory");
-        byte[] data = new byte[(int) this.length()];
-        
-        /// @todo File OP
-        //send("open: java io FileInputStream() " + _dummy.getName());
-        FileInputStream fis = new FileInputStream(_dummy);
-        fis.read(data);
-        fis.close();
-        
-        DxramInputStream dxins = new DxramInputStream(data);
+
+        // blocks are loaded on demand while reading
+        DxramInputStream dxins = new DxramInputStream(
+            this, _dxnet, DxramFileSystem.readAheadBlocks, DxramFileSystem.parallelReadBlocks
+        );
         FSDataInputStream dais = new FSDataInputStream(dxins);
         return dais;
     }
@@ -313,13 +394,50 @@ public class DxramFile {
             "start block or length of block should not be negative"
         );
         
-        /**
-         * @todo: after implement a real distributed fs, we have to implement this !!!!
-         * -> but: where did the dxramfs ekosystem handle this?!
-         */
-        //send("getFileBlockLocations() " + _dummy.getName());
+        // a single request for all dxram blocks of the hadoop blocks in the range
+        long first = (start / _blocksize) * _blocksize;
+        long end = len > Long.MAX_VALUE - start ? Long.MAX_VALUE : start + len;
+        BlockLocationsMessage msg = new BlockLocationsMessage(
+            getNearPeerId(), hpath2path(_absPath), first, end - first
+        );
+        BlockLocationsResponse res = msg.send(_dxnet);
+        if (res == null) {
+            throw new FileNotFoundException("getFileBlockLocations: " + _absPath + " is not an existing file");
+        }
 
-        return new BlockLocation[0];
+        long[] offsets = res.getOffsets();
+        long[] lengths = res.getLengths();
+        String[] hosts = res.getHosts();
+        String[] addrs = res.getAddrs();
+        int[] ports = res.getPorts();
+
+        // a hadoop block is made of dxram blocks: its hosts are the owners of them (most bytes first)
+        ArrayList<BlockLocation> back = new ArrayList<>();
+        int i = 0;
+        while (i < offsets.length) {
+            long hadoopBlock = offsets[i] / _blocksize;
+            long length = 0;
+            LinkedHashMap<String, Long> bytesOnHost = new LinkedHashMap<>();
+            HashMap<String, String> nameOfHost = new HashMap<>();
+            for (; i < offsets.length && offsets[i] / _blocksize == hadoopBlock; i++) {
+                length = offsets[i] + lengths[i] - hadoopBlock * _blocksize;
+                bytesOnHost.merge(hosts[i], lengths[i], Long::sum);
+                nameOfHost.putIfAbsent(hosts[i], addrs[i] + ":" + ports[i]);
+            }
+            ArrayList<String> sorted = new ArrayList<>(bytesOnHost.keySet());
+            sorted.sort((a, b) -> Long.compare(bytesOnHost.get(b), bytesOnHost.get(a)));
+            String[] names = new String[sorted.size()];
+            for (int n = 0; n < names.length; n++) {
+                names[n] = nameOfHost.get(sorted.get(n));
+            }
+            back.add(new BlockLocation(
+                names,
+                sorted.toArray(new String[0]),
+                hadoopBlock * _blocksize,
+                length
+            ));
+        }
+        return back.toArray(new BlockLocation[0]);
     }
 
     // @todo were is the "get or write to block" access implemented? ?????????????????????????
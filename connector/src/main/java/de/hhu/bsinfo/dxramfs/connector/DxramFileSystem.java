@@ -2,6 +2,7 @@ package de.hhu.bsinfo.dxramfs.connector;
 
 import de.hhu.bsinfo.dxnet.DXNet;
 import de.hhu.bsinfo.dxapp.dxramfscore.*;
+import de.hhu.bsinfo.dxapp.dxramfscore.rpc.InvalidateMessage;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.*;
 import org.apache.hadoop.fs.permission.FsPermission;
@@ -27,6 +28,16 @@ public class DxramFileSystem extends FileSystem {
     private Path _workingDir;
     private DXNet _dxn;
     public static NodePeerConfig nopeConfig;
+    public static PeerRouter peerRouter;
+    // a hadoop block (splits, BlockLocation) is made of hadoopBlockSize/file_blocksize dxram blocks
+    public static long hadoopBlockSize = ConfigKeys.BLOCK_SIZE_DEFAULT;
+    public static int readAheadBlocks = ConfigKeys.READ_AHEAD_BLOCKS_DEFAULT;
+    public static int parallelReadBlocks = ConfigKeys.PARALLEL_READ_BLOCKS_DEFAULT;
+    public static int flushWindowBlocks = ConfigKeys.FLUSH_WINDOW_BLOCKS_DEFAULT;
+    public static int fragmentSize = ConfigKeys.FRAGMENT_SIZE_DEFAULT;
+    public static int fragmentWindow = ConfigKeys.FRAGMENT_WINDOW_DEFAULT;
+    public static int listPageSize = ConfigKeys.LIST_PAGE_SIZE_DEFAULT;
+    public static MetadataCache metadataCache = new MetadataCache(0, 0);
 
     @Override
     public URI getUri() {
@@ -60,7 +71,14 @@ public class DxramFileSystem extends FileSystem {
     private DXNet connect() {
 
         nopeConfig = NodePeerConfig.factory(Short.valueOf(getConf().get("dxnet.me")), DxramFsConfig.dxnet_to_dxram_peers.split(","));
+        peerRouter = new PeerRouter(nopeConfig);
         DxnetInit dxini = new DxnetInit(nopeConfig, nopeConfig.nodeId);
+        // peers tell us, if a path with a lease has changed
+        dxini.getDxNet().register(InvalidateMessage.MTYPE, InvalidateMessage.TAG, p_message -> {
+            InvalidateMessage msg = (InvalidateMessage) p_message;
+            LOG.debug("invalidate {} (subtree {})", msg.getData(), msg.isSubtree());
+            metadataCache.invalidate(msg.getData(), msg.isSubtree());
+        });
         return dxini.getDxNet();
     }
 
@@ -83,6 +101,24 @@ public class DxramFileSystem extends FileSystem {
         DxramFsConfig.max_hostlength_chars = Integer.valueOf(conf.get("dxram.max_hostlength_chars"));
         DxramFsConfig.max_addrlength_chars = Integer.valueOf(conf.get("dxram.max_addrlength_chars"));
         DxramFsConfig.dxnet_to_dxram_peers = conf.get("dxnet.to_dxram_peers");
+        hadoopBlockSize = conf.getLong(ConfigKeys.HADOOP_BLOCK_SIZE_KEY, ConfigKeys.HADOOP_BLOCK_SIZE_DEFAULT);
+        if (hadoopBlockSize < DxramFsConfig.file_blocksize) {
+            hadoopBlockSize = DxramFsConfig.file_blocksize;
+        } else {
+            // only whole dxram blocks
+            hadoopBlockSize -= hadoopBlockSize % DxramFsConfig.file_blocksize;
+        }
+        readAheadBlocks = conf.getInt(ConfigKeys.READ_AHEAD_BLOCKS_KEY, ConfigKeys.READ_AHEAD_BLOCKS_DEFAULT);
+        parallelReadBlocks = conf.getInt(ConfigKeys.PARALLEL_READ_BLOCKS_KEY, ConfigKeys.PARALLEL_READ_BLOCKS_DEFAULT);
+        flushWindowBlocks = conf.getInt(ConfigKeys.FLUSH_WINDOW_BLOCKS_KEY, ConfigKeys.FLUSH_WINDOW_BLOCKS_DEFAULT);
+        fragmentSize = conf.getInt(ConfigKeys.FRAGMENT_SIZE_KEY, ConfigKeys.FRAGMENT_SIZE_DEFAULT);
+        fragmentWindow = Math.max(1, conf.getInt(ConfigKeys.FRAGMENT_WINDOW_KEY, ConfigKeys.FRAGMENT_WINDOW_DEFAULT));
+        listPageSize = conf.getInt(ConfigKeys.LIST_PAGE_SIZE_KEY, ConfigKeys.LIST_PAGE_SIZE_DEFAULT);
+        metadataCache.close();
+        metadataCache = new MetadataCache(
+            conf.getInt(ConfigKeys.METADATA_CACHE_SIZE_KEY, ConfigKeys.METADATA_CACHE_SIZE_DEFAULT),
+            conf.getLong(ConfigKeys.METADATA_CACHE_TTL_KEY, ConfigKeys.METADATA_CACHE_TTL_DEFAULT)
+        );
 
         LOG.info(Thread.currentThread().getStackTrace()[1].getMethodName()+"({}, {})", theUri, conf);
         String authority = theUri.getAuthority();
@@ -104,6 +140,7 @@ public class DxramFileSystem extends FileSystem {
             f, bufferSize, progress);
         Path absF = fixRelativePart(f);
         DxramFile dxfile = new DxramFile(_dxn, absF, _myUri);
+        metadataCache.invalidate(dxfile.getPathWithoutScheme(), false);
         return dxfile.append(bufferSize);
     }
 
@@ -129,17 +166,24 @@ public class DxramFileSystem extends FileSystem {
 
         DxramFile file = new DxramFile(_dxn, absF1, _myUri);
         DxramFile file2 = new DxramFile(_dxn, absF2, _myUri);
-        
-        if (file2.exists()) {
-            throw new java.io.IOException("destination file exists");
-        }
-        if (!file.exists()) {
-            throw new java.io.IOException("source file exists");
-        }
 
+        // the peer checks source and destination and moves the entry in a single request.
+        // Like hdfs, we get false, if the source is missing or the destination exists
+        metadataCache.invalidate(file.getPathWithoutScheme(), true);
+        metadataCache.invalidate(file2.getPathWithoutScheme(), true);
         return file.renameTo(file2);
     }
 
+    @Override
+    public long getDefaultBlockSize() {
+        return hadoopBlockSize;
+    }
+
+    @Override
+    public long getDefaultBlockSize(Path f) {
+        return hadoopBlockSize;
+    }
+
     @Override
     public FSDataOutputStream create(
         Path f, FsPermission permission, boolean overwrite,
@@ -155,6 +199,7 @@ public class DxramFileSystem extends FileSystem {
 
         Path absF = fixRelativePart(f);
         DxramFile dxfile = new DxramFile(_dxn, absF, _myUri);
+        metadataCache.invalidate(dxfile.getPathWithoutScheme(), false);
         
         return dxfile.create(overwrite, bufferSize, replication, true);
     }
@@ -174,6 +219,7 @@ public class DxramFileSystem extends FileSystem {
 
         Path absF = fixRelativePart(f);
         DxramFile dxfile = new DxramFile(_dxn, absF, _myUri);
+        metadataCache.invalidate(dxfile.getPathWithoutScheme(), false);
         
         return dxfile.create(overwrite, bufferSize, replication, false);
     }
@@ -192,13 +238,16 @@ public class DxramFileSystem extends FileSystem {
 
     @Override
     public boolean delete(Path f, boolean recursive) throws FileNotFoundException, IOException {
-        boolean isDel;
         LOG.info(Thread.currentThread().getStackTrace()[1].getMethodName()+"({}, {})", f, recursive);
         Path absF = fixRelativePart(f);
         // hint: stop delegating here. we want to use dxramfs all the time!!
         //long blocksize = getServerDefaults(absF).getBlockSize();
         DxramFile dxfile = new DxramFile(_dxn, absF, _myUri);
+        metadataCache.invalidate(dxfile.getPathWithoutScheme(), true);
         
+        // the peer deletes the complete subtree: one message for a folder with many files
+        if (dxfile.delete(recursive)) return true;
+
         if (!dxfile.exists()) {
             if (recursive) {
                 /**
@@ -209,36 +258,8 @@ public class DxramFileSystem extends FileSystem {
             }
             throw new FileNotFoundException("delete: " + f.toString() + " not exists"); 
         }
-        
-        if (dxfile.isDirectory()) {
-            if (recursive) {
-                isDel = delete(dxfile);
-                if (isDel == true) return true;
-            }
-            return false;
-        } else {
-            isDel = delete(dxfile);
-            if (isDel == true) {
-                return true;
-            } else {
-                new IOException();
-                return false;
-            }
-            
-        }
-    }
-
-    private boolean delete(DxramFile file) throws IOException {
-        LOG.info(Thread.currentThread().getStackTrace()[1].getMethodName()+"({})", file);
-        boolean isDel = false;
-        boolean isFolder = file.isDirectory();
-        if (isFolder) {
-            for (DxramFile childFile : file.listFiles()) {
-                isDel = delete(childFile);
-                if (isDel == false) return false;
-            }
-        }
-        return file.delete();
+        // a folder with entries (not recursive) or the peer failed
+        return false;
     }
 
     @Override
@@ -257,24 +278,9 @@ public class DxramFileSystem extends FileSystem {
         }
         */
         
-        ArrayList<FileStatus> statusArrayList = new ArrayList<>();
-        FileStatus fileStatus = getFileStatus(fixRelativePart(p));
-
-        if (fileStatus.isFile()) {
-            statusArrayList.add(fileStatus);
-
-        } else if (fileStatus.isDirectory()) {
-            DxramFile file = new DxramFile(
-                    _dxn,
-                    fileStatus.getPath(),
-                    _myUri
-            );
-            for (DxramFile childFile : file.listFiles()) {
-                statusArrayList.add(childFile.getFileStatus());
-            }
-        }
-
-        return statusArrayList.toArray(new FileStatus[statusArrayList.size()]);
+        // the peer sends the status of all entries (or of the file itself) in pages
+        DxramFile file = new DxramFile(_dxn, fixRelativePart(p), _myUri);
+        return file.listStatus(listPageSize);
     }
 
     @Override
@@ -285,12 +291,17 @@ public class DxramFileSystem extends FileSystem {
         // hint: stop delegating here. we want to use dxramfs all the time!!
         //long blocksize = getServerDefaults(absF).getBlockSize();
         DxramFile dxfile = new DxramFile(_dxn, absF, _myUri);
-        
-        if (!dxfile.exists()) {
-            throw new FileNotFoundException("_getFileStatus: " + p.toString() + " not exists");
+        String path = dxfile.getPathWithoutScheme();
+        FileStatus status = metadataCache.get(path);
+        if (status != null) {
+            return status;
         }
-        
-        return dxfile.getFileStatus();
+
+        // a single FsNode request: with a lease the peer tells us, if the path changes
+        long generation = metadataCache.generation();
+        status = dxfile.getFileStatus(metadataCache.getLeaseMs());
+        metadataCache.put(path, status, generation);
+        return status;
     }
 
     // @todo unsure, if we really need this method wrapper
@@ -47,7 +47,7 @@ public class DxramFs extends DelegateToFileSystem {
 
     @Override
     public FsServerDefaults getServerDefaults(final Path f) throws IOException {
-        return ConfigKeys.getServerDefaults();
+        return ConfigKeys.getServerDefaults(DxramFileSystem.hadoopBlockSize);
     }
 
 /*
@@ -144,7 +144,9 @@ public class DxramFs extends DelegateToFileSystem {
         UnresolvedLinkException, 
         IOException 
     {
-        dxramFileSystem.rename(src, dst);
+        if (!dxramFileSystem.rename(src, dst)) {
+            throw new IOException("rename " + src + " to " + dst + " failed");
+        }
     }
 
     @Override
@@ -1,53 +1,403 @@
 package de.hhu.bsinfo.dxramfs.connector;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import org.apache.hadoop.fs.PositionedReadable;
-import org.apache.hadoop.fs.Seekable;
+import org.apache.hadoop.fs.FSInputStream;
 
-public class DxramInputStream extends ByteArrayInputStream implements Seekable, PositionedReadable {
+import de.hhu.bsinfo.dxapp.dxramfscore.Block;
+import de.hhu.bsinfo.dxapp.dxramfscore.BlockPool;
+import de.hhu.bsinfo.dxapp.dxramfscore.Blockinfo;
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+import de.hhu.bsinfo.dxapp.dxramfscore.FsNode;
+import de.hhu.bsinfo.dxapp.dxramfscore.rpc.*;
+import de.hhu.bsinfo.dxnet.DXNet;
 
-    public DxramInputStream(byte[] buf) {
-        super(buf);
+/**
+ * class to read a file block by block. It loads the blocks on demand from their owners (the FsNode holds the block table)
+ * and asks for the next readAhead blocks in the background. Thus only readAhead+1 blocks are in the heap.
+ *
+ * With parallel > 0 the stream reads striped: it asks the near peer for the locations of many blocks
+ * in a single BlockLocationsMessage and gets the next parallel blocks at once from their owning peers.
+ * The blocks of a file on n peers are loaded by n peers at the same time and are read in order.
+ */
+public class DxramInputStream extends FSInputStream {
+
+    // shared by all streams: the threads only wait for responses of the peers
+    private static final ExecutorService READ_AHEAD = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "dxramfs-read-ahead");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private DXNet _dxnet;
+    private DxramFile _dxramFile;
+    private int _readAhead;
+    private boolean _striped;
+    private int _blocksize;
+    private long _length;
+    // the stamp of the FsNode: the owner of a BlockChunk checks it (see AskBlockMessage)
+    private long _stamp;
+
+    // guards the chunkids below. read() holds the stream lock while it waits for the loading threads
+    private final Object _refsLock = new Object();
+
+    // the block table of the file. EXT FsNodes are loaded, if we need them
+    private ArrayList<Blockinfo> _blockinfos;
+    private FsNode _lastFsNode;
+
+    // striped: BlockChunk chunkid and dxnet owner of each block. We ask for them in pages
+    private static final int LOCATE_PAGE_BLOCKS = 64;
+    private long[] _storageIds;
+    private short[] _owners;
+    private boolean[] _located;
+    private int _locatePage;
+
+    // block index -> loading or loaded block
+    private TreeMap<Integer, Future<Block>> _window;
+    private Block _block;
+    private int _blockIndex;
+    private long _pos;
+    private boolean _closed;
+
+    public DxramInputStream(DxramFile dxramFile, DXNet dxnet, int readAhead) throws IOException {
+        this(dxramFile, dxnet, readAhead, 0);
     }
-    
-    @Override
-    public long getPos() throws IOException{
-        return pos;
+
+    /**
+     * @param dxramFile
+     * @param dxnet
+     * @param readAhead blocks, we load in the background
+     * @param parallel blocks, we load at once from their owners (striped read). 0 = off
+     * @throws IOException
+     */
+    public DxramInputStream(DxramFile dxramFile, DXNet dxnet, int readAhead, int parallel) throws IOException {
+        _dxramFile = dxramFile;
+        _dxnet = dxnet;
+        _readAhead = Math.max(0, readAhead);
+        _striped = parallel > 0;
+        if (_striped) {
+            // the current block and parallel-1 blocks in the background
+            _readAhead = Math.max(_readAhead, parallel - 1);
+            _locatePage = Math.max(LOCATE_PAGE_BLOCKS, 4 * parallel);
+        }
+        _blocksize = DxramFsConfig.file_blocksize;
+
+        FsNodeMessage fsnMsg = new FsNodeMessage(_dxramFile.getNearPeerId(), _dxramFile.getPathWithoutScheme());
+        FsNode fsNode = fsnMsg.send(_dxnet);
+        if (fsNode == null) {
+            throw new FileNotFoundException("get FsNode: " + _dxramFile.getPathWithoutScheme());
+        }
+        _length = fsNode.size;
+        _stamp = fsNode.stamp;
+        _blockinfos = new ArrayList<>();
+        addRefs(fsNode);
+        _window = new TreeMap<>();
+        _blockIndex = -1;
+        if (fsNode.refSize == 0 && _length > 0) {
+            // a small file: the FsNode holds its data and it has no blocks to load
+            _block = new Block();
+            _block.ID = DxramFsConfig.INVALID_ID;
+            _block._data = fsNode.inline;
+            _blockIndex = 0;
+            _striped = false;
+        }
+        if (_striped) {
+            _storageIds = new long[blockCount()];
+            _owners = new short[_storageIds.length];
+            _located = new boolean[_storageIds.length];
+            Arrays.fill(_storageIds, DxramFsConfig.INVALID_ID);
+        }
+
+        _pos = 0;
+        _closed = false;
     }
 
-    @Override
-    public void seek(long pos) throws IOException {
-        if (mark != 0) throw new IllegalStateException();
+    private void addRefs(FsNode fsNode) {
+        for (int i = 0; i < fsNode.refSize; i++) {
+            Blockinfo bi = fsNode.blockinfo(i);
+            bi.offset = _blockinfos.size();
+            _blockinfos.add(bi);
+        }
+        _lastFsNode = fsNode;
+    }
+
+    /**
+     * the block with index. It follows the forwardId to EXT FsNodes.
+     * a FsNode without EXT has its own ID as forwardId.
+     */
+    private Blockinfo blockinfo(int index) throws IOException {
+        synchronized (_refsLock) {
+            while (index >= _blockinfos.size()) {
+                if (_lastFsNode.forwardId == _lastFsNode.ID || _lastFsNode.forwardId == DxramFsConfig.INVALID_ID) {
+                    throw new EOFException("no Blockinfo " + index + " in " + _dxramFile.getPathWithoutScheme());
+                }
+                FsNodeByIdMessage msg = new FsNodeByIdMessage(_dxramFile.getNearPeerId(), String.valueOf(_lastFsNode.forwardId));
+                FsNode ext = msg.send(_dxnet);
+                if (ext == null) {
+                    throw new IOException("get EXT FsNode: something is really wrong");
+                }
+                addRefs(ext);
+            }
+            return _blockinfos.get(index);
+        }
+    }
+
+    /**
+     * asks the near peer for the locations of the blocks index, ..., index+_locatePage-1,
+     * if we do not know the location of index. Needs _refsLock.
+     */
+    private void locate(int index) throws IOException {
+        if (_located[index]) return;
+        BlockLocationsMessage msg = new BlockLocationsMessage(
+            _dxramFile.getNearPeerId(),
+            _dxramFile.getPathWithoutScheme(),
+            (long) index * _blocksize,
+            (long) _locatePage * _blocksize
+        );
+        BlockLocationsResponse res = msg.send(_dxnet);
+        if (res == null) {
+            throw new FileNotFoundException("get block locations: " + _dxramFile.getPathWithoutScheme());
+        }
+        long[] offsets = res.getOffsets();
+        long[] storageIds = res.getStorageIds();
+        short[] nodeIds = res.getNodeIds();
+        for (int i = 0; i < offsets.length; i++) {
+            int n = (int) (offsets[i] / _blocksize);
+            if (n >= _storageIds.length) break;
+            _storageIds[n] = storageIds[i];
+            _owners[n] = nodeIds[i];
+            _located[n] = true;
+        }
+        if (!_located[index]) {
+            throw new EOFException("no location of block " + index + " in " + _dxramFile.getPathWithoutScheme());
+        }
+    }
 
-        reset();
-        long skipped = skip(pos);
+    /**
+     * asks the near peer again for the BlockChunk of block index. A flush may have created it or
+     * moved the block into a larger BlockChunk, since we got the block table.
+     */
+    private Blockinfo relocate(int index) throws IOException {
+        BlockLocationsMessage msg = new BlockLocationsMessage(
+            _dxramFile.getNearPeerId(),
+            _dxramFile.getPathWithoutScheme(),
+            (long) index * _blocksize,
+            _blocksize
+        );
+        BlockLocationsResponse res = msg.send(_dxnet);
+        if (res == null || res.getStorageIds().length == 0) {
+            throw new IOException("get location of block " + index + ": something is really wrong");
+        }
+        Blockinfo bi = new Blockinfo();
+        bi.init();
+        bi.offset = index;
+        bi.length = (int) res.getLengths()[0];
+        bi.storageId = res.getStorageIds()[0];
+        bi.owner = res.getNodeIds()[0];
+        synchronized (_refsLock) {
+            if (_striped) {
+                _storageIds[index] = bi.storageId;
+                _owners[index] = bi.owner;
+                _located[index] = true;
+            } else if (index < _blockinfos.size()) {
+                _blockinfos.set(index, bi);
+            }
+        }
+        return bi;
+    }
+
+    /**
+     * gets the block from the owner of its BlockChunk. If the BlockChunk is missing (or holds an other
+     * block, after the block has moved and dxram has used its chunkid again), we ask for its location once more.
+     */
+    private Block load(int index, long storageId, short owner) throws IOException {
+        Block block = null;
+        if (storageId != DxramFsConfig.INVALID_ID) {
+            block = BlockTransfer.ask(_dxnet, _dxramFile.getBlockPeerId(owner), storageId, _stamp, index);
+        }
+        if (block == null) {
+            Blockinfo bi = relocate(index);
+            if (bi.storageId == DxramFsConfig.INVALID_ID) {
+                // the block is not flushed yet: it has no data
+                block = new Block();
+                block.ID = DxramFsConfig.INVALID_ID;
+                block._data = new byte[_blocksize];
+                return block;
+            }
+            if (bi.storageId != storageId) {
+                block = BlockTransfer.ask(_dxnet, _dxramFile.getBlockPeerId(bi.owner), bi.storageId, _stamp, index);
+            }
+        }
+        if (block == null) {
+            throw new IOException("ask+get Block: something is really wrong");
+        }
+        return block;
+    }
+
+    private Block fetchStriped(int index) throws IOException {
+        long storageId;
+        short owner;
+        synchronized (_refsLock) {
+            locate(index);
+            storageId = _storageIds[index];
+            owner = _owners[index];
+        }
+        return load(index, storageId, owner);
+    }
 
-        if (skipped != pos) throw new IOException();
+    private Block fetch(int index) throws IOException {
+        if (_striped) return fetchStriped(index);
+        Blockinfo blockinfo = blockinfo(index);
+        // the owner of the BlockChunk gets it without network traffic in dxram
+        return load(index, blockinfo.storageId, blockinfo.owner);
+    }
+
+    private int blockCount() {
+        return (int) ((_length + _blocksize - 1) / _blocksize);
+    }
+
+    /**
+     * get the block with index and start loading the next _readAhead blocks.
+     * blocks outside of this window are dropped.
+     */
+    private Block block(int index) throws IOException {
+        int last = Math.min(index + _readAhead, blockCount() - 1);
+        while (!_window.isEmpty() && _window.firstKey() < index) {
+            drop(_window.pollFirstEntry().getValue());
+        }
+        while (!_window.isEmpty() && _window.lastKey() > last) {
+            drop(_window.pollLastEntry().getValue());
+        }
+        for (int i = index; i <= last; i++) {
+            if (!_window.containsKey(i)) {
+                final int n = i;
+                _window.put(i, READ_AHEAD.submit(() -> fetch(n)));
+            }
+        }
+
+        Future<Block> f = _window.remove(index);
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("waiting for block " + index);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * cancels the loading of a block or gives its data back to the BlockPool, if it is loaded.
+     */
+    private static void drop(Future<Block> f) {
+        if (f.cancel(true) || f.isCancelled()) return;
+        try {
+            BlockPool.release(f.get()._data);
+        } catch (InterruptedException | ExecutionException e) {
+            // nothing to give back
+        }
+    }
+
+    /**
+     * makes the block of _pos to the current block.
+     *
+     * @return false, if we are at the end of the file
+     */
+    private boolean nextBlock() throws IOException {
+        if (_closed) throw new IOException("stream is closed");
+        if (_pos >= _length) return false;
+        int index = (int) (_pos / _blocksize);
+        if (index != _blockIndex) {
+            // free the old block, before we wait for the next one
+            if (_block != null) BlockPool.release(_block._data);
+            _block = null;
+            _block = block(index);
+            _blockIndex = index;
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized long getPos() throws IOException {
+        return _pos;
+    }
+
+    @Override
+    public synchronized void seek(long pos) throws IOException {
+        if (_closed) throw new IOException("stream is closed");
+        if (pos < 0 || pos > _length) throw new EOFException("seek to " + pos + " outside of the file");
+        // the block is loaded by the next read
+        _pos = pos;
     }
 
     @Override
     public boolean seekToNewSource(long targetPos) throws IOException {
-      return false;
+        return false;
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+        if (!nextBlock()) return -1;
+        int b = _block._data[(int) (_pos - (long) _blockIndex * _blocksize)] & 0xFF;
+        _pos++;
+        return b;
     }
 
     @Override
-    public int read(long position, byte[] buffer, int offset, int length) throws IOException {
-        if (position >= buf.length) throw new IllegalArgumentException();
-        if (position + length > buf.length) throw new IllegalArgumentException();
-        if (length > buffer.length) throw new IllegalArgumentException();
+    public synchronized int read(byte[] buffer, int offset, int length) throws IOException {
+        if (buffer == null) {
+            throw new NullPointerException();
+        } else if (offset < 0 || length < 0 || length > buffer.length - offset) {
+            throw new IndexOutOfBoundsException();
+        } else if (length == 0) {
+            return 0;
+        }
 
-        System.arraycopy(buf, (int) position, buffer, offset, length);
-        return length;
+        int done = 0;
+        while (done < length && nextBlock()) {
+            int inBlock = (int) (_pos - (long) _blockIndex * _blocksize);
+            int n = (int) Math.min(
+                Math.min(length - done, _blocksize - inBlock),
+                _length - _pos
+            );
+            System.arraycopy(_block._data, inBlock, buffer, offset + done, n);
+            done += n;
+            _pos += n;
+        }
+        return done == 0 ? -1 : done;
+    }
+
+    @Override
+    public synchronized long skip(long n) throws IOException {
+        if (n <= 0) return 0;
+        long skipped = Math.min(n, _length - _pos);
+        seek(_pos + skipped);
+        return skipped;
     }
 
     @Override
-    public void readFully(long position, byte[] buffer) throws IOException {
-        read(position, buffer, 0, buffer.length);
+    public synchronized int available() throws IOException {
+        if (_closed) throw new IOException("stream is closed");
+        return (int) Math.min(_length - _pos, Integer.MAX_VALUE);
     }
 
     @Override
-    public void readFully(long position, byte[] buffer, int offset, int length) throws IOException {
-        read(position, buffer, offset, length);
+    public synchronized void close() throws IOException {
+        if (_closed) return;
+        _closed = true;
+        for (Map.Entry<Integer, Future<Block>> e : _window.entrySet()) {
+            drop(e.getValue());
+        }
+        _window.clear();
+        if (_block != null) BlockPool.release(_block._data);
+        _block = null;
     }
-}
\ No newline at end of file
+}
@@ -1,19 +1,39 @@
 package de.hhu.bsinfo.dxramfs.connector;
 
 import de.hhu.bsinfo.dxapp.dxramfscore.Block;
+import de.hhu.bsinfo.dxapp.dxramfscore.BlockPool;
 import de.hhu.bsinfo.dxapp.dxramfscore.Blockinfo;
 import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
 import de.hhu.bsinfo.dxapp.dxramfscore.FsNode;
 import de.hhu.bsinfo.dxapp.dxramfscore.rpc.*;
 import de.hhu.bsinfo.dxnet.DXNet;
+import org.apache.hadoop.fs.Syncable;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
- * class to write data into correct file blocks. we use a block as buffer
+ * class to write data into correct file blocks. we use a block as buffer.
+ * Full blocks are flushed in the background, while we fill the next block. Up to
+ * flushWindow blocks are on the way to the peer. We only wait for them on hflush() and close().
+ * A flush sends only the bytes of the block, which are written since the last flush
+ * (in fragments, see BlockTransfer).
  */
-public class DxramOutputStream extends OutputStream {
+public class DxramOutputStream extends OutputStream implements Syncable {
+
+    // shared by all streams: the threads only wait for FlushOkMessages of the peers
+    private static final ExecutorService FLUSHER = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "dxramfs-flush");
+        t.setDaemon(true);
+        return t;
+    });
 
     private DXNet _dxnet;
     private DxramFile _dxramFile;
@@ -21,11 +41,26 @@ public class DxramOutputStream extends OutputStream {
     private FsNode _fsNode;
     private Blockinfo _blockinfo;
     private Block _block;
+    // start of the not flushed bytes in _block
+    private int _dirtyStart;
+
+    // full blocks, which are on the way to the peer (oldest first)
+    private int _flushWindow;
+    private ArrayDeque<Future<Boolean>> _pending;
+    private ArrayDeque<byte[]> _pendingData;
+    // buffers of already flushed blocks, we can fill again
+    private ArrayDeque<byte[]> _spare;
+    private boolean _closed;
 
-    public DxramOutputStream(DxramFile dxramFile, DXNet dxnet) throws IOException {
+    public DxramOutputStream(DxramFile dxramFile, DXNet dxnet, int flushWindow) throws IOException {
         _remotePath = dxramFile.getPathWithoutScheme();
         _dxramFile = dxramFile;
         _dxnet = dxnet;
+        _flushWindow = Math.max(1, flushWindow);
+        _pending = new ArrayDeque<>();
+        _pendingData = new ArrayDeque<>();
+        _spare = new ArrayDeque<>();
+        _closed = false;
         readTail();
     }
 
@@ -36,36 +71,164 @@ public class DxramOutputStream extends OutputStream {
             throw new IOException("get FsNode: something is really wrong");
         }
 
+        if (_fsNode.refSize == 0) {
+            // a small file without blocks: the FsNode holds its data. The peer stores it in a block,
+            // if it gets too large
+            _blockinfo = new Blockinfo();
+            _blockinfo.init();
+            _blockinfo.offset = 0;
+            _blockinfo.length = _fsNode.inline.length;
+            _block = new Block();
+            _block.ID = DxramFsConfig.INVALID_ID;
+            _block._data = BlockPool.take(DxramFsConfig.file_blocksize);
+            System.arraycopy(_fsNode.inline, 0, _block._data, 0, _fsNode.inline.length);
+            _dirtyStart = _blockinfo.length;
+            return;
+        }
+
         // output is for write. the default is: write to the file end (?) -> wehave to load the last block
 
         int blockIndex = (int) ( _fsNode.size / (long) DxramFsConfig.file_blocksize);
-        if (blockIndex >= DxramFsConfig.ref_ids_each_fsnode) {
-            // @todo based on the fsNode data, we should load EXT FsNodeByIdMessage !!!!!!!!!!!!
+        if (_fsNode.size % DxramFsConfig.file_blocksize == 0) {
+            // the last block is full (or the file is empty): we start with a new block.
+            // The peer creates it, if it gets the flush of it
+            _blockinfo = new Blockinfo();
+            _blockinfo.init();
+            _blockinfo.offset = blockIndex;
+            _blockinfo.length = 0;
+            _block = new Block();
+            _block.ID = DxramFsConfig.INVALID_ID;
+            _block._data = BlockPool.take(DxramFsConfig.file_blocksize);
+            _dirtyStart = 0;
+            return;
         }
 
-        BlockinfoMessage biMsg = new BlockinfoMessage(_dxramFile.getNearPeerId(), String.valueOf(_fsNode.refIds[blockIndex]));
-        _blockinfo = biMsg.send(_dxnet);
-        if (_blockinfo == null) {
-            throw new IOException("get Blockinfo: something is really wrong");
+        if (blockIndex < _fsNode.refSize) {
+            // the FsNode holds the block table: we get the last block directly from its owner
+            _blockinfo = _fsNode.blockinfo(blockIndex);
+        } else {
+            // the block is in an EXT FsNode: the peer finds it with its index of the EXT chain
+            _blockinfo = locate(blockIndex);
         }
 
-        // use blockid to load block into buffer
-        AskBlockMessage msg = new AskBlockMessage(_dxramFile.getNearPeerId(),_blockinfo.ID);
-        boolean res = msg.send(_dxnet);
-        if (res) {
-            _block = AskBlockMessage._result;
-        } else {
+        if (_blockinfo.storageId == DxramFsConfig.INVALID_ID) {
+            // the peer creates the BlockChunk with the first flush of the block
+            _block = new Block();
+            _block.ID = DxramFsConfig.INVALID_ID;
+            _block._data = BlockPool.take(DxramFsConfig.file_blocksize);
+            _dirtyStart = 0;
+            return;
+        }
+
+        // use blockid (storageId) to load block into buffer
+        _block = BlockTransfer.ask(
+                _dxnet, _dxramFile.getBlockPeerId(_blockinfo), _blockinfo.storageId, _fsNode.stamp, blockIndex
+        );
+        if (_block == null) {
+            // the block has moved into a larger BlockChunk since we got the FsNode
+            _blockinfo = locate(blockIndex);
+            if (_blockinfo.storageId != DxramFsConfig.INVALID_ID) {
+                _block = BlockTransfer.ask(
+                        _dxnet, _dxramFile.getBlockPeerId(_blockinfo), _blockinfo.storageId, _fsNode.stamp, blockIndex
+                );
+            }
+        }
+        if (_block == null) {
             throw new IOException("ask+get Block: something is really wrong");
         }
+        if (_block._data.length < DxramFsConfig.file_blocksize) {
+            // the peer stores only the used part of a block: we need the full buffer
+            byte[] data = BlockPool.take(DxramFsConfig.file_blocksize);
+            System.arraycopy(_block._data, 0, data, 0, _block._data.length);
+            _block._data = data;
+        }
+        _dirtyStart = _blockinfo.length;
+    }
+
+    /**
+     * asks the peer for the location of a block in an EXT FsNode of a large file.
+     */
+    private Blockinfo locate(int blockIndex) throws IOException {
+        long blocksize = DxramFsConfig.file_blocksize;
+        BlockLocationsMessage msg = new BlockLocationsMessage(
+                _dxramFile.getNearPeerId(), _remotePath, blockIndex * blocksize, blocksize
+        );
+        BlockLocationsResponse res = msg.send(_dxnet);
+        if (res == null || res.getStorageIds().length == 0) {
+            throw new IOException("get location of block " + blockIndex + ": something is really wrong");
+        }
+        Blockinfo bi = new Blockinfo();
+        bi.init();
+        bi.offset = blockIndex;
+        bi.length = (int) res.getLengths()[0];
+        bi.storageId = res.getStorageIds()[0];
+        bi.owner = res.getNodeIds()[0];
+        return bi;
+    }
+
+    /**
+     * waits for the oldest block, which is on the way to the peer.
+     */
+    private void waitForOldest() throws IOException {
+        Future<Boolean> oldest = _pending.poll();
+        byte[] data = _pendingData.poll();
+        if (oldest == null) return;
+        try {
+            if (!oldest.get()) {
+                throw new IOException("flush(): something is really wrong");
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("waiting for flush");
+        } catch (ExecutionException e) {
+            throw new IOException("flush(): something is really wrong", e.getCause());
+        }
+        _spare.push(data);
+    }
+
+    private void waitForAll() throws IOException {
+        while (!_pending.isEmpty()) {
+            waitForOldest();
+        }
+    }
+
+    /**
+     * sends the full block in the background and continues with an empty buffer.
+     */
+    private void nextBlock() throws IOException {
+        if (_pending.size() >= _flushWindow) {
+            waitForOldest();
+        }
+
+        // the messages copy FsNode and Blockinfo values. They hold only the data array of the block
+        List<FlushMessage> msgs = BlockTransfer.flushMessages(
+                _dxramFile.getNearPeerId(), _fsNode, _blockinfo, _block, _dirtyStart, _blockinfo.length
+        );
+        _pendingData.add(_block._data);
+        _pending.add(FLUSHER.submit(() -> BlockTransfer.flush(_dxnet, msgs)));
+
+        // the peer creates the next block, if it gets the flush of it: it finds it by the index (offset)
+        Blockinfo next = new Blockinfo();
+        next.init();
+        next.offset = _blockinfo.offset + 1;
+        next.length = 0;
+        _blockinfo = next;
+
+        _block = new Block();
+        _block.ID = DxramFsConfig.INVALID_ID;
+        _dirtyStart = 0;
+        if (!_spare.isEmpty()) {
+            _block._data = _spare.pop();
+        } else {
+            _block._data = BlockPool.take(DxramFsConfig.file_blocksize);
+        }
     }
 
     @Override
     public void write(int b) throws IOException {
+        if (_closed) throw new IOException("stream is closed");
         if (_blockinfo.length == DxramFsConfig.file_blocksize) {
             // block is full
-            flush();
-            // get (maybe enlarged) new/next block and other data
-            readTail();
+            nextBlock();
         }
         _block._data[_blockinfo.length] = (byte) b;
         _blockinfo.length++;
@@ -81,28 +244,78 @@ public class DxramOutputStream extends OutputStream {
     public void write(byte[] dat, int startpos, int leng) throws IOException {
         if (dat == null) {
             throw new NullPointerException();
-        } else if (startpos >= 0 && startpos <= dat.length && leng >= 0 && startpos + leng <= dat.length && startpos + leng >= 0) {
-            if (leng != 0) {
-                for(int var4 = 0; var4 < leng; ++var4) {
-                    this.write(dat[startpos + var4]);
-                }
-            }
-        } else {
+        } else if (startpos < 0 || leng < 0 || leng > dat.length - startpos) {
             throw new IndexOutOfBoundsException();
         }
+        if (_closed) throw new IOException("stream is closed");
+
+        while (leng > 0) {
+            if (_blockinfo.length == DxramFsConfig.file_blocksize) {
+                // block is full
+                nextBlock();
+            }
+            int n = Math.min(leng, DxramFsConfig.file_blocksize - _blockinfo.length);
+            System.arraycopy(dat, startpos, _block._data, _blockinfo.length, n);
+            _blockinfo.length += n;
+            _fsNode.size += n;
+            startpos += n;
+            leng -= n;
+        }
     }
 
+    /**
+     * like in hdfs, flush() gives no guarantee: the data is visible after hflush() or close().
+     */
     @Override
     public void flush() throws IOException {
-        FlushMessage msg = new FlushMessage(_dxramFile.getNearPeerId(), _fsNode, _blockinfo, _block);
-        boolean res = msg.send(_dxnet);
+        if (_closed) throw new IOException("stream is closed");
+    }
+
+    /**
+     * waits for all blocks on the way and sends the current block.
+     */
+    @Override
+    public void hflush() throws IOException {
+        if (_closed) throw new IOException("stream is closed");
+        waitForAll();
+
+        List<FlushMessage> msgs = BlockTransfer.flushMessages(
+                _dxramFile.getNearPeerId(), _fsNode, _blockinfo, _block, _dirtyStart, _blockinfo.length
+        );
+        boolean res = BlockTransfer.flush(_dxnet, msgs);
         if (!res) {
             throw new IOException("flush(): something is really wrong");
         }
+        _dirtyStart = _blockinfo.length;
+        // the size has changed
+        DxramFileSystem.metadataCache.invalidate(_remotePath, false);
+    }
+
+    @Override
+    public void hsync() throws IOException {
+        hflush();
+    }
+
+    @Override
+    @Deprecated
+    public void sync() throws IOException {
+        hflush();
     }
 
     @Override
     public void close() throws IOException {
-        flush();
+        if (_closed) return;
+        try {
+            hflush();
+        } finally {
+            _closed = true;
+            if (_pending.isEmpty()) {
+                // no flush uses them anymore
+                BlockPool.release(_block._data);
+                while (!_spare.isEmpty()) BlockPool.release(_spare.pop());
+            }
+            _block = null;
+            _spare.clear();
+        }
     }
 }
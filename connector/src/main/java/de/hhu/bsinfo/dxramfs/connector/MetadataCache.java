@@ -0,0 +1,107 @@
+package de.hhu.bsinfo.dxramfs.connector;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.LruCache;
+import org.apache.hadoop.fs.FileStatus;
+
+/**
+ * FileStatus of paths, we got from a peer. An entry lives up to ttl ms: the peer gives us a
+ * lease for this time and sends an InvalidateMessage, if the path changes before.
+ * We cache only existing paths, thus a create or mkdirs needs no invalidation.
+ */
+public class MetadataCache {
+
+    private static class Entry {
+        final FileStatus status;
+        final long created;
+
+        Entry(FileStatus status) {
+            this.status = status;
+            this.created = System.currentTimeMillis();
+        }
+    }
+
+    private final LruCache<String, Entry> _cache;
+    private final long _ttl;
+    // changes on every invalidate(). A FileStatus, we asked for before, is not put
+    private long _generation;
+
+    /**
+     * @param size max cached paths (LRU). 0 disables the cache
+     * @param ttl ms until an entry is invalid
+     */
+    public MetadataCache(int size, long ttl) {
+        _ttl = ttl;
+        if (size > 0 && ttl > 0) {
+            // get() drops an old entry, the LRU order the unused ones
+            _cache = new LruCache<>(size);
+        } else {
+            _cache = null;
+        }
+    }
+
+    /**
+     * @return the lease time to ask a peer for, 0 if the cache is off
+     */
+    public int getLeaseMs() {
+        return _cache == null ? 0 : (int) Math.min(_ttl, Integer.MAX_VALUE);
+    }
+
+    public FileStatus get(String path) {
+        if (_cache == null) return null;
+        Entry e = _cache.get(key(path));
+        if (e == null) return null;
+        if (System.currentTimeMillis() - e.created >= _ttl) {
+            _cache.remove(key(path));
+            return null;
+        }
+        return e.status;
+    }
+
+    /**
+     * get it before asking the peer and pass it to put()
+     *
+     * @return
+     */
+    public synchronized long generation() {
+        return _generation;
+    }
+
+    public synchronized void put(String path, FileStatus status, long generation) {
+        if (_cache == null || generation != _generation) return;
+        _cache.put(key(path), new Entry(status));
+    }
+
+    /**
+     * @param path
+     * @param subtree true, if the paths below are invalid, too
+     */
+    public synchronized void invalidate(String path, boolean subtree) {
+        _generation++;
+        if (_cache == null) return;
+        String key = key(path);
+        if (key.isEmpty() && subtree) {
+            _cache.clear();
+        } else if (subtree) {
+            String below = key + "/";
+            _cache.removeIf(k -> k.equals(key) || k.startsWith(below));
+        } else {
+            _cache.remove(key);
+        }
+    }
+
+    public void close() {
+        if (_cache == null) return;
+        _cache.clear();
+    }
+
+    /**
+     * "/a/b/" and "a/b" are the same path
+     */
+    private static String key(String path) {
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == '/') start++;
+        while (end > start && path.charAt(end - 1) == '/') end--;
+        return path.substring(start, end);
+    }
+}
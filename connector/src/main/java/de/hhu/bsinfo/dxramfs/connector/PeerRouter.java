@@ -0,0 +1,77 @@
+package de.hhu.bsinfo.dxramfs.connector;
+
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.NodePeerConfig;
+
+/**
+ * chooses the dxnet peer for requests of this hadoop node:
+ * - metadata requests go to the dxram peer on the same host. If there is none, each hadoop node
+ *   uses an other peer (by its node id), thus the load is spread over all peers.
+ * - block requests go to the peer, which owns the BlockChunk.
+ */
+public class PeerRouter {
+    public static final Logger LOG = LogManager.getLogger(PeerRouter.class.getName());
+
+    private final NodePeerConfig _config;
+    private final short _nearPeerId;
+
+    public PeerRouter(NodePeerConfig config) {
+        _config = config;
+        _nearPeerId = choose();
+        LOG.info("near peer is dxnet node {}", _nearPeerId);
+    }
+
+    public short getNearPeerId() {
+        return _nearPeerId;
+    }
+
+    private short choose() {
+        // mappings without a dxram part are other hadoop nodes
+        ArrayList<NodePeerConfig.Mapping> peers = new ArrayList<>();
+        for (NodePeerConfig.Mapping m : _config.peerMappings) {
+            if (m.dxram_addr != null) peers.add(m);
+        }
+        if (peers.isEmpty()) {
+            return _config.peerMappings.get(0).nodeId;
+        }
+
+        Set<String> local = localAddresses();
+        for (NodePeerConfig.Mapping m : peers) {
+            if (local.contains(m.dxram_addr)) return m.nodeId;
+        }
+        return peers.get(Math.floorMod(_config.nodeId, peers.size())).nodeId;
+    }
+
+    private static Set<String> localAddresses() {
+        Set<String> back = new HashSet<>();
+        try {
+            for (NetworkInterface nif : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                for (InetAddress a : Collections.list(nif.getInetAddresses())) {
+                    back.add(a.getHostAddress());
+                }
+            }
+        } catch (SocketException e) {
+            LOG.warn("no local network interfaces: {}", e.getMessage());
+        }
+        try {
+            InetAddress me = InetAddress.getLocalHost();
+            back.add(me.getHostName());
+            back.add(me.getCanonicalHostName());
+            back.add(me.getHostAddress());
+        } catch (UnknownHostException e) {
+            LOG.warn("no local hostname: {}", e.getMessage());
+        }
+        return back;
+    }
+}
@@ -0,0 +1,69 @@
+package de.hhu.bsinfo.dxramfs.connector;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetadataCacheTest {
+
+    private static FileStatus status(String path) {
+        return new FileStatus(path.length(), false, 0, 0, 0, null);
+    }
+
+    @Test
+    public void testPutGet() {
+        MetadataCache cache = new MetadataCache(16, 60000);
+        Assert.assertEquals(60000, cache.getLeaseMs());
+        FileStatus a = status("a/b");
+        cache.put("/a/b/", a, cache.generation());
+        Assert.assertSame(a, cache.get("a/b"));
+        Assert.assertNull(cache.get("a"));
+        cache.close();
+    }
+
+    @Test
+    public void testInvalidate() {
+        MetadataCache cache = new MetadataCache(16, 60000);
+        cache.put("a", status("a"), cache.generation());
+        cache.put("a/b", status("a/b"), cache.generation());
+        cache.put("c", status("c"), cache.generation());
+
+        cache.invalidate("c", false);
+        Assert.assertNull(cache.get("c"));
+        Assert.assertNotNull(cache.get("a/b"));
+
+        cache.invalidate("a", true);
+        Assert.assertNull(cache.get("a"));
+        Assert.assertNull(cache.get("a/b"));
+        cache.close();
+    }
+
+    @Test
+    public void testStaleStatusIsNotCached() {
+        MetadataCache cache = new MetadataCache(16, 60000);
+        long generation = cache.generation();
+        // the InvalidateMessage comes, while we wait for the peer
+        cache.invalidate("a", false);
+        cache.put("a", status("a"), generation);
+        Assert.assertNull(cache.get("a"));
+        cache.close();
+    }
+
+    @Test
+    public void testTtl() throws Exception {
+        MetadataCache cache = new MetadataCache(16, 20);
+        cache.put("a", status("a"), cache.generation());
+        Thread.sleep(40);
+        Assert.assertNull(cache.get("a"));
+        cache.close();
+    }
+
+    @Test
+    public void testDisabled() {
+        MetadataCache cache = new MetadataCache(0, 60000);
+        Assert.assertEquals(0, cache.getLeaseMs());
+        cache.put("a", status("a"), cache.generation());
+        Assert.assertNull(cache.get("a"));
+        cache.close();
+    }
+}
@@ -7,9 +7,19 @@ import com.google.gson.stream.JsonReader;
 
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.net.InetSocketAddress;
 
+import de.hhu.bsinfo.dxnet.MessageReceiver;
+import de.hhu.bsinfo.dxnet.core.Message;
+import de.hhu.bsinfo.dxnet.core.Request;
 import de.hhu.bsinfo.dxnet.core.NetworkException;
 
 import de.hhu.bsinfo.dxram.DXRAM;
@@ -19,7 +29,6 @@ import de.hhu.bsinfo.dxram.app.AbstractApplication;
 import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil; //xx
 import de.hhu.bsinfo.dxutils.NodeID;
 
-import de.hhu.bsinfo.dxram.util.NodeRole;
 import de.hhu.bsinfo.dxmem.data.ChunkID;
 import de.hhu.bsinfo.dxmem.data.AbstractChunk;
 
@@ -41,7 +50,8 @@ import de.hhu.bsinfo.dxram.generated.BuildConfig;
 public class DxramFsApp extends AbstractApplication {
 
     private static final Logger LOG = LogManager.getFormatterLogger(DxramFsApp.class.getSimpleName());
-    private static Random randomizer = new Random();
+    // smallest data of a BlockChunk with data
+    private static final int MIN_BLOCK_CAPACITY = 4096;
 
     private long ROOT_CID;
     private BootService bootS;
@@ -54,14 +64,27 @@ public class DxramFsApp extends AbstractApplication {
     private DxnetInit dxnetInit;
     
     public static NodePeerConfig nopeConfig;
-    
-    private boolean doEndlessLoop = true;
+
+    // incoming requests are handled by these workers. mutating requests lock their folders in pathLocks
+    private ThreadPoolExecutor workers;
+    private PathLocks pathLocks;
+    // a flush locks the chunkid of its file FsNode, a rename (or delete) of the file the same
+    private PathLocks nodeLocks;
+    // sends the InvalidateMessages and WatchMessages: a worker does not wait for the network with its locks
+    private ExecutorService notifier;
+    private PathCache pathCache;
+    private LeaseTable leases;
+    private BlockPlacement placement;
+    private BlockFragments fragments;
+    private ExtIndex extIndex;
+    private FolderIndex folderIndex;
+    private Reclaimer reclaimer;
+    private final CountDownLatch shutdownSignal = new CountDownLatch(1);
 
 
     @Override
     public void signalShutdown() {
-        // no loops to interrupt or things to clean up ?
-        doEndlessLoop = false;
+        shutdownSignal.countDown();
         // dxnet or dxram shutdown??
     }
     
@@ -90,59 +113,46 @@ public class DxramFsApp extends AbstractApplication {
             DxramFsConfig.max_filenamelength_chars = d.max_filenamelength_chars;
             DxramFsConfig.max_hostlength_chars = d.max_hostlength_chars;
             DxramFsConfig.max_addrlength_chars = d.max_addrlength_chars;
+            DxramFsConfig.worker_threads = d.worker_threads;
+            DxramFsConfig.worker_queue_size = d.worker_queue_size;
+            DxramFsConfig.path_cache_size = d.path_cache_size;
+            DxramFsConfig.block_cache_size = d.block_cache_size;
+            DxramFsConfig.fragment_timeout_ms = d.fragment_timeout_ms;
+            DxramFsConfig.block_placement = d.block_placement;
+            DxramFsConfig.inline_file_bytes = d.inline_file_bytes;
+            DxramFsConfig.ext_index_size = d.ext_index_size;
+            DxramFsConfig.folder_index_size = d.folder_index_size;
+            DxramFsConfig.reclaim_chunks_per_second = d.reclaim_chunks_per_second;
+            DxramFsConfig.head_ref_ids = d.head_ref_ids;
         } catch (FileNotFoundException e) {
             LOG.error("read config file %s failed because it does not exist.", e.getMessage());
             System.exit(-1);
         } 
     }
     
-    /*
-    private long chunkCreate___OLD(AbstractChunk chu) {
-        long[] chunkIDs = new long[1];
-        int numChunks = 0;
-
-        short peerId = bootS.getNodeID(); // me
-        
-        if (bootS.getNodeID() == peerId) {
-            LOG.debug("doing chunk createLocal()");
-            numChunks = chunkLS.createLocal().create(chunkIDs, 1, chu.sizeofObject());
-        } else {
-            LOG.debug("doing chunk create()");
-            numChunks = chunkS.create().create(peerId, chunkIDs, 1, chu.sizeofObject());
-        }
-
-        if (numChunks != 1) {
-            LOG.error("Chunk creation failed");
-            System.exit(-1);
-        }
-        // @todo did we need this realy?
-        LOG.debug("doing setID() on new chunk");
-        chu.setID(chunkIDs[0]);
-        LOG.debug("doing chunkService.get().get(newChunk)");
-        chunkS.get().get(chu);
-        
-        LOG.debug("Created chunk of size %d on peer 0x%X: 0x%X", chu.sizeofObject(), peerId, chunkIDs[0]);
-        return chunkIDs[0];
-    }
-    */
-    
     private long chunkCreate(AbstractChunk chu) {
-        // It is a bit ugly, that we call the dxram storage/processing endpoints "PEERS", but all function etc. use "Node".
-        
         LOG.debug("doing bootService.getNodeID()");
-        short peerId = bootS.getNodeID(); // me
-        
-        // get random someone of online peers!
-        /*
-        List<Short> peerIds = bootS.getOnlineNodeIDs();
+        return chunkCreate(chu, bootS.getNodeID()); // me
+    }
+
+    /**
+     * @return the online dxram peers (no superpeers). At least this peer, if it does not know any other
+     */
+    private List<Short> onlinePeers() {
+        // It is a bit ugly, that we call the dxram storage/processing endpoints "PEERS", but all function etc. use "Node".
         ArrayList<Short> candidates = new ArrayList<>();
-        for (short pid : peerIds) {
-            NodeRole nr = bootS.getNodeRole(pid);
-            if (nr.toString().equals(NodeRole.PEER_STR)) candidates.add(pid);
+        List<Short> peerIds = bootS.getOnlineNodeIDs();
+        if (peerIds != null) {
+            for (short pid : peerIds) {
+                NodeRole nr = bootS.getNodeRole(pid);
+                if (nr != null && nr.toString().equals(NodeRole.PEER_STR)) candidates.add(pid);
+            }
         }
-        peerId = candidates.get(randomizer.nextInt(candidates.size()));
-        */
+        if (candidates.isEmpty()) candidates.add(bootS.getNodeID());
+        return candidates;
+    }
 
+    private long chunkCreate(AbstractChunk chu, short peerId) {
         if (bootS.getNodeID() == peerId) {
             LOG.debug("doing chunk createLocal()");
             chunkLS.createLocal().create(chu);
@@ -194,11 +204,10 @@ public class DxramFsApp extends AbstractApplication {
         System.out.println("DXNET dxnet peer_addr: " + nopeConfig.dxnet_addr);
         System.out.println("DXNET dxnet peer_port: " + nopeConfig.dxnet_port);
         
-        dxnetInit = new DxnetInit(nopeConfig, nopeConfig.nodeId);
-        
-        
         ROOTN = new FsNodeChunk();
-        ROOTN.get().init();
+        ROOTN.get().init(headRefs());
+        // the chunk gets the capacity of the name at the create
+        ROOTN.get().name = "/";
         LOG.debug("FsNode refIds lentgh %d", ROOTN.get().refIds.length);
         LOG.debug("FsNode refIds size %d", ObjectSizeUtil.sizeofLongArray(ROOTN.get().refIds));
         
@@ -218,6 +227,7 @@ public class DxramFsApp extends AbstractApplication {
             r.name = "/";
             r.size = 0;
             r.refSize = 0;
+            r.stamp = newStamp();
             r.backId = ROOT_CID;
             r.forwardId = ROOT_CID;
             ROOTN.set(r);
@@ -232,348 +242,832 @@ public class DxramFsApp extends AbstractApplication {
             ROOTN.setID(ROOT_CID);
             LOG.debug("doing chunkService.get().get([%s])", String.format("0x%X", ROOTN.getID()));
             chunkS.get().get(ROOTN);
+            if (ROOTN.getID() == ChunkID.INVALID_ID) {
+                // we can not read the FsNodes of an other format: without this check the namespace would be empty
+                LOG.error(
+                    "'%s' [%s] is no FsNode of format %d: it was created by an older DxramFsApp. Start with a new dxram (or an other ROOT_Chunk).",
+                    DxramFsConfig.ROOT_Chunk, String.format("0x%X", ROOT_CID), FsNodeChunk.FORMAT
+                );
+                System.exit(-1);
+            }
             LOG.debug(ROOTN);
         }
         
-        while (doEndlessLoop) {
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException ignored) {}
-            
-            // response is sent to the original sender of the message
-            // -> maybe to handle requests from other hadoop nodes in the future
-
-            if (dxnetInit.emh.gotResult()) {
-                ExistsMessage msg = (ExistsMessage) dxnetInit.emh.Result();
-                // @todo: geht nicht reuse() und isResponse() ? wie ist das angedacht?
-                ExistsMessage response = externalHandleExists(msg);
-                try {
-                    dxnetInit.getDxNet().sendMessage(response);
-                } catch (NetworkException e) {
-                    e.printStackTrace();
-                }
-            }
-
-            if (dxnetInit.idmh.gotResult()) {
-                IsDirectoryMessage msg = (IsDirectoryMessage) dxnetInit.idmh.Result();
-                IsDirectoryMessage response = externalHandleIsDirectory(msg);
-                try {
-                    dxnetInit.getDxNet().sendMessage(response);
-                } catch (NetworkException e) {
-                    e.printStackTrace();
-                }
-            }
+        int threads = DxramFsConfig.worker_threads;
+        if (threads < 1) threads = Runtime.getRuntime().availableProcessors();
+        int queueSize = DxramFsConfig.worker_queue_size;
+        if (queueSize < 1) queueSize = 1024;
+
+        // if the queue is full, the dxnet message handler thread runs the request by itself
+        // and thus slows down incoming requests instead of dropping them
+        workers = new ThreadPoolExecutor(
+            threads, threads,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        pathLocks = new PathLocks(threads * 16);
+        nodeLocks = new PathLocks(threads * 16);
+        notifier = Executors.newSingleThreadExecutor();
+        pathCache = new PathCache(DxramFsConfig.path_cache_size);
+        leases = new LeaseTable();
+        placement = BlockPlacement.forName(DxramFsConfig.block_placement);
+        fragments = new BlockFragments(DxramFsConfig.block_cache_size, DxramFsConfig.fragment_timeout_ms);
+        extIndex = new ExtIndex(DxramFsConfig.ext_index_size);
+        folderIndex = new FolderIndex(DxramFsConfig.folder_index_size);
+        reclaimer = new Reclaimer(chunkS, nodeLocks, fragments, extIndex, DxramFsConfig.reclaim_chunks_per_second);
+        reclaimer.start();
+        LOG.debug("handle requests with %d workers (queue size %d)", threads, queueSize);
+
+        // we start dxnet after creating ROOT: all incoming requests are dispatched to the workers
+        dxnetInit = new DxnetInit(nopeConfig, nopeConfig.nodeId, new RequestDispatcher());
 
-            if (dxnetInit.flmh.gotResult()) {
-                FileLengthMessage msg = (FileLengthMessage) dxnetInit.flmh.Result();
-                FileLengthMessage response = externalHandleFileLength(msg);
-                try {
-                    dxnetInit.getDxNet().sendMessage(response);
-                } catch (NetworkException e) {
-                    e.printStackTrace();
-                }
-            }
+        try {
+            shutdownSignal.await();
+        } catch (InterruptedException ignored) {}
+        workers.shutdown();
+        notifier.shutdown();
+        reclaimer.interrupt();
+    }
 
-            if (dxnetInit.mdmh.gotResult()) {
-                MkDirsMessage msg = (MkDirsMessage) dxnetInit.mdmh.Result();
-                MkDirsMessage response = externalHandleMkDirs(msg);
-                try {
-                    dxnetInit.getDxNet().sendMessage(response);
-                } catch (NetworkException e) {
-                    e.printStackTrace();
-                }
-            }
-            
-            if (dxnetInit.dmh.gotResult()) {
-                DeleteMessage msg = (DeleteMessage) dxnetInit.dmh.Result();
-                DeleteMessage response = externalHandleDelete(msg);
-                try {
-                    dxnetInit.getDxNet().sendMessage(response);
-                } catch (NetworkException e) {
-                    e.printStackTrace();
-                }
-            }
-            
-            if (dxnetInit.rtmh.gotResult()) {
-                RenameToMessage msg = (RenameToMessage) dxnetInit.rtmh.Result();
-                RenameToMessage response = externalHandleRenameTo(msg);
-                try {
-                    dxnetInit.getDxNet().sendMessage(response);
-                } catch (NetworkException e) {
-                    e.printStackTrace();
-                }
-            }
+    /**
+     * called by the dxnet message handler threads. It only passes the request to a worker.
+     */
+    private class RequestDispatcher implements MessageReceiver {
+        @Override
+        public void onIncomingMessage(Message p_message) {
+            workers.execute(() -> handleRequest(p_message));
+        }
+    }
 
-            if (dxnetInit.lmh.gotResult()) {
-                ListMessage msg = (ListMessage) dxnetInit.lmh.Result();
-                ListMessage response = externalHandleList(msg);
-                try {
-                    dxnetInit.getDxNet().sendMessage(response);
-                } catch (NetworkException e) {
-                    e.printStackTrace();
-                }
-            }
-            
-            if (dxnetInit.askBlockmh.askMsg != null) {
-                long askId = dxnetInit.askBlockmh.askMsg.getAskBlockId();
-                short dest = dxnetInit.askBlockmh.askMsg.getSource();
-                dxnetInit.askBlockmh.askMsg = null;
-                BlockChunk blockChunk = new BlockChunk(askId);
-                chunkS.get().get(blockChunk);
-                GetBlockMessage response = null;
-                if (blockChunk.getID() == ChunkID.INVALID_ID) {
-                    response = new GetBlockMessage(dest);
-                    response.setSuccess(false);
-                } else {
-                    response = new GetBlockMessage(dest, blockChunk.get());
-                    response.setSuccess(true);
-                }
-                try {
-                    dxnetInit.getDxNet().sendMessage(response);
-                } catch (NetworkException e) {
-                    e.printStackTrace();
-                }
-            }
+    /**
+     * handles a single request in a worker thread and sends the response to the original sender.
+     * Mutating requests lock the folders they change, thus e.g. two creates in the same folder
+     * do not overwrite the refIds of each other. They are handled by the namespace peer only
+     * (see forwardToNamespacePeer()), thus these locks guard the folders of all peers.
+     *
+     * @param msg
+     */
+    private void handleRequest(Message msg) {
+        if (forwardToNamespacePeer(msg)) return;
 
-            /* only hadoop got such messages
-             * 
-            if (dxnetInit.getBlockmh.gotResult()) {
-                GetBlockMessage msg = (GetBlockMessage) dxnetInit.getBlockmh.Result();
-                AskBlockMessage.success = msg.getSuccess();
-                AskBlockMessage._result = msg.getData();
+        Message response = null;
+        int[] locked = null;
+        int[] nodeLocked = null;
+        try {
+            switch (msg.getSubtype()) {
+                case ExistsMessage.TAG:
+                    response = externalHandleExists((ExistsMessage) msg);
+                    break;
+                case IsDirectoryMessage.TAG:
+                    response = externalHandleIsDirectory((IsDirectoryMessage) msg);
+                    break;
+                case FileLengthMessage.TAG:
+                    response = externalHandleFileLength((FileLengthMessage) msg);
+                    break;
+                case ListMessage.TAG:
+                    response = externalHandleList((ListMessage) msg);
+                    break;
+                case ListStatusMessage.TAG:
+                    response = externalHandleListStatus((ListStatusMessage) msg);
+                    break;
+                case FsNodeMessage.TAG:
+                    response = externalHandleFsNode((FsNodeMessage) msg);
+                    break;
+                case FsNodeByIdMessage.TAG:
+                    response = externalHandleFsNodeById((FsNodeByIdMessage) msg);
+                    break;
+                case AskBlockMessage.TAG:
+                    response = externalHandleAskBlock((AskBlockMessage) msg);
+                    break;
+                case BlockLocationsMessage.TAG:
+                    response = externalHandleBlockLocations((BlockLocationsMessage) msg);
+                    break;
+                case MkDirsMessage.TAG:
+                    MkDirsMessage mkDirsMsg = (MkDirsMessage) msg;
+                    // hadoop asks for the parent folder on every create: an existing folder is only locked shared
+                    locked = pathLocks.lockPaths(mkDirsMsg.get_data());
+                    if (resolve(mkDirsMsg.get_data()) == null) {
+                        pathLocks.unlock(locked);
+                        locked = null;
+                        locked = pathLocks.lockPaths(PathLocks.ancestors(mkDirsMsg.get_data()));
+                    }
+                    response = externalHandleMkDirs(mkDirsMsg);
+                    break;
+                case CreateMessage.TAG:
+                    CreateMessage createMsg = (CreateMessage) msg;
+                    locked = pathLocks.lockPaths(PathLocks.parent(createMsg.getData()));
+                    response = externalHandleCreate(createMsg);
+                    break;
+                case DeleteMessage.TAG:
+                    DeleteMessage deleteMsg = (DeleteMessage) msg;
+                    locked = pathLocks.lockPaths(PathLocks.parent(deleteMsg.getData()), deleteMsg.getData());
+                    response = externalHandleDelete(deleteMsg);
+                    break;
+                case RenameToMessage.TAG:
+                    RenameToMessage renameMsg = (RenameToMessage) msg;
+                    // "to" may need new folders or is a folder, which gets "from". "from" loses its entry in the parent
+                    String[] toFolders = PathLocks.ancestors(renameMsg.getToData());
+                    String[] lockPaths = Arrays.copyOf(toFolders, toFolders.length + 3);
+                    lockPaths[toFolders.length] = PathLocks.parent(renameMsg.getData());
+                    lockPaths[toFolders.length + 1] = renameMsg.getData();
+                    lockPaths[toFolders.length + 2] = renameMsg.getToData();
+                    locked = pathLocks.lockPaths(lockPaths);
+                    response = externalHandleRenameTo(renameMsg);
+                    break;
+                case FlushMessage.TAG:
+                    FlushMessage flushMsg = (FlushMessage) msg;
+                    // a flush changes only the FsNode of the file (size, refIds). A rename may have moved
+                    // the FsNode into an other chunk: we follow its MOVED FsNode (see moveFsNode())
+                    long fsNodeId = flushMsg.getFsNode().ID;
+                    FsNodeChunk fileChunk;
+                    while (true) {
+                        nodeLocked = nodeLocks.lock(String.valueOf(fsNodeId));
+                        fileChunk = new FsNodeChunk(fsNodeId);
+                        chunkS.get().get(fileChunk);
+                        if (fileChunk.getID() == ChunkID.INVALID_ID || fileChunk.get().type != FsNodeType.MOVED) break;
+                        fsNodeId = fileChunk.get().forwardId;
+                        nodeLocks.unlock(nodeLocked);
+                        nodeLocked = null;
+                    }
+                    response = externalHandleFlush(flushMsg, fileChunk);
+                    break;
+                case InvalidateMessage.TAG:
+                    // the namespace peer has changed a path we watch
+                    externalHandleInvalidate((InvalidateMessage) msg);
+                    break;
+                case WatchMessage.TAG:
+                    // an other peer has given a lease
+                    externalHandleWatch((WatchMessage) msg);
+                    break;
+                default:
+                    LOG.error("no handler for message subtype %d", msg.getSubtype());
             }
-            */
+        } catch (RuntimeException e) {
+            LOG.error("handling message subtype %d failed: %s", msg.getSubtype(), e);
+            response = failResponse(msg, "fail. " + e);
+        } finally {
+            nodeLocks.unlock(nodeLocked);
+            pathLocks.unlock(locked);
+        }
+        respond(response);
+    }
 
-            if (dxnetInit.cmh.gotResult()) {
-                CreateMessage msg = (CreateMessage) dxnetInit.cmh.Result();
-                CreateMessage response = externalHandleCreate(msg);
-                try {
-                    dxnetInit.getDxNet().sendMessage(response);
-                } catch (NetworkException e) {
-                    e.printStackTrace();
-                }
+    private void respond(Message response) {
+        if (response != null) {
+            try {
+                dxnetInit.getDxNet().sendMessage(response);
+            } catch (NetworkException e) {
+                e.printStackTrace();
             }
+        }
+    }
 
-            if (dxnetInit.fsnodemh.gotResult()) {
-                FsNodeMessage msg = (FsNodeMessage) dxnetInit.fsnodemh.Result();
-                FsNodeMessage response = externalHandleFsNode(msg);
-                //LOG.debug(response.get_fsNode().name);
-                try {
-                    dxnetInit.getDxNet().sendMessage(response);
-                } catch (NetworkException e) {
-                    e.printStackTrace();
-                }
-            }
+    /**
+     * create, mkdirs, delete and rename change the entries of folders with get-modify-put. The peer
+     * of the root FsNode does them for all peers: its pathLocks guard each folder, its pathCache and
+     * leases are always up to date and it tells the other peers about the changes (see invalidate()).
+     * An other peer passes such a request to it and the response back to the requesting node.
+     * A flush goes there, too: its nodeLocks serialize it with a rename, which moves the FsNode of the
+     * file (see moveFsNode()). The data takes one more hop, but new blocks are still placed for us.
+     *
+     * @param msg
+     * @return true, if msg was handled by the namespace peer
+     */
+    private boolean forwardToNamespacePeer(Message msg) {
+        switch (msg.getSubtype()) {
+            case CreateMessage.TAG:
+            case MkDirsMessage.TAG:
+            case DeleteMessage.TAG:
+            case RenameToMessage.TAG:
+            case FlushMessage.TAG:
+                break;
+            default:
+                return false;
+        }
+        short peer = namespacePeer();
+        if (peer < 0 || peer == nopeConfig.nodeId) return false;
+
+        Request copy;
+        switch (msg.getSubtype()) {
+            case CreateMessage.TAG:
+                copy = new CreateMessage(peer, ((CreateMessage) msg).getData());
+                break;
+            case MkDirsMessage.TAG:
+                copy = new MkDirsMessage(peer, ((MkDirsMessage) msg).get_data());
+                break;
+            case DeleteMessage.TAG:
+                DeleteMessage deleteMsg = (DeleteMessage) msg;
+                copy = new DeleteMessage(peer, deleteMsg.getData(), deleteMsg.isRecursive());
+                break;
+            case FlushMessage.TAG:
+                copy = ((FlushMessage) msg).forward(peer, bootS.getNodeID());
+                break;
+            default:
+                RenameToMessage renameMsg = (RenameToMessage) msg;
+                copy = new RenameToMessage(peer, renameMsg.getData(), renameMsg.getToData());
+        }
 
-            if (dxnetInit.fsnodeByIdmh.gotResult()) {
-                FsNodeByIdMessage msg = (FsNodeByIdMessage) dxnetInit.fsnodeByIdmh.Result();
-                FsNodeByIdMessage response = externalHandleFsNodeById(msg);
-                try {
-                    dxnetInit.getDxNet().sendMessage(response);
-                } catch (NetworkException e) {
-                    e.printStackTrace();
-                }
-            }
-            
-            if (dxnetInit.bimh.gotResult()) {
-                BlockinfoMessage msg = (BlockinfoMessage) dxnetInit.bimh.Result();
-                BlockinfoMessage response = externalHandleBlockinfo(msg);
-                try {
-                    dxnetInit.getDxNet().sendMessage(response);
-                } catch (NetworkException e) {
-                    e.printStackTrace();
-                }
+        Message response;
+        try {
+            dxnetInit.getDxNet().sendSync(copy, DxramFsConfig.RPC_TIMEOUT, true);
+            if (msg.getSubtype() == FlushMessage.TAG) {
+                response = new FlushOkMessage((FlushMessage) msg, copy.getResponse(FlushOkMessage.class).getSuccess());
+            } else {
+                StatusResponse res = copy.getResponse(StatusResponse.class);
+                response = new StatusResponse((Request) msg, res.getData(), res.getValue());
             }
+        } catch (NetworkException e) {
+            LOG.error("forward message subtype %d to node 0x%X failed: %s", msg.getSubtype(), peer, e.getMessage());
+            response = failResponse(msg, "fail. namespace peer: " + e.getMessage());
+        }
+        if (msg.getSubtype() == FlushMessage.TAG) {
+            // dxnet has sent the data: the array is free for the next message
+            BlockPool.release(((FlushMessage) msg).getBlock()._data);
+        }
+        respond(response);
+        return true;
+    }
 
+    /**
+     * @return the dxnet node of the peer, which owns the root FsNode or -1, if it has no dxnet mapping
+     */
+    private short namespacePeer() {
+        InetSocketAddress nodeDetail = bootS.getNodeAddress(lookS.getPrimaryPeer(ROOT_CID));
+        return nopeConfig.dxnetNodeOf(
+            nodeDetail.getHostString(), nodeDetail.getAddress().getHostAddress(), nodeDetail.getPort()
+        );
+    }
 
+    /**
+     * the response to a request, whose handler has thrown: the requesting node gets a fail
+     * and not a timeout.
+     *
+     * @param msg the request
+     * @param back the fail status
+     * @return the response or null, if msg is no request of DxramFs
+     */
+    private Message failResponse(Message msg, String back) {
+        switch (msg.getSubtype()) {
+            case ExistsMessage.TAG:
+            case IsDirectoryMessage.TAG:
+            case FileLengthMessage.TAG:
+            case ListMessage.TAG:
+            case MkDirsMessage.TAG:
+            case CreateMessage.TAG:
+            case DeleteMessage.TAG:
+            case RenameToMessage.TAG:
+                return new StatusResponse((Request) msg, back, -1);
+            case ListStatusMessage.TAG:
+                return new ListStatusResponse((Request) msg, back);
+            case FsNodeMessage.TAG:
+            case FsNodeByIdMessage.TAG:
+                return new FsNodeResponse((Request) msg, back, null);
+            case BlockLocationsMessage.TAG:
+                return new BlockLocationsResponse((Request) msg, back);
+            case AskBlockMessage.TAG:
+                GetBlockMessage blockResponse = new GetBlockMessage((AskBlockMessage) msg);
+                blockResponse.setSuccess(false);
+                return blockResponse;
+            case FlushMessage.TAG:
+                return new FlushOkMessage((FlushMessage) msg, false);
+            default:
+                return null;
+        }
+    }
 
+    // ------------------------------------------------------------------------------------------------
 
+    private void enlarge(FsNodeChunk nodeChunk) {
+        enlarge(nodeChunk, null, bootS.getNodeID());
+    }
 
-            /* dxnetInit.flush Ok Mh :  only hadoop code got such messages !!
-             */ 
-            
-            if (dxnetInit.flushMh.dataMsg != null) {
-                // @todo did we really copying?
-                FsNode fsnode = dxnetInit.flushMh.dataMsg.getFsNode();
-                Blockinfo bli = dxnetInit.flushMh.dataMsg.getBlockinfo();
-                Block bl = dxnetInit.flushMh.dataMsg.getBlock();
-                short dest = dxnetInit.askBlockmh.askMsg.getSource();
-                
-                // @todo handle EXT ----------------------- !!
-                
-                FsNodeChunk fsnodeChunk = new FsNodeChunk(fsnode.ID);
-                chunkS.get().get(fsnodeChunk);
-                FsNode a = fsnodeChunk.get();
-                a.size = fsnode.size;
-                fsnodeChunk.set(a);
-                
-                BlockinfoChunk bliChunk = new BlockinfoChunk(bli.ID);
-                chunkS.get().get(bliChunk);
-                bliChunk.get().length = bli.length;
-                
-                BlockChunk blChunk = new BlockChunk(bl.ID);
-                chunkS.get().get(blChunk);
-                blChunk.get()._data = bl._data; // @todo clone() ?
-                
-                // @todo handle more possible fails better
-                chunkS.put().put(fsnodeChunk, bliChunk, blChunk);
-
-                // if Blockinfo offset not equal fsnode.size/DxramFsConfig.file_blocksize -> add a new block
-                
-                int newRefId = (int) (fsnodeChunk.get().size/(long)DxramFsConfig.file_blocksize);
-                if (
-                    // the block is full AND
-                    (bliChunk.get().length == DxramFsConfig.file_blocksize) &&
-                    // it is the last block of the file AND
-                    ( newRefId == (bliChunk.get().offset +1) ) &&
-                    // e.g. the new calculated refId is 1 (= we need 2 blocks to store) but we have only 1 (=refSize) blocks
-                    (newRefId == fsnodeChunk.get().refSize)
-                ) {
-                    // @todo handle more possible fails better
-                    enlarge(fsnodeChunk);
-                }
-
-                dxnetInit.flushMh.dataMsg = null;
-                FlushOkMessage response = null;
-                
-                // @todo handle more possible fails better
-                if (blChunk.getID() == ChunkID.INVALID_ID) {
-                    response = new FlushOkMessage(dest, false);
-                } else {
-                    response = new FlushOkMessage(dest, true);
-                }
-                try {
-                    dxnetInit.getDxNet().sendMessage(response);
-                } catch (NetworkException e) {
-                    e.printStackTrace();
-                }
-            }
+    /**
+     * adds a new block to the file. Without data it gets no BlockChunk (INVALID_ID): the first
+     * flush creates it with the size of the flushed bytes (see externalHandleFlush()).
+     *
+     * @param nodeChunk FsNode of the file
+     * @param data the first bytes of the new block or null
+     * @param near dxram node id of the peer, which got the data from the client (see BlockPlacement)
+     */
+    private void enlarge(FsNodeChunk nodeChunk, byte[] data, short near) {
+        // the new block goes into the last FsNode of the chain. If it is full, we add an EXT FsNode
+        FsNodeChunk last = walk(nodeChunk, Integer.MAX_VALUE);
+        if (last.get().refSize >= last.get().refIds.length) {
+            last = appendExt(nodeChunk, last);
+        }
+        int refSize = last.get().refSize;
+        int index = firstRef(last) + refSize;
+
+        long blockId = DxramFsConfig.INVALID_ID;
+        if (data != null) {
+            // the data goes to the peer of the placement strategy. The BlockChunk grows with the flushes (see blockCapacity())
+            BlockChunk bloch = new BlockChunk();
+            bloch.get()._data = Arrays.copyOf(data, blockCapacity(data.length));
+            bloch.setHeader(nodeChunk.get().stamp, index);
+            blockId = chunkCreate(bloch, placement.choose(nodeChunk.getID(), index, onlinePeers(), near));
+            LOG.debug("Create Block on Chunk [%s]", String.format("0x%X", blockId));
+        }
 
+        // the FsNode is the block table: the BlockChunk id and the used bytes of the block.
+        // The owner is not stored: we ask dxram for it, if a client needs it (see withOwners())
+        FsNode f = last.get();
+        f.refIds[refSize] = blockId;
+        f.blockLengths[refSize] = data == null ? 0 : data.length; // INT -> 2GB int limit!?
+        f.refSize++;
+        last.set(f);
+        chunkS.put().put(last);
+    }
 
+    /**
+     * @param node file, folder or EXT FsNode
+     * @return index of the first block (or folder entry) in node
+     */
+    private static int firstRef(FsNodeChunk node) {
+        // an EXT stores the index of its first block (or entry) as size
+        return node.get().type == FsNodeType.EXT ? (int) node.get().size : 0;
+    }
 
+    /**
+     * @return blocks (or entries) in the file (or folder) FsNode itself. An EXT holds ref_ids_each_fsnode
+     */
+    private static int headRefs() {
+        return DxramFsConfig.head_ref_ids > 0 ? DxramFsConfig.head_ref_ids : DxramFsConfig.ref_ids_each_fsnode;
+    }
 
+    /**
+     * @param index of a block (or folder entry)
+     * @return number of the FsNode in the chain (0 = the file or folder itself), which holds index
+     */
+    private static int chainNumber(int index) {
+        int head = headRefs();
+        return index < head ? 0 : 1 + (index - head) / DxramFsConfig.ref_ids_each_fsnode;
+    }
 
+    /**
+     * @param k number of the FsNode in the chain
+     * @return index of its first block (or folder entry)
+     */
+    private static int chainFirst(int k) {
+        return k == 0 ? 0 : headRefs() + (k - 1) * DxramFsConfig.ref_ids_each_fsnode;
+    }
 
+    /**
+     * the FsNode of the file chain (the file itself or an EXT), which holds the block with index.
+     *
+     * @param fileNode FsNode of the file
+     * @param index of the block
+     * @return null, if the chain is too short
+     */
+    private FsNodeChunk blockNode(FsNodeChunk fileNode, int index) {
+        int k = chainNumber(index);
+        FsNodeChunk node = walk(fileNode, k);
+        if (firstRef(node) != chainFirst(k)) return null;
+        return node;
+    }
 
-            // @todo: andere Message Handler beifügen - ggf array oder so machen?
+    /**
+     * @param fileNode FsNode of the file
+     * @return number of blocks in the chain of the file
+     */
+    private int blockCount(FsNodeChunk fileNode) {
+        FsNodeChunk last = walk(fileNode, Integer.MAX_VALUE);
+        return firstRef(last) + last.get().refSize;
+    }
 
-            //chunkS.get().get(ROOTN);
-            //LOG.debug(String.valueOf(ROOTN.get().refSize));
-            //ROOTN.get().refSize += myNodePeerConfig.nodeId;
-            //chunkS.put().put(ROOTN);
+    /**
+     * gets EXT number k (0 = the file itself) of a file or folder. It starts at the nearest EXT of the
+     * extIndex and follows the forwardId only from there.
+     *
+     * @param fileNode FsNode of the file or folder. We return this object for k = 0
+     * @param k number of the EXT
+     * @return EXT k or the last FsNode of the chain, if it is shorter
+     */
+    private FsNodeChunk walk(FsNodeChunk fileNode, int k) {
+        long fileId = fileNode.getID();
+        int known = Math.min(k, extIndex.size(fileId));
+        FsNodeChunk node = fileNode;
+        if (known > 0) {
+            node = new FsNodeChunk(extIndex.get(fileId, known));
+            chunkS.get().get(node);
+            if (
+                node.getID() == ChunkID.INVALID_ID ||
+                node.get().type != FsNodeType.EXT ||
+                node.get().size != chainFirst(known)
+            ) {
+                // the file was deleted (by an other peer) and the chunkids are used again
+                extIndex.forget(fileId);
+                node = fileNode;
+                known = 0;
+            }
         }
+        while (known < k) {
+            FsNode n = node.get();
+            // a FsNode without EXT links to itself
+            if (n.forwardId == n.ID || n.forwardId == ChunkID.INVALID_ID) break;
+            node = new FsNodeChunk(n.forwardId);
+            chunkS.get().get(node);
+            known++;
+            LOG.debug("walk: Need Chunk [%s] as EXT FsNode", String.format("0x%X", node.getID()));
+            extIndex.add(fileId, known, node.getID());
+        }
+        return node;
     }
 
+    /**
+     * adds an EXT FsNode for more blocks (or folder entries) behind the full FsNode last.
+     *
+     * @param fileNode FsNode of the file or folder
+     * @param last the last FsNode of the chain
+     * @return the new EXT
+     */
+    private FsNodeChunk appendExt(FsNodeChunk fileNode, FsNodeChunk last) {
+        FsNodeChunk ext = new FsNodeChunk();
+        // the EXT has no name of its own
+        FsNode e = ext.get();
+        e.init();
+        if (fileNode.get().type == FsNodeType.FILE) {
+            // like the file: the used bytes of the blocks instead of the name hashes
+            e.refHashes = new int[0];
+            e.blockLengths = new int[DxramFsConfig.ref_ids_each_fsnode];
+        }
+        chunkCreate(ext);
+
+        e.type = FsNodeType.EXT;
+        e.backId = last.getID();
+        e.forwardId = ext.getID(); // to self: the end of the chain
+        e.size = firstRef(last) + last.get().refSize; // index of the first block (or entry)
+        e.refSize = 0;
+        ext.set(e);
+
+        FsNode l = last.get();
+        l.forwardId = ext.getID();
+        last.set(l);
+        chunkS.put().put(ext, last);
+
+        int k = chainNumber((int) e.size);
+        LOG.debug("Create EXT %d of %s on Chunk [%s]", k, fileNode.get().name, String.format("0x%X", ext.getID()));
+        extIndex.add(fileNode.getID(), k, ext.getID());
+        return ext;
+    }
 
+    /**
+     * fills blockOwners of a file (or EXT) FsNode for a client: it gets the blocks from their
+     * owners without asking us for each block.
+     *
+     * @param fsnode or null
+     * @return fsnode
+     */
+    private FsNode withOwners(FsNode fsnode) {
+        if (fsnode == null || fsnode.type == FsNodeType.FOLDER) return fsnode;
+        fsnode.blockOwners = new short[fsnode.refSize];
+        for (int i = 0; i < fsnode.refSize; i++) {
+            if (fsnode.refIds[i] == DxramFsConfig.INVALID_ID) {
+                // the block is not flushed yet: it has no BlockChunk and no owner
+                fsnode.blockOwners[i] = -1;
+                continue;
+            }
+            // the BlockChunk may have moved: we ask dxram for the owner
+            InetSocketAddress nodeDetail = bootS.getNodeAddress(lookS.getPrimaryPeer(fsnode.refIds[i]));
+            fsnode.blockOwners[i] = nopeConfig.dxnetNodeOf(
+                nodeDetail.getHostString(), nodeDetail.getAddress().getHostAddress(), nodeDetail.getPort()
+            );
+        }
+        return fsnode;
+    }
 
+    /**
+     * a small file stores its data in the FsNode. If it needs a block, this data becomes its first block.
+     *
+     * @param nodeChunk FsNode of the file
+     * @param near dxram node id of the peer, which got the flush from the client
+     */
+    private void promote(FsNodeChunk nodeChunk, short near) {
+        FsNode f = nodeChunk.get();
+        if (f.type != FsNodeType.FILE || f.refSize > 0) return;
+        int length = (int) Math.min(f.size, f.inline.length);
+        LOG.debug("promote %d inline bytes of FsNode [%s] to a block", length, String.format("0x%X", nodeChunk.getID()));
+        enlarge(nodeChunk, Arrays.copyOf(f.inline, length), near);
+    }
 
+    /**
+     * get a fresh copy of the root FsNode. Every worker needs its own, because a chunk
+     * object is not thread safe.
+     * @return
+     */
+    private FsNodeChunk getRoot() {
+        FsNodeChunk root = new FsNodeChunk(ROOT_CID);
+        chunkS.get().get(root);
+        return root;
+    }
 
+    /**
+     * get the FsNode of path. Known paths (and folders on the way) come from the pathCache,
+     * the others we search with getIn(). A cached chunkid is checked by the name and the parent
+     * (backId) of the FsNode, which we have to get anyway: an other peer may have renamed or
+     * deleted it without invalidating our cache.
+     *
+     * @param path
+     * @return the FsNode or null, if it not exists
+     */
+    private FsNodeChunk resolve(String path) {
+        String[] pathparts = PathCache.parts(path);
+        long generation = pathCache.generation();
+        FsNodeChunk subNode = getRoot();
+        String prefix = "";
+        for (int i = 0; i < pathparts.length; i++) {
+            prefix = i == 0 ? pathparts[i] : prefix + "/" + pathparts[i];
+            long subChunkId = pathCache.get(prefix);
+            if (subChunkId != ChunkID.INVALID_ID) {
+                FsNodeChunk cached = new FsNodeChunk(subChunkId);
+                chunkS.get().get(cached);
+                if (
+                    cached.getID() != ChunkID.INVALID_ID &&
+                    pathparts[i].equals(cached.get().name) &&
+                    cached.get().backId == subNode.getID()
+                ) {
+                    subNode = cached;
+                    continue;
+                }
+                LOG.debug("resolve: drop stale cache entry '%s'", prefix);
+                pathCache.invalidate(prefix, true);
+                generation = pathCache.generation();
+            }
+            subChunkId = getIn(pathparts[i], subNode);
+            if (subChunkId == ChunkID.INVALID_ID) return null;
+            subNode = new FsNodeChunk(subChunkId);
+            chunkS.get().get(subNode);
+            if (subNode.getID() == ChunkID.INVALID_ID) return null;
+            pathCache.put(prefix, subChunkId, generation);
+        }
+        return subNode;
+    }
 
+    /**
+     * a deleted or renamed path: drop it from the pathCache and send an InvalidateMessage
+     * to all hadoop nodes (and peers, see WatchMessage) with a lease on it.
+     *
+     * @param path
+     * @param folder true, if the paths below are invalid, too
+     */
+    private void invalidate(String path, boolean folder) {
+        pathCache.invalidate(path, folder);
+        notifyLeaseHolders(path, folder);
+    }
 
+    /**
+     * the size of a FsNode has changed by a flush: the hadoop nodes (and peers) with a lease on it
+     * must get it again. Without a lease nobody is told.
+     *
+     * @param fsNodeId
+     */
+    private void flushed(long fsNodeId) {
+        String leasedPath = leases.pathOf(fsNodeId);
+        if (leasedPath != null) {
+            notifyLeaseHolders(leasedPath, false);
+        }
+    }
 
+    /**
+     * the namespace peer has changed a path, on which we have given a lease: we drop it from the
+     * pathCache and notify the hadoop nodes with a lease of us.
+     */
+    private void externalHandleInvalidate(InvalidateMessage msg) {
+        pathCache.invalidate(msg.getData(), msg.isSubtree());
+        notifyLeaseHolders(msg.getData(), msg.isSubtree());
+    }
 
+    /**
+     * an other peer has given a lease on a path: we tell it about the changes of the path (see invalidate()).
+     */
+    private void externalHandleWatch(WatchMessage msg) {
+        leases.grant(msg.getData(), msg.getFsNodeId(), msg.getSource(), msg.getLeaseMs());
+    }
 
+    /**
+     * ends the leases on path. Each holder gets a single InvalidateMessage, which the notifier sends:
+     * the caller may hold locks.
+     */
+    private void notifyLeaseHolders(String path, boolean subtree) {
+        for (short nodeId : leases.revoke(path, subtree)) {
+            if (nodeId == nopeConfig.nodeId) continue;
+            send(new InvalidateMessage(nodeId, path, subtree));
+        }
+    }
 
-    // ------------------------------------------------------------------------------------------------
-
-
-
+    /**
+     * sends a message without a response in the notifier thread.
+     */
+    private void send(Message msg) {
+        notifier.execute(() -> {
+            try {
+                dxnetInit.getDxNet().sendMessage(msg);
+            } catch (NetworkException e) {
+                // the lease ends anyway
+                LOG.warn("message subtype %d to node 0x%X failed: %s", msg.getSubtype(), msg.getDestination(), e.getMessage());
+            }
+        });
+    }
 
+    /**
+     * Get the ChunkId of a FsNode with "name" in FsNode (a folder) or -1, if it not exists.
+     * The name hash index of the folder (see entriesOf()) gives the entries with the same hash:
+     * we get only these FsNodes (in a single get) and not the EXT FsNodes of the folder.
+     *
+     * @param name
+     * @param nodeChunk
+     * @return
+     */
+    // handles EXT
+    private long getIn(String name, FsNodeChunk nodeChunk) {
+        // handle some specials about the root entry
+        if (name.equals("") || name.equals("/")) {
+            return ROOT_CID;
+        }
+        // a file has no entries
+        if (nodeChunk.get().type != FsNodeType.FOLDER) return ChunkID.INVALID_ID;
 
+        long[] ids = entriesOf(nodeChunk).find(FsNode.nameHash(name));
+        FsNodeChunk[] entryChunks = new FsNodeChunk[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            entryChunks[i] = new FsNodeChunk(ids[i]);
+        }
+        FsNodeChunk.getAll(chunkS, entryChunks);
+        for (FsNodeChunk entryChunk : entryChunks) {
+            LOG.debug("getIn: is '" + entryChunk.get().name + "' == '" + name + "' ?");
+            if (entryChunk.getID() != ChunkID.INVALID_ID && name.equals(entryChunk.get().name)) {
+                return entryChunk.getID();
+            }
+        }
+        return ChunkID.INVALID_ID;
+    }
 
+    /**
+     * the name hash index of a folder. A large folder (with EXT FsNodes) has it in the folderIndex, as long
+     * as its stamp does not change. Otherwise we build it from the refHashes of the chain: once for each change
+     * of the folder and not for each lookup. A folder without EXT is not cached: it has all entries itself.
+     *
+     * @param folderNode
+     * @return
+     */
+    private FolderIndex.Entries entriesOf(FsNodeChunk folderNode) {
+        FsNode f = folderNode.get();
+        // a FsNode without EXT links to itself
+        boolean chain = f.forwardId != f.ID && f.forwardId != ChunkID.INVALID_ID;
+        if (chain) {
+            FolderIndex.Entries cached = folderIndex.get(folderNode.getID(), f.stamp);
+            if (cached != null) return cached;
+        }
 
+        int size = 0;
+        int[] hashes = new int[Math.max(f.refSize, (int) Math.min(f.size, Integer.MAX_VALUE - 8))];
+        long[] ids = new long[hashes.length];
+        FsNodeChunk part = folderNode;
+        while (true) {
+            FsNode p = part.get();
+            if (size + p.refSize > hashes.length) {
+                hashes = Arrays.copyOf(hashes, size + p.refSize);
+                ids = Arrays.copyOf(ids, size + p.refSize);
+            }
+            System.arraycopy(p.refHashes, 0, hashes, size, p.refSize);
+            System.arraycopy(p.refIds, 0, ids, size, p.refSize);
+            size += p.refSize;
+            if (p.forwardId == p.ID || p.forwardId == ChunkID.INVALID_ID) break;
+            part = new FsNodeChunk(p.forwardId);
+            chunkS.get().get(part);
+            if (part.getID() == ChunkID.INVALID_ID) break;
+            LOG.debug("entriesOf: Need Chunk [%s] as EXT FsNode", String.format("0x%X", part.getID()));
+        }
+        FolderIndex.Entries entries = new FolderIndex.Entries(f.stamp, hashes, ids, size);
+        if (chain) folderIndex.put(folderNode.getID(), entries);
+        return entries;
+    }
 
+    /**
+     * @return a new stamp of a FsNode (see FsNode.stamp)
+     */
+    private static long newStamp() {
+        return ThreadLocalRandom.current().nextLong();
+    }
 
+    /**
+     * adds an entry with its name hash to a folder and puts the folder.
+     * The entry goes into the last FsNode of the chain. If it is full, we add an EXT FsNode.
+     *
+     * @param parentNode
+     * @param entryId
+     * @param name
+     */
+    private void addEntry(FsNodeChunk parentNode, long entryId, String name) {
+        FsNodeChunk last = walk(parentNode, Integer.MAX_VALUE);
+        if (last.get().refSize >= last.get().refIds.length) {
+            last = appendExt(parentNode, last);
+        }
+        FsNode l = last.get();
+        int refSize = l.refSize;
+        int hash = FsNode.nameHash(name);
+        l.refIds[refSize] = entryId;
+        l.refHashes[refSize] = hash;
+        l.refSize++;
+        last.set(l);
+
+        FsNode f = parentNode.get();
+        f.size++;
+        long oldStamp = f.stamp;
+        f.stamp = newStamp();
+        parentNode.set(f);
+        folderIndex.added(parentNode.getID(), oldStamp, f.stamp, hash, entryId);
 
-    private void enlarge(FsNodeChunk nodeChunk) {
-        // @todo: handles EXT
-        BlockinfoChunk binch = new BlockinfoChunk();
-        binch.get().init();
-        chunkCreate(binch);
-        LOG.debug("Create Blockinfo on Chunk [%s]", String.format("0x%X", binch.getID()));
-        
-        // @todo: handles EXT
-        int refSize = nodeChunk.get().refSize;
-        FsNode f = nodeChunk.get();
-        f.refIds[refSize] = binch.getID(); // add the single Blockinfo as chunkid
-        f.refSize++;
-        nodeChunk.set(f);
-        chunkS.put().put(nodeChunk);
-        
-        binch.get().offset = (int)(nodeChunk.get().size/(long)DxramFsConfig.file_blocksize);
-        binch.get().length = 0; // store how many byte did we need from this block? INT -> 2GB int limit!?
-        binch.get().corrupt = false;
+        // @todo error handling
+        if (last == parentNode) {
+            chunkS.put().put(parentNode);
+        } else {
+            chunkS.put().put(parentNode, last);
+        }
+    }
 
-        BlockChunk bloch = new BlockChunk();
-        bloch.get().init();
-        chunkCreate(bloch);
-        LOG.debug("Create Block on Chunk [%s]", String.format("0x%X", bloch.getID()));
+    /**
+     * removes an entry from a folder and puts the folder. The last entry of the chain fills
+     * the gap, thus all FsNodes of the chain but the last one stay full.
+     *
+     * @param parentNode
+     * @param entryId
+     * @return false, if the entry is not in the folder
+     */
+    private boolean removeEntry(FsNodeChunk parentNode, long entryId) {
+        FsNodeChunk node = parentNode;
+        int slot = -1;
+        for (int k = 0; slot < 0; k++) {
+            if (k > 0) {
+                node = walk(parentNode, k);
+                if (firstRef(node) != chainFirst(k)) return false;
+            }
+            FsNode n = node.get();
+            for (int i = 0; i < n.refSize; i++) {
+                if (n.refIds[i] == entryId) {
+                    slot = i;
+                    break;
+                }
+            }
+        }
 
-        binch.get().storageId = bloch.getID();
+        FsNodeChunk last = walk(parentNode, Integer.MAX_VALUE);
+        if (last.getID() == node.getID()) last = node;
+        FsNode n = node.get();
+        FsNode l = last.get();
+        int hash = n.refHashes[slot];
+        // write last entry to the position, we want to delete
+        l.refSize--;
+        n.refIds[slot] = l.refIds[l.refSize];
+        n.refHashes[slot] = l.refHashes[l.refSize];
+        // overwrite last entry with INVALID to set it free
+        l.refIds[l.refSize] = ChunkID.INVALID_ID;
+        l.refHashes[l.refSize] = 0;
+
+        FsNode f = parentNode.get();
+        f.size--;
+        long oldStamp = f.stamp;
+        f.stamp = newStamp();
+        folderIndex.removed(parentNode.getID(), oldStamp, f.stamp, hash, entryId);
 
-        // later we should fill this values dynamically on request!!
-        
-        short blockOwningPeer = lookS.getPrimaryPeer(bloch.getID());
-        InetSocketAddress nodeDetail = bootS.getNodeAddress(blockOwningPeer);
-        
-        // later you have to map this dxram host+addr+port to dxnet host+addr+port
-        
-        binch.get().host = nodeDetail.getHostString(); // hostname or alternative the ip address
-        binch.get().addr = nodeDetail.getAddress().getHostAddress(); // the ip address as string!
-        binch.get().port = nodeDetail.getPort();
-        LOG.debug(
-            "BlockChunk [%s] is on %s (%s:%d)",
-            String.format("0x%X", bloch.getID()),
-            binch.get().host,
-            binch.get().addr,
-            binch.get().port
-        );
-        
-        chunkS.put().put(binch);
+        // @todo error handling
+        if (node == parentNode && last == parentNode) {
+            chunkS.put().put(parentNode);
+        } else if (node == parentNode || last == node) {
+            chunkS.put().put(parentNode, last);
+        } else if (last == parentNode) {
+            chunkS.put().put(parentNode, node);
+        } else {
+            chunkS.put().put(parentNode, node, last);
+        }
+        return true;
     }
 
     /**
-     * Get the ChunkId of a FsNode with "name" in FsNode (a folder) or -1, if it not exists
-     * @param name
-     * @param nodeChunk
-     * @return
+     * gets the FsNodes of the entries from, ..., to-1 of a folder in batches (see FsNodeChunk.getAll()).
+     *
+     * @param folderNode
+     * @param from index of the first entry
+     * @param to index behind the last entry
+     * @return the entries. Less than to-from, if the folder has less entries
      */
-    // handles EXT
-    private long getIn(String name, FsNodeChunk nodeChunk) {
-        // nodeChunk is a folder and we do not believe it needs "long" to count the files in it!
-        int size = (int) nodeChunk.get().size; 
-        String nname = new String(name.getBytes(DxramFsConfig.STRING_STD_CHARSET));
-        int charCount = 0;
-        int extCount = 0;
-        int indexInExt = 0;
-        FsNodeChunk getRefsIn = nodeChunk;
-        
-        // handle some specials about the root entry
-        if (name.equals("") || name.equals("/")) {
-            return ROOT_CID;
-        }
-        
-        for (int i=0; i<size; i++) {
-            indexInExt = i - extCount * DxramFsConfig.ref_ids_each_fsnode;
-            if (indexInExt < DxramFsConfig.ref_ids_each_fsnode) {
-                long entryChunkId = getRefsIn.get().refIds[indexInExt];
-                FsNodeChunk entryChunk = new FsNodeChunk(entryChunkId);
-                chunkS.get().get(entryChunk);
-                FsNode e = entryChunk.get();
-                LOG.debug("getIn: is '" + e.name + "' == '" + nname + "' ?");
-                
-                if (nname.equals(e.name)) {
-                    return entryChunkId;
-                }
-            } else {
-                getRefsIn = new FsNodeChunk(getRefsIn.get().forwardId);
-                chunkS.get().get(getRefsIn);
-                LOG.debug("getIn: Need Chunk [%s] as EXT FsNode", String.format("0x%X", getRefsIn.getID()));
-                extCount++;
-                i--;
+    private FsNodeChunk[] getEntries(FsNodeChunk folderNode, int from, int to) {
+        FsNodeChunk[] entryChunks = new FsNodeChunk[Math.max(0, to - from)];
+        FsNodeChunk part = null;
+        for (int i = from; i < to; i++) {
+            if (part == null || i - firstRef(part) == part.get().refIds.length) {
+                int k = chainNumber(i);
+                part = walk(folderNode, k);
+                if (firstRef(part) != chainFirst(k)) part = null;
             }
+            if (part == null || i - firstRef(part) >= part.get().refSize) {
+                entryChunks = Arrays.copyOf(entryChunks, i - from);
+                break;
+            }
+            entryChunks[i - from] = new FsNodeChunk(part.get().refIds[i - firstRef(part)]);
         }
-        return ChunkID.INVALID_ID;
+        FsNodeChunk.getAll(chunkS, entryChunks);
+        return entryChunks;
     }
 
     // handles EXT
@@ -583,25 +1077,12 @@ public class DxramFsApp extends AbstractApplication {
     
     // handles EXT
     private String[] list(String path, int startidx, int maxJoinChars) {
-        String[] pathparts = path.split("/");
-        FsNodeChunk subNode = ROOTN;
-        long subChunkId = ROOT_CID;
-        chunkS.get().get(subNode);
-        FsNode s = subNode.get();
-        if (s.size < 1) { // FS is empty
+        FsNodeChunk subNode = resolve(path);
+        if (subNode == null) {
+            // @todo how to handle "not exists" ?!
             return null;
-        } else {
-            for (int i=0; i < pathparts.length; i++) {
-                subChunkId = getIn(pathparts[i], subNode);
-                if (subChunkId == ChunkID.INVALID_ID) {
-                    // @todo how to handle "not exists" ?!
-                    return null;
-                }
-                subNode = new FsNodeChunk(subChunkId);
-                chunkS.get().get(subNode);
-            }
-            return list(subNode, startidx, maxJoinChars);
         }
+        return list(subNode, startidx, maxJoinChars);
     }
 
     // handles EXT
@@ -619,28 +1100,21 @@ public class DxramFsApp extends AbstractApplication {
         }
         ArrayList<String> entries = new ArrayList<>();
         int charCount = 0;
-        int extCount = 0;
-        int indexInExt = 0;
-        FsNodeChunk getRefsIn = subNode;
-        for (int i=startidx; i<size; i++) {
-            indexInExt = i - extCount * DxramFsConfig.ref_ids_each_fsnode;
-            if (indexInExt < DxramFsConfig.ref_ids_each_fsnode) {
-                long entryChunkId = getRefsIn.get().refIds[indexInExt];
-                FsNodeChunk entryChunk = new FsNodeChunk(entryChunkId);
-                chunkS.get().get(entryChunk);
+        int from = startidx;
+        while (from < size) {
+            // each name needs at least 2 chars: do not get entries, which can not be in the answer
+            int window = FsNodeChunk.GET_BATCH;
+            if (maxJoinChars > 0) window = Math.min(window, Math.max(1, (maxJoinChars - charCount) / 2));
+            FsNodeChunk[] entryChunks = getEntries(subNode, from, Math.min(from + window, size));
+            for (FsNodeChunk entryChunk : entryChunks) {
                 if (maxJoinChars > 0) {
                     charCount += entryChunk.get().name.length() +1; // +1 for "/" in "join()"
-                    if (charCount > maxJoinChars) break;
-                } 
+                    if (charCount > maxJoinChars) return entries.toArray(new String[entries.size()]);
+                }
                 entries.add(entryChunk.get().name);
-
-            } else {
-                getRefsIn = new FsNodeChunk(getRefsIn.get().forwardId);
-                chunkS.get().get(getRefsIn);
-                LOG.debug("list: Need Chunk [%s] as EXT FsNode", String.format("0x%X", getRefsIn.getID()));
-                extCount++;
-                i--;
             }
+            if (entryChunks.length < Math.min(window, size - from)) break;
+            from += entryChunks.length;
         }
 
         return entries.toArray(new String[entries.size()]);
@@ -651,156 +1125,85 @@ public class DxramFsApp extends AbstractApplication {
     private String exists(String path) {
         String back = "OK";
 
-        String[] pathparts = path.split("/");
-        LOG.debug(String.join(" , ", pathparts));
-        chunkS.get().get(ROOTN);
         if (path.length() == 0) {
             back = "OK / exists";
-        } else if (ROOTN.get().size < 1) {
-            back = "no / empty";
-        } else {
-            FsNodeChunk subNode = ROOTN;
-            for (int i=0; i < pathparts.length; i++) {
-                long subChunkId = getIn(pathparts[i], subNode);
-                if (subChunkId == ChunkID.INVALID_ID) return "no";
-                subNode = new FsNodeChunk(subChunkId);
-                chunkS.get().get(subNode);
-            }
-            // for ended without return: thus the path+file must exists!
+        } else if (resolve(path) == null) {
+            back = "no";
         }
         return back;
     }
 
-    // handles EXT
-    private FsNode getFsNode(String path) {
-        String[] pathparts = path.split("/");
-        LOG.debug(String.join(" , ", pathparts));
-        FsNodeChunk subNode = ROOTN;
-        chunkS.get().get(subNode);
-        if (path.length() == 0) {
-            return null;
-        } else if (ROOTN.get().size < 1) {
-            return null;
-        } else {
-            for (int i=0; i < pathparts.length; i++) {
-                long subChunkId = getIn(pathparts[i], subNode);
-                if (subChunkId == ChunkID.INVALID_ID) return null;
-                subNode = new FsNodeChunk(subChunkId);
-                chunkS.get().get(subNode);
-            }
-            // for ended without return: thus the path+file must exists!
-        }
-        return subNode.get();
-    }
-    
-    private String delete(String path) {
+    /**
+     * deletes a file or a folder. It only removes the entry from the parent: the reclaimer frees all FsNodes,
+     * EXT FsNodes and BlockChunks below path in the background. Thus a client deletes a large folder with
+     * a single message and does not wait for the chunks.
+     * The caller has locked path exclusive: requests below path (they lock it shared) run before or after us.
+     * A flush of a file below path may still run, until the reclaimer has marked the file (see Reclaimer.collect()).
+     *
+     * @param path
+     * @param recursive delete a folder with entries, too
+     * @return status
+     */
+    private String delete(String path, boolean recursive) {
         String back = "OK";
 
-        String[] pathparts = path.split("/");
-        LOG.debug(String.join(" , ", pathparts));
-        chunkS.get().get(ROOTN);
-        if (ROOTN.get().size < 1) {
+        FsNodeChunk rootNode = getRoot();
+        if (rootNode.get().size < 1) {
             return "OK / is still empty";
         } else {
-            FsNodeChunk subNode = ROOTN;
+            FsNodeChunk subNode = resolve(path);
+            if (subNode == null) return "no";
             FsNode s = subNode.get();
-            long subChunkId = ROOT_CID;
-            long parentId = ROOT_CID;
-            for (int i=0; i < pathparts.length; i++) {
-                subChunkId = getIn(pathparts[i], subNode);
-                if (subChunkId == ChunkID.INVALID_ID) return "no";
-                subNode = new FsNodeChunk(subChunkId);
-                chunkS.get().get(subNode);
-                s = subNode.get();
-                LOG.debug("Found " + s.name);
-                parentId = s.backId;
+            LOG.debug("Found " + s.name);
+            long subChunkId = subNode.getID();
+            long parentId = s.backId;
+            boolean folder = s.type == FsNodeType.FOLDER;
+
+            // we are root? - we do not want to delete root here
+            if (subChunkId == ROOT_CID) return "no. do not delete root";
+            if (folder && s.size > 0 && !recursive) return "no. folder is not empty";
+
+            // the parent loses the entry first: nobody finds a chunk, we free
+            FsNodeChunk parentNode = new FsNodeChunk(parentId);
+            chunkS.get().get(parentNode);
+            if (!removeEntry(parentNode, subChunkId)) {
+                LOG.debug("no [%s] in parent Chunk [%s]", String.format("0x%X", subChunkId), String.format("0x%X", parentNode.getID()));
+                return "fail finding/removing " + path + " from refIds of parent node " + parentNode.get().name;
             }
-            if (!deleteThat(subNode)) {
-                back = "no. fail on " + path;
+            invalidate(path, folder);
+            if (folder) {
+                folderIndex.forget(subChunkId);
             } else {
-                subNode = new FsNodeChunk(parentId);
-                chunkS.get().get(subNode);
-                s = subNode.get();
-                
-                // @todo EXT to handle more than ref_ids_each_fsnode entries !!!!!
-                
-                if (s.size < DxramFsConfig.ref_ids_each_fsnode) {
-                    for (int j=0; j<s.refSize; j++) {
-                        LOG.debug("refIds[%d] is Chunk [%s]", j, String.format("0x%X", s.refIds[j]));
-                        if (s.refIds[j] == subChunkId) {
-                            // resize refindex for new entry
-                            s.refSize--;
-                            // resize total size in the folder
-                            s.size--;
-                            // write last array entry to the position, we want to delete
-                            s.refIds[j] = s.refIds[s.refSize];
-                            // overwrite last array entry with INVALID to set it free
-                            s.refIds[s.refSize] = ChunkID.INVALID_ID;
-                            subNode.set(s);
-                            chunkS.put().put(subNode);
-                            return "OK";
-                        }
-                    }
-                    LOG.debug("no [%s] in parent Chunk [%s]", String.format("0x%X", subChunkId), String.format("0x%X", subNode.getID()));
-                    back = "fail finding/removing " + path + " from refIds of parent node " + s.name;
-                } else {
-                    back = "we did not handle nodes with more than ref_ids_each_fsnode entryies in it";
+                // a flush, which waits for the file, must not add blocks, after the reclaimer has collected them
+                int[] nodeLocked = nodeLocks.lock(String.valueOf(subChunkId));
+                try {
+                    chunkS.get().get(subNode);
+                    s = subNode.get();
+                    s.backId = DxramFsConfig.INVALID_ID;
+                    subNode.set(s);
+                    chunkS.put().put(subNode);
+                } finally {
+                    nodeLocks.unlock(nodeLocked);
                 }
             }
+            reclaimer.reclaim(subChunkId);
         }
         return back;
     }
-    
-    private boolean deleteThat(FsNodeChunk nodeChunk) {
-        FsNode s = nodeChunk.get();
-        long size = s.size;
-        long refSize = s.refSize;
-        LOG.debug("node size %d in %s", size, s.name);
-        
-        if (s.type == FsNodeType.FOLDER && size == 0) {
-            // it is a empty folder, we can delete it
-
-            // @todo delete all EXT ??
-            
-            // we are root? - we do not want to delete root here
-            if (nodeChunk.getID() == ROOT_CID) return false;
-            if (chunkS.remove().remove(nodeChunk.getID()) != 1) return false;
-            return true;
-        } else {
-            
-            // @todo !!!!!!!!!!!!!!!!!!! ------------------------------------------- IMPROVEMENT
-            // @todo delete FILE and handle folder and files in EXT fsNodes
-            
-            if (chunkS.remove().remove(nodeChunk.getID()) != 1) return false;
-            return true;
-        }
-        //return false;
-    }
 
     // handles EXT
     private String isDir(String path) {
         String back = "OK";
 
-        String[] pathparts = path.split("/");
-        LOG.debug(String.join(" , ", pathparts));
-        chunkS.get().get(ROOTN);
         if (path.length() == 0) {
             back = "OK / is a dir";
-        } else if (ROOTN.get().refSize < 1) {
-            back = "no / empty";
         } else {
-            FsNodeChunk subNode = ROOTN;
-            for (int i=0; i < pathparts.length; i++) {
-                long subChunkId = getIn(pathparts[i], subNode);
-                if (subChunkId == ChunkID.INVALID_ID) {
-                    return "no it does not exist";
-                }
-                subNode = new FsNodeChunk(subChunkId);
-                chunkS.get().get(subNode);
-                // the complete patch must contains folders!
-                if (subNode.get().type != FsNodeType.FOLDER) {
-                    return "no it is not a folder";
-                }
+            // only a folder has entries: if the last part is a folder, the complete path contains folders
+            FsNodeChunk subNode = resolve(path);
+            if (subNode == null) {
+                back = "no it does not exist";
+            } else if (subNode.get().type != FsNodeType.FOLDER) {
+                back = "no it is not a folder";
             }
         }
         return back;
@@ -808,304 +1211,438 @@ public class DxramFsApp extends AbstractApplication {
 
     private long mkDir(String name, FsNodeChunk parentNode) {
         FsNodeChunk newdir = new FsNodeChunk();
-        newdir.get().init();
+        newdir.get().init(headRefs());
+        // the chunk gets the capacity of the name at the create
+        newdir.get().name = name;
         chunkCreate(newdir);
         FsNode f = newdir.get();
         f.type = FsNodeType.FOLDER;
-        f.name = new String(name.getBytes(DxramFsConfig.STRING_STD_CHARSET));
+        f.name = name;
         f.backId = parentNode.getID();
         f.forwardId = newdir.getID();   // to self as dummy link
         f.size = 0;
         f.refSize = 0;
+        f.stamp = newStamp();
         newdir.set(f);
         chunkS.put().put(newdir);
         LOG.debug("Create %s on Chunk [%s]", name, String.format("0x%X", newdir.getID()));
         //LOG.debug("after put " + newdir.get().name);
 
 
-        // @todo EXT to handle more than ref_ids_each_fsnode entries !!
-        
-        f = parentNode.get();
-        int refSize = f.refSize;
-        f.refIds[refSize] = newdir.getID();
-        f.size++;
-        f.refSize++;
-
-        // @todo error handling
-        parentNode.set(f);
-        chunkS.put().put(parentNode);
+        addEntry(parentNode, newdir.getID(), f.name);
         return newdir.getID();
     }
     
     private long mkFile(String name, FsNodeChunk parentNode) {
         FsNodeChunk newf = new FsNodeChunk();
-        newf.get().init();
+        newf.get().init(headRefs());
+        // a file has no entries: instead of refHashes it has the used bytes of its blocks
+        newf.get().refHashes = new int[0];
+        newf.get().blockLengths = new int[headRefs()];
+        int inlineBytes = Math.min(DxramFsConfig.inline_file_bytes, DxramFsConfig.file_blocksize);
+        if (inlineBytes > 0) {
+            // the data of a small file
+            newf.get().inline = new byte[inlineBytes];
+        }
+        newf.get().name = name;
         chunkCreate(newf);
         FsNode f = newf.get();
         LOG.debug("Create %s on Chunk [%s]", name, String.format("0x%X", newf.getID()));
         
         f.type = FsNodeType.FILE;
-        f.name = new String(name.getBytes(DxramFsConfig.STRING_STD_CHARSET));
+        f.name = name;
         f.backId = parentNode.getID();
         f.forwardId = newf.getID();   // to self as dummy link
         f.size = 0; // count the total bytes of the file!!
         f.refSize = 0; // we create a single block with length 0 with enlarge() later
+        f.stamp = newStamp();
         // we increment the refSize of the file, if we need additional blocks
         newf.set(f);
         chunkS.put().put(newf);
-        enlarge(newf);
+        if (inlineBytes == 0) {
+            enlarge(newf);
+        }
+        // otherwise the file gets its first block, if it does not fit into the FsNode (see promote())
 
         // update directory entry
-        // @todo EXT to handle more than ref_ids_each_fsnode entries !!
-        f = parentNode.get();
-        int refSize = f.refSize;
-        f.refIds[refSize] = newf.getID();
-        f.size++;
-        f.refSize++;
-
-        // @todo error handling
-        parentNode.set(f);
-        chunkS.put().put(parentNode);
+        addEntry(parentNode, newf.getID(), f.name);
         return newf.getID();
     }
 
 
 
 
-    // @todo: rename() erzeugt den eintrag 2x !!! -> kann daran liegen, dass file loeschen noch nicht tat
-
-
-    // @todo: is this the correct behavior: /a/b exists and we want to move /c into /a/b but we did not get /a/b/c ! we get an error, that /a/b still exists!
-    // ------> HINT: this error did not happend by using the hodoop dxramfs connector, because that code handles it!
-    // ------> maybe the connector ask many "exists()" in that situation.
-    // ------> for the future: test files rename!
-    // @todo: only works with folders ?!?!
+    /**
+     * moves a file or folder: only its entry moves from the old to the new parent folder (and
+     * its name and backId change). The blocks and the entries of a folder stay where they are.
+     * Like in hdfs, "to" may be an existing folder: we move "from" into it.
+     */
     private String rename(String from, String to) {
-        String back = "OK";
         if (from.length() == 0) return "fail. / not moveable.";
-        if (exists(to).startsWith("OK")) return "fail. '"+to+"' still exists.";
-        /* @todo if "to" is a folder, we have to move a folder or file into that folder and 
-           check before, if this new structure exists,too!
-        */
-        if (!exists(from).startsWith("OK")) return "fail. '"+from+"' does not exists.";
+        FsNodeChunk fromChunk = resolve(from);
+        if (fromChunk == null) return "fail. '"+from+"' does not exists.";
+        FsNode f = fromChunk.get();
+        boolean folder = f.type == FsNodeType.FOLDER;
 
         String[] fromParts = from.split("/");
         String[] toParts = to.split("/");
-        // get the from-chunk
-        FsNodeChunk browseNode = ROOTN;
-        long browseChunkId = ROOT_CID;
-        chunkS.get().get(browseNode);
-        for (int i=0; i < fromParts.length; i++) {
-            browseChunkId = getIn(fromParts[i], browseNode);
-            browseNode = new FsNodeChunk(browseChunkId);
-            chunkS.get().get(browseNode);
-        }
-        FsNodeChunk fromChunk = browseNode;
-        FsNode f = fromChunk.get();
-        
-        // get the parent-chunk of "from"
-        FsNodeChunk oldParentChunk = new FsNodeChunk(f.backId);
-        chunkS.get().get(oldParentChunk);
-        
-        // may create (and get) parent folder of "to"-file (or folder)
-        browseNode = ROOTN;
-        browseChunkId = ROOT_CID;
-        chunkS.get().get(browseNode);
-        for (int i = 0; i < toParts.length -1; i++) {
-            // @todo: length -1 because we need the parent! but if "to" is a folder, we have to move it into the folder!
-            browseChunkId = getIn(toParts[i], browseNode);
-            if (browseChunkId == ChunkID.INVALID_ID) {
-                browseChunkId = mkDir(toParts[i], browseNode);
+        String newName;
+        String newPath;
+        FsNodeChunk toParentChunk = resolve(to);
+        if (toParentChunk != null) {
+            if (toParentChunk.get().type != FsNodeType.FOLDER) return "fail. '"+to+"' still exists.";
+            // move into the existing folder
+            newName = fromParts[fromParts.length-1];
+            newPath = to.length() == 0 ? newName : to + "/" + newName;
+            if (getIn(newName, toParentChunk) != ChunkID.INVALID_ID) return "fail. '"+newPath+"' still exists.";
+        } else {
+            // may create (and get) parent folder of "to"-file (or folder)
+            if (toParts.length == 0) return "fail. '"+to+"' is not a name.";
+            FsNodeChunk browseNode = getRoot();
+            for (int i = 0; i < toParts.length -1; i++) {
+                long browseChunkId = getIn(toParts[i], browseNode);
+                if (browseChunkId == ChunkID.INVALID_ID) {
+                    if (!FsNodeChunk.nameFits(toParts[i])) return "fail. name too long.";
+                    browseChunkId = mkDir(toParts[i], browseNode);
+                }
+                browseNode = new FsNodeChunk(browseChunkId);
+                chunkS.get().get(browseNode);
+                if (browseNode.get().type != FsNodeType.FOLDER) return "fail. '"+toParts[i]+"' is not a folder.";
             }
-            browseNode = new FsNodeChunk(browseChunkId);
-            chunkS.get().get(browseNode);
+            toParentChunk = browseNode;
+            newName = toParts[toParts.length-1];
+            newPath = to;
         }
-        FsNodeChunk toParentChunk = browseNode;
-        
-        // rename the from-chunk
-        // - handle move to root: @todo make a "move into a FOLDER" at this place!
-        if (toParentChunk.getID() == ROOT_CID) {
-            // name unchanged
-            if (exists(fromParts[fromParts.length-1]).startsWith("OK")) return "no. something with that name still exists in /";
+        if (folder && (newPath.equals(from) || newPath.startsWith(from + "/"))) {
+            return "fail. '"+from+"' can not move into itself.";
+        }
+        if (!FsNodeChunk.nameFits(newName)) return "fail. name too long.";
+
+        // a flush of the file waits: it must not put the FsNode with the old name (or into the old chunk).
+        // The entries of a folder are locked by moveFsNode()
+        int[] nodeLocked = folder ? null : nodeLocks.lock(String.valueOf(fromChunk.getID()));
+        try {
+            chunkS.get().get(fromChunk);
+            f = fromChunk.get();
+            invalidate(from, folder);
+
+            // the entry leaves the old parent. If it stays in the same folder, we use the same object
+            FsNodeChunk oldParentChunk = toParentChunk;
+            if (f.backId != toParentChunk.getID()) {
+                oldParentChunk = new FsNodeChunk(f.backId);
+                chunkS.get().get(oldParentChunk);
+            }
+            if (!removeEntry(oldParentChunk, fromChunk.getID())) {
+                return "fail finding/removing " + from + " from refIds of parent node " + oldParentChunk.get().name;
+            }
+
+            if (!fromChunk.hasRoomFor(newName)) {
+                fromChunk = moveFsNode(fromChunk, newName);
+                f = fromChunk.get();
+            }
+
+            // @todo error handling
+            f.name = newName;
             f.backId = toParentChunk.getID();
+            fromChunk.set(f);
+            chunkS.put().put(fromChunk);
+            addEntry(toParentChunk, fromChunk.getID(), f.name);
+        } finally {
+            nodeLocks.unlock(nodeLocked);
+        }
+        return "OK";
+    }
+
+    /**
+     * dxram can not resize a chunk: a FsNode gets a new chunk on the same peer, if its new name does not fit.
+     * The FsNodes, which link to it (the first EXT and the entries of a folder), get the new chunkid.
+     * The caller removes the old entry from the parent and adds the new one.
+     *
+     * Writers of a file still flush with the old chunkid: it is not freed (dxram would use it again), but
+     * becomes a MOVED FsNode, which links to the new chunk. The reclaimer frees it with the file.
+     * The caller has locked the file in nodeLocks.
+     *
+     * @param node file or folder FsNode
+     * @param name the new name
+     * @return the FsNode in the new chunk
+     */
+    private FsNodeChunk moveFsNode(FsNodeChunk node, String name) {
+        long oldId = node.getID();
+        FsNode f = node.get();
+        boolean file = f.type == FsNodeType.FILE;
+        // the chunk of the MOVED FsNode keeps its size: we change a copy of it
+        FsNodeChunk tombstone = new FsNodeChunk(oldId);
+        if (file) {
+            chunkS.get().get(tombstone);
+            f.movedFrom = oldId;
+        }
+        FsNodeChunk moved = new FsNodeChunk();
+        moved.setNameCapacity(name.getBytes(DxramFsConfig.STRING_STD_CHARSET).length);
+        moved.set(f);
+        chunkCreate(moved, lookS.getPrimaryPeer(oldId));
+        long newId = moved.getID();
+        f = moved.get();
+        f.ID = newId;
+        if (f.forwardId == oldId) {
+            f.forwardId = newId;
         } else {
-            f.name = new String(toParts[toParts.length-1].getBytes(DxramFsConfig.STRING_STD_CHARSET));
-            f.backId = toParentChunk.getID();
+            FsNodeChunk ext = new FsNodeChunk(f.forwardId);
+            chunkS.get().get(ext);
+            if (ext.getID() != ChunkID.INVALID_ID) {
+                ext.get().backId = newId;
+                chunkS.put().put(ext);
+            }
         }
-        // @todo error handling
-        fromChunk.set(f);
-        chunkS.put().put(fromChunk);
-        
-        // @todo EXT to handle more than ref_ids_each_fsnode entries !!!!!
-        f = toParentChunk.get();
-        int refSize = f.refSize;
-        f.refIds[refSize] = fromChunk.getID();
-        f.size++;
-        f.refSize++;
+        moved.set(f);
+        chunkS.put().put(moved);
+
+        if (f.type == FsNodeType.FOLDER) {
+            // the entries link to their folder by the backId. A flush of a file entry waits, until it has the new one
+            FsNodeChunk part = moved;
+            while (true) {
+                FsNode p = part.get();
+                FsNodeChunk[] entries = new FsNodeChunk[p.refSize];
+                String[] keys = new String[p.refSize];
+                for (int i = 0; i < p.refSize; i++) {
+                    entries[i] = new FsNodeChunk(p.refIds[i]);
+                    keys[i] = String.valueOf(p.refIds[i]);
+                }
+                int[] entriesLocked = nodeLocks.lock(keys);
+                try {
+                    FsNodeChunk.getAll(chunkS, entries);
+                    ArrayList<FsNodeChunk> found = new ArrayList<>();
+                    for (FsNodeChunk entry : entries) {
+                        if (entry.getID() == ChunkID.INVALID_ID) continue;
+                        entry.get().backId = newId;
+                        found.add(entry);
+                    }
+                    if (!found.isEmpty()) {
+                        chunkS.put().put(found.toArray(new FsNodeChunk[0]));
+                    }
+                } finally {
+                    nodeLocks.unlock(entriesLocked);
+                }
 
-        // @todo error handling
-        toParentChunk.set(f);
-        chunkS.put().put(toParentChunk);
-        
-        return back;
+                // a FsNode without EXT links to itself
+                if (p.forwardId == p.ID || p.forwardId == ChunkID.INVALID_ID) break;
+                part = new FsNodeChunk(p.forwardId);
+                chunkS.get().get(part);
+                if (part.getID() == ChunkID.INVALID_ID) break;
+            }
+        }
+        extIndex.forget(oldId);
+        folderIndex.forget(oldId);
+        if (file) {
+            FsNode t = tombstone.get();
+            t.type = FsNodeType.MOVED;
+            t.forwardId = newId;
+            t.backId = DxramFsConfig.INVALID_ID;
+            tombstone.set(t);
+            chunkS.put().put(tombstone);
+        } else {
+            chunkS.remove().remove(oldId);
+        }
+        LOG.debug("moved FsNode [%s] to [%s] for the name '%s'", String.format("0x%X", oldId), String.format("0x%X", newId), name);
+        return moved;
     }
 
     // ------------------------------------------------------------------------------------------------
 
     // handles EXT
-    private ExistsMessage externalHandleExists(ExistsMessage msg) {
-        ExistsMessage response = new ExistsMessage(msg.getSource(), exists(msg.get_data()));
+    private StatusResponse externalHandleExists(ExistsMessage msg) {
+        StatusResponse response = new StatusResponse(msg, exists(msg.get_data()));
         return response;
     }
 
-    private MkDirsMessage externalHandleMkDirs(MkDirsMessage msg) {
+    private StatusResponse externalHandleMkDirs(MkDirsMessage msg) {
         String back;
         String path = msg.get_data();
         String[] pathparts = path.split("/");
         LOG.debug(String.join(" , ", pathparts));
 
-        if (path.length() > 0) {
-            FsNodeChunk subNode = ROOTN;
+        FsNodeChunk existing = path.length() > 0 ? resolve(path) : null;
+        if (existing != null) {
+            // it still exists (hadoop asks for the parent folder on every create)
+            if (existing.get().type != FsNodeType.FOLDER) {
+                return new StatusResponse(msg, "fail. '" + path + "' is not a folder.");
+            }
+            back = "OK " + String.valueOf(getRoot().get().refSize);
+        } else if (path.length() > 0) {
+            FsNodeChunk subNode = getRoot();
             long subChunkId = ROOT_CID;
             for (int i = 0; i < pathparts.length; i++) {
                 subChunkId = getIn(pathparts[i], subNode);
                 if (subChunkId == ChunkID.INVALID_ID) {
+                    if (!FsNodeChunk.nameFits(pathparts[i])) return new StatusResponse(msg, "fail. name too long.");
                     // @todo: if we have to create the whole structure(?)
                     //return new MkDirsMessage((short) dxnet_local_id, "fail. upper folder not exists");
                     subChunkId = mkDir(pathparts[i], subNode);
                 }
                 subNode = new FsNodeChunk(subChunkId);
                 chunkS.get().get(subNode);
+                // a file on the way: getIn() would search its block ids as entries
+                if (subNode.get().type != FsNodeType.FOLDER) {
+                    return new StatusResponse(msg, "fail. '" + pathparts[i] + "' is not a folder.");
+                }
             }
 
             // subNode should be the folder, where we have to create a new folder
             //mkDir(pathparts[pathparts.length -1], subNode);
-            back = "OK " + String.valueOf(ROOTN.get().refSize);
+            back = "OK " + String.valueOf(getRoot().get().refSize);
         } else {
             back = "fail. path empty";
         }
 
-        MkDirsMessage response = new MkDirsMessage(msg.getSource(), back);
+        StatusResponse response = new StatusResponse(msg, back);
         return response;
     }
 
     // handles EXT
-    private IsDirectoryMessage externalHandleIsDirectory(IsDirectoryMessage msg) {
-        IsDirectoryMessage response = new IsDirectoryMessage(msg.getSource(), isDir(msg.getData()));
+    private StatusResponse externalHandleIsDirectory(IsDirectoryMessage msg) {
+        StatusResponse response = new StatusResponse(msg, isDir(msg.getData()));
         return response;
     }
 
     // handles EXT
-    private FileLengthMessage externalHandleFileLength(FileLengthMessage msg) {
+    private StatusResponse externalHandleFileLength(FileLengthMessage msg) {
         String path = msg.get_data();
         long fileLength = 0;
         String back = "OK";
 
-        String[] pathparts = path.split("/");
-        LOG.debug(String.join(" , ", pathparts));
-        chunkS.get().get(ROOTN);
+        FsNodeChunk rootNode = getRoot();
         if (path.length() == 0) {
             back = "OK / is a dir";
-        } else if (ROOTN.get().size < 1) {
+        } else if (rootNode.get().size < 1) {
             back = "OK / empty";
         } else {
-            boolean failure = false;
-            FsNodeChunk subNode = ROOTN;
-            int i;
-            long subChunkId;
-            for (i=0; i < (pathparts.length -1); i++) {
-                subChunkId = getIn(pathparts[i], subNode);
-                if (subChunkId == ChunkID.INVALID_ID) {
-                    back = "no: path part does not exist";
-                    failure = true;
-                    break;
-                } else {
-                    subNode = new FsNodeChunk(subChunkId);
-                    chunkS.get().get(subNode);
-                    if (subNode.get().type != FsNodeType.FOLDER) {
-                        back = "no: path part is not a folder";
-                        failure = true;
-                        break;
-                    }
-                }
-            }
-            if (!failure) {
-                // access to the last path part (i = pathparts.length -1)
-                subChunkId = getIn(pathparts[i], subNode);
-                if (subChunkId == ChunkID.INVALID_ID) {
-                    back = "no: file does not exist";
-                } else {
-                    subNode = new FsNodeChunk(subChunkId);
-                    chunkS.get().get(subNode);
-                    if (subNode.get().type == FsNodeType.FILE) {
-                        fileLength = subNode.get().size;
-                    } else if (subNode.get().type == FsNodeType.FOLDER) {
-                        fileLength = 0;
-                        back = "OK but a folder";
-                    } else {
-                        back = "no: it is a EXT?!";
-                    }
-                }
+            FsNodeChunk subNode = resolve(path);
+            if (subNode == null) {
+                back = "no: file does not exist";
+            } else if (subNode.get().type == FsNodeType.FILE) {
+                fileLength = subNode.get().size;
+            } else if (subNode.get().type == FsNodeType.FOLDER) {
+                fileLength = 0;
+                back = "OK but a folder";
+            } else {
+                back = "no: it is a EXT?!";
             }
         }
         
-        FileLengthMessage response = new FileLengthMessage(msg.getSource(), back);
-        response.set_length(fileLength);
+        StatusResponse response = new StatusResponse(msg, back, fileLength);
         return response;
     }
     
     
     // todo: delete must be atomic/sync to all hadoop nodes
-    private DeleteMessage externalHandleDelete(DeleteMessage msg) {
-        // recursion handles my connector code (listFiles...) in hadoop !
-        DeleteMessage response = new DeleteMessage(msg.getSource(), delete(msg.getData()));
+    private StatusResponse externalHandleDelete(DeleteMessage msg) {
+        StatusResponse response = new StatusResponse(msg, delete(msg.getData(), msg.isRecursive()));
         return response;
     }
     
-    private RenameToMessage externalHandleRenameTo(RenameToMessage msg) {
-        RenameToMessage response = new RenameToMessage(msg.getSource(), rename(msg.getData(), msg.getToData()), "-");
+    private StatusResponse externalHandleRenameTo(RenameToMessage msg) {
+        StatusResponse response = new StatusResponse(msg, rename(msg.getData(), msg.getToData()));
         return response;
     }
 
     // handles EXT
-    private ListMessage externalHandleList(ListMessage msg) {
+    private StatusResponse externalHandleList(ListMessage msg) {
         String reqFolder = msg.getData();
         int reqStartIdx = msg.getCount();
         String[] contents = list(reqFolder, reqStartIdx, DxramFsConfig.max_pathlength_chars);
         if (contents == null || contents.length == 0) {
-            return new ListMessage(msg.getSource(), "", -1);
+            return new StatusResponse(msg, "", -1);
         } else {
             // we return the (part of an) array with: "entry1/entry2/entry3/entry4/...."
-            return new ListMessage(
-                msg.getSource(),
+            return new StatusResponse(
+                msg,
                 String.join("/", contents),
                 contents.length
             );
         }
     }
     
-    private CreateMessage externalHandleCreate(CreateMessage msg) {
+    // handles EXT
+    private ListStatusResponse externalHandleListStatus(ListStatusMessage msg) {
+        FsNodeChunk subNode = resolve(msg.getData());
+        if (subNode == null) {
+            return new ListStatusResponse(msg, "no it does not exist");
+        }
+        FsNode s = subNode.get();
+        if (s.type != FsNodeType.FOLDER) {
+            // a file lists itself
+            return new ListStatusResponse(
+                msg, ListStatusResponse.OK_FILE,
+                new String[] { s.name }, new int[] { s.type }, new long[] { s.size }, new int[] { s.refSize },
+                true
+            );
+        }
+
+        // the page starts behind the last name of the page before in the order of (name hash, name).
+        // We get the entries with the same hash as it, too: some may follow it
+        String after = msg.getAfter();
+        int afterHash = after.isEmpty() ? Integer.MIN_VALUE : FsNode.nameHash(after);
+        int max = Math.max(1, msg.getMaxEntries());
+        FolderIndex.Entries entries = entriesOf(subNode);
+        int wanted = max + (after.isEmpty() ? 0 : entries.find(afterHash).length);
+        FolderIndex.Entries page = entries.from(afterHash, wanted);
+
+        FsNodeChunk[] pageChunks = new FsNodeChunk[page.size()];
+        for (int i = 0; i < pageChunks.length; i++) {
+            pageChunks[i] = new FsNodeChunk(page.idAt(i));
+        }
+        FsNodeChunk.getAll(chunkS, pageChunks);
+        ArrayList<FsNode> found = new ArrayList<>();
+        for (FsNodeChunk entryChunk : pageChunks) {
+            // deleted by an other peer after we got the folder
+            if (entryChunk.getID() == ChunkID.INVALID_ID) continue;
+            FsNode e = entryChunk.get();
+            int hash = FsNode.nameHash(e.name);
+            if (!after.isEmpty() && hash == afterHash && e.name.compareTo(after) <= 0) continue;
+            found.add(e);
+        }
+        found.sort((x, y) -> {
+            int c = Integer.compare(FsNode.nameHash(x.name), FsNode.nameHash(y.name));
+            return c != 0 ? c : x.name.compareTo(y.name);
+        });
+        // less entries than wanted: the page reached the end of the folder
+        boolean lastPage = page.size() < wanted && found.size() <= max;
+
+        int count = Math.min(found.size(), max);
+        String[] names = new String[count];
+        int[] types = new int[count];
+        long[] sizes = new long[count];
+        int[] blockCounts = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            FsNode e = found.get(i);
+            names[i] = e.name;
+            types[i] = e.type;
+            sizes[i] = e.type == FsNodeType.FOLDER ? 0 : e.size;
+            blockCounts[i] = e.type == FsNodeType.FOLDER ? 0 : e.refSize;
+        }
+
+        return new ListStatusResponse(msg, "OK", names, types, sizes, blockCounts, lastPage);
+    }
+
+    private StatusResponse externalHandleCreate(CreateMessage msg) {
         String back;
         String path = msg.getData();
         String[] pathparts = path.split("/");
         LOG.debug(String.join(" , ", pathparts));
         
-        FsNodeChunk subNode = ROOTN;
         long subChunkId = ROOT_CID;
 
         if (path.length() > 0) {
-            int i;
-            for (i = 0; i < pathparts.length-1; i++) { // browse to folder
-                subChunkId = getIn(pathparts[i], subNode);
-                if (subChunkId == ChunkID.INVALID_ID) break;
-                subNode = new FsNodeChunk(subChunkId);
-                chunkS.get().get(subNode);
-            }
-            
-            if (subChunkId == ChunkID.INVALID_ID) {
+            // browse to folder
+            FsNodeChunk subNode = resolve(PathLocks.parent(path));
+            if (subNode == null) {
+                subChunkId = ChunkID.INVALID_ID;
                 back = "fail. path wrong.";
+            } else if (!FsNodeChunk.nameFits(pathparts[pathparts.length-1])) {
+                subChunkId = ChunkID.INVALID_ID;
+                back = "fail. name too long.";
             } else {
-                subChunkId = mkFile(pathparts[i], subNode);
+                subChunkId = mkFile(pathparts[pathparts.length-1], subNode);
                 back = "OK.";
             }
 
@@ -1113,39 +1650,37 @@ public class DxramFsApp extends AbstractApplication {
             back = "fail. name is empty";
         }
 
-        CreateMessage response = new CreateMessage(msg.getSource(), back, subChunkId);
+        StatusResponse response = new StatusResponse(msg, back, subChunkId);
         return response;
     }
 
     // handles EXT
-    private FsNodeMessage externalHandleFsNode(FsNodeMessage msg) {
+    private FsNodeResponse externalHandleFsNode(FsNodeMessage msg) {
         String back = "OK";
         String path = msg.get_data();
         FsNode fsnode = null;
         
-        if (path.length() > 0) {
-            fsnode = getFsNode(path);
-            if (fsnode == null) back = "fail. path wrong.";
+        // an empty path is the root
+        FsNodeChunk subNode = resolve(path);
+        if (subNode == null) {
+            back = "fail. path wrong.";
         } else {
-            back = "fail. name is empty";
+            fsnode = subNode.get();
+            if (msg.getLeaseMs() > 0) {
+                leases.grant(path, fsnode.ID, msg.getSource(), msg.getLeaseMs());
+                // the namespace peer changes the path: it tells us, if it happens within the lease
+                short peer = namespacePeer();
+                if (peer >= 0 && peer != nopeConfig.nodeId) {
+                    send(new WatchMessage(peer, path, fsnode.ID, msg.getLeaseMs()));
+                }
+            }
         }
 
-        return new FsNodeMessage(
-            msg.getSource(),
-            back,
-            fsnode.ID,
-            fsnode.size,
-            fsnode.type,
-            fsnode.refSize,
-            fsnode.backId,
-            fsnode.forwardId,
-            fsnode.name,
-            fsnode.refIds
-        );
+        return new FsNodeResponse(msg, back, withOwners(fsnode));
     }
     
     // does not need to handle EXT
-    private FsNodeByIdMessage externalHandleFsNodeById(FsNodeByIdMessage msg) {
+    private FsNodeResponse externalHandleFsNodeById(FsNodeByIdMessage msg) {
         String back = "OK";
         String chunkidstr = msg.get_data();
         FsNode fsnode = null;
@@ -1153,6 +1688,11 @@ public class DxramFsApp extends AbstractApplication {
         if (chunkidstr.length() > 0) {
             FsNodeChunk subNode = new FsNodeChunk(Long.valueOf(chunkidstr));
             chunkS.get().get(subNode);
+            // the file was renamed into an other chunk (see moveFsNode())
+            while (subNode.getID() != ChunkID.INVALID_ID && subNode.get().type == FsNodeType.MOVED) {
+                subNode = new FsNodeChunk(subNode.get().forwardId);
+                chunkS.get().get(subNode);
+            }
             if (subNode.getID() == ChunkID.INVALID_ID) {
                 back = "fail. id wrong.";
             } else {
@@ -1162,43 +1702,327 @@ public class DxramFsApp extends AbstractApplication {
             back = "fail. id is empty";
         }
 
-        FsNodeByIdMessage response = new FsNodeByIdMessage(msg.getSource(), back);
-        response.set_fsNode(fsnode);
-        return response;
+        return new FsNodeResponse(msg, back, withOwners(fsnode));
     }
     
+    // handles EXT
+    private BlockLocationsResponse externalHandleBlockLocations(BlockLocationsMessage msg) {
+        FsNodeChunk fileNode = resolve(msg.getData());
+        if (fileNode == null) {
+            return new BlockLocationsResponse(msg, "no it does not exist");
+        }
+        FsNode f = fileNode.get();
+        if (f.type != FsNodeType.FILE) {
+            return new BlockLocationsResponse(msg, "no it is not a file");
+        }
+
+        long blocksize = DxramFsConfig.file_blocksize;
+        long start = Math.max(0, msg.getStart());
+        long end = Math.min(f.size, start + Math.max(0, msg.getLen()));
+        int first = (int) (start / blocksize);
+        int count = end > start ? (int) ((end - 1) / blocksize) - first + 1 : 0;
+
+        long[] offsets = new long[count];
+        long[] lengths = new long[count];
+        String[] hosts = new String[count];
+        String[] addrs = new String[count];
+        int[] ports = new int[count];
+        short[] nodeIds = new short[count];
+        long[] storageIds = new long[count];
+
+        if (f.refSize == 0 && count > 0) {
+            // a small file: its data is in the FsNode and has no BlockChunk
+            InetSocketAddress nodeDetail = bootS.getNodeAddress(lookS.getPrimaryPeer(fileNode.getID()));
+            offsets[0] = 0;
+            lengths[0] = f.size;
+            hosts[0] = nodeDetail.getHostString();
+            addrs[0] = nodeDetail.getAddress().getHostAddress();
+            ports[0] = nodeDetail.getPort();
+            nodeIds[0] = nopeConfig.dxnetNodeOf(hosts[0], addrs[0], ports[0]);
+            storageIds[0] = DxramFsConfig.INVALID_ID;
+            return new BlockLocationsResponse(msg, "OK", offsets, lengths, hosts, addrs, ports, nodeIds, storageIds);
+        }
+
+        // the EXT FsNode of the first block comes from the extIndex
+        FsNodeChunk getRefsIn = count > 0 ? blockNode(fileNode, first) : fileNode;
+        if (getRefsIn == null) {
+            return new BlockLocationsResponse(msg, "fail. block " + first + " is missing");
+        }
+        int indexInExt = first - firstRef(getRefsIn);
+        for (int i = 0; i < count; i++, indexInExt++) {
+            if (indexInExt == getRefsIn.get().refIds.length) {
+                getRefsIn = blockNode(fileNode, first + i);
+                indexInExt = 0;
+            }
+            if (getRefsIn == null || indexInExt >= getRefsIn.get().refSize) {
+                return new BlockLocationsResponse(msg, "fail. block " + (first + i) + " is missing");
+            }
+            long storageId = getRefsIn.get().refIds[indexInExt];
+
+            // the BlockChunk may have moved: we ask dxram for the owner. A block without flush has none: we name us
+            short blockOwningPeer = storageId == DxramFsConfig.INVALID_ID ? bootS.getNodeID() : lookS.getPrimaryPeer(storageId);
+            InetSocketAddress nodeDetail = bootS.getNodeAddress(blockOwningPeer);
+
+            offsets[i] = (first + i) * blocksize;
+            lengths[i] = getRefsIn.get().blockLengths[indexInExt];
+            hosts[i] = nodeDetail.getHostString();
+            addrs[i] = nodeDetail.getAddress().getHostAddress();
+            ports[i] = nodeDetail.getPort();
+            nodeIds[i] = nopeConfig.dxnetNodeOf(hosts[i], addrs[i], ports[i]);
+            storageIds[i] = storageId;
+        }
+
+        return new BlockLocationsResponse(msg, "OK", offsets, lengths, hosts, addrs, ports, nodeIds, storageIds);
+    }
+
     // does not need to handle EXT
-    private BlockinfoMessage externalHandleBlockinfo(BlockinfoMessage msg) {
-        String back = "OK";
-        String chunkidstr = msg.get_data();
-        Blockinfo bi = null;
-        
-        if (chunkidstr.length() > 0) {
-            BlockinfoChunk biChunk = new BlockinfoChunk(Long.valueOf(chunkidstr));
-            chunkS.get().get(biChunk);
-            if (biChunk.getID() == ChunkID.INVALID_ID) {
-                back = "fail. id wrong.";
+    private GetBlockMessage externalHandleAskBlock(AskBlockMessage msg) {
+        if (msg.getLength() >= 0) {
+            return askBlockFragment(msg);
+        }
+        BlockChunk blockChunk = new BlockChunk(msg.getAskBlockId());
+        chunkS.get().get(blockChunk);
+        GetBlockMessage response = null;
+        // the chunkid may belong to an other block now: the client asks for the location again
+        if (blockChunk.getID() == ChunkID.INVALID_ID || !blockChunk.isBlockOf(msg.getStamp(), msg.getIndex())) {
+            response = new GetBlockMessage(msg);
+            response.setSuccess(false);
+        } else {
+            response = new GetBlockMessage(msg, blockChunk.get());
+            response.setSuccess(true);
+        }
+        return response;
+    }
+
+    /**
+     * a client reads a large block in fragments: we get the block once (at offset 0) and
+     * answer the following fragments from the BlockFragments cache. It is dropped, if the
+     * BlockChunk is moved or freed, thus only the block of the checked header is cached.
+     */
+    private GetBlockMessage askBlockFragment(AskBlockMessage msg) {
+        long id = msg.getAskBlockId();
+        byte[] data = fragments.cached(id, msg.getOffset());
+        if (data == null) {
+            BlockChunk blockChunk = new BlockChunk(id);
+            chunkS.get().get(blockChunk);
+            if (blockChunk.getID() == ChunkID.INVALID_ID || !blockChunk.isBlockOf(msg.getStamp(), msg.getIndex())) {
+                GetBlockMessage response = new GetBlockMessage(msg);
+                response.setSuccess(false);
+                return response;
+            }
+            data = blockChunk.get()._data;
+            fragments.cache(id, data);
+        }
+
+        int from = Math.min(Math.max(0, msg.getOffset()), data.length);
+        int to = (int) Math.min((long) from + msg.getLength(), data.length);
+        Block fragment = new Block();
+        fragment.ID = id;
+        fragment._data = Arrays.copyOfRange(data, from, to);
+        GetBlockMessage response = new GetBlockMessage(msg, fragment);
+        response.setSuccess(true);
+        return response;
+    }
+
+    /**
+     * a BlockChunk holds only the used bytes of a block (doubled, thus a growing block is not moved
+     * too often). A small file does not need a BlockChunk of file_blocksize bytes.
+     *
+     * @param length used bytes of the block
+     * @return the size of the data of a BlockChunk for length bytes
+     */
+    private static int blockCapacity(int length) {
+        if (length <= 0) return 0;
+        int capacity = Math.max(MIN_BLOCK_CAPACITY, Integer.highestOneBit(length - 1) << 1);
+        return Math.min(capacity, DxramFsConfig.file_blocksize);
+    }
+
+    /**
+     * stores the flushed bytes of a small file in its FsNode.
+     */
+    private FlushOkMessage flushInline(FlushMessage msg, FsNodeChunk fsnodeChunk, int from, Block bl) {
+        FsNode f = fsnodeChunk.get();
+        System.arraycopy(bl._data, 0, f.inline, from, bl._data.length);
+        f.size = Math.max(f.size, msg.getFsNode().size);
+        chunkS.put().put(fsnodeChunk);
+        BlockPool.release(bl._data);
+
+        flushed(f.ID);
+        return new FlushOkMessage(msg, true);
+    }
+
+    /**
+     * @param msg
+     * @param fsnodeChunk the FsNode of the file: the caller has locked it in nodeLocks
+     */
+    private FlushOkMessage externalHandleFlush(FlushMessage msg, FsNodeChunk fsnodeChunk) {
+        FsNode fsnode = msg.getFsNode();
+        // new blocks go near the peer of the client (see forwardToNamespacePeer())
+        short near = msg.getNearPeer() >= 0 ? msg.getNearPeer() : bootS.getNodeID();
+        Blockinfo bli = msg.getBlockinfo();
+        Block bl = msg.getBlock();
+        int from = msg.getDataOffset();
+
+        if (msg.getFragments() > 1) {
+            // we store the block with the last fragment. The ok of the others lets the client send more
+            BlockFragments.Assembly assembly;
+            try {
+                assembly = fragments.add(msg);
+            } catch (IndexOutOfBoundsException | IllegalStateException e) {
+                LOG.error("flush fragment failed: %s", e.getMessage());
+                BlockPool.release(bl._data);
+                return new FlushOkMessage(msg, false);
+            }
+            BlockPool.release(bl._data);
+            if (assembly == null) {
+                return new FlushOkMessage(msg, true);
+            }
+            if (assembly.from == 0 && assembly.to == assembly.data.length) {
+                bl._data = assembly.data;
+            } else {
+                bl._data = Arrays.copyOfRange(assembly.data, assembly.from, assembly.to);
+                BlockPool.release(assembly.data);
+            }
+            from = assembly.from;
+        }
+
+        // a deleted file has no parent (see delete())
+        if (
+            fsnodeChunk.getID() == ChunkID.INVALID_ID ||
+            fsnodeChunk.get().type != FsNodeType.FILE ||
+            fsnodeChunk.get().backId == DxramFsConfig.INVALID_ID
+        ) {
+            BlockPool.release(bl._data);
+            return new FlushOkMessage(msg, false);
+        }
+
+        FsNode stored = fsnodeChunk.get();
+        if (stored.stamp != fsnode.stamp) {
+            // the chunkid belongs to an other file now
+            BlockPool.release(bl._data);
+            return new FlushOkMessage(msg, false);
+        }
+        if (stored.refSize == 0 && bli.offset == 0 && Math.max(from + bl._data.length, bli.length) <= stored.inline.length) {
+            return flushInline(msg, fsnodeChunk, from, bl);
+        }
+        // the file does not fit into its FsNode (anymore)
+        promote(fsnodeChunk, near);
+
+        // the block is found by its index (offset). a pipelining writer does not know the ids
+        // of new blocks: we create the missing blocks (and EXT FsNodes for them).
+        int index = bli.offset;
+        if (index < 0) {
+            return new FlushOkMessage(msg, false);
+        }
+        while (blockCount(fsnodeChunk) <= index) {
+            enlarge(fsnodeChunk);
+        }
+        FsNodeChunk tableChunk = blockNode(fsnodeChunk, index);
+        if (tableChunk == null) {
+            return new FlushOkMessage(msg, false);
+        }
+        int slot = index - firstRef(tableChunk);
+
+        // blocks may arrive out of order: the file never gets shorter by a flush
+        FsNode a = fsnodeChunk.get();
+        a.size = Math.max(a.size, fsnode.size);
+        fsnodeChunk.set(a);
+
+        FsNode t = tableChunk.get();
+        int oldLength = t.blockLengths[slot];
+        t.blockLengths[slot] = bli.length;
+
+        BlockChunk blChunk = new BlockChunk(t.refIds[slot]);
+        long oldBlockId = DxramFsConfig.INVALID_ID;
+        int end = from + bl._data.length;
+        if (end > DxramFsConfig.file_blocksize) {
+            return new FlushOkMessage(msg, false);
+        }
+        int capacity = blockCapacity(Math.max(end, bli.length));
+        if (blockCapacity(oldLength) == 0) {
+            // the first flush of the block creates its BlockChunk with the flushed bytes: nothing to get or copy.
+            // An empty BlockChunk of an older peer is replaced
+            byte[] data = bl._data;
+            if (from != 0 || data.length != capacity) {
+                data = new byte[capacity];
+                System.arraycopy(bl._data, 0, data, from, bl._data.length);
+            }
+            short blockPeer;
+            if (t.refIds[slot] == DxramFsConfig.INVALID_ID) {
+                blockPeer = placement.choose(fsnodeChunk.getID(), index, onlinePeers(), near);
             } else {
-                bi = biChunk.get();
-                
-                // we filling this infos dynamically:
-
-                short blockOwningPeer = lookS.getPrimaryPeer(bi.storageId);
-                InetSocketAddress nodeDetail = bootS.getNodeAddress(blockOwningPeer);
-                
-                // you have to map this dxram host+addr+port to dxnet host+addr+port !
-                
-                bi.host = nodeDetail.getHostString(); // hostname or alternative the ip address
-                bi.addr = nodeDetail.getAddress().getHostAddress(); // the ip address as string!
-                bi.port = nodeDetail.getPort();
+                oldBlockId = t.refIds[slot];
+                blockPeer = lookS.getPrimaryPeer(oldBlockId);
             }
+            blChunk = new BlockChunk();
+            blChunk.get()._data = data;
+            chunkCreate(blChunk, blockPeer);
+            t.refIds[slot] = blChunk.getID();
+        } else if (from == 0 && end == DxramFsConfig.file_blocksize && blockCapacity(oldLength) == end) {
+            // a full block replaces the stored one: no get and no copy on the heap
+            blChunk.get()._data = bl._data;
         } else {
-            back = "fail. id is empty";
+            // the message holds only the dirty range of the block: we patch it into the stored block
+            chunkS.get().get(blChunk);
+            byte[] data = blChunk.get()._data;
+            if (data.length < capacity) {
+                // dxram can not resize a chunk: we move the block into a larger one on the same peer.
+                // Readers with the old chunkid ask the peer for the block location again
+                data = Arrays.copyOf(data, capacity);
+                oldBlockId = blChunk.getID();
+                blChunk = new BlockChunk();
+                blChunk.get()._data = data;
+                chunkCreate(blChunk, lookS.getPrimaryPeer(oldBlockId));
+                t.refIds[slot] = blChunk.getID();
+            }
+            System.arraycopy(bl._data, 0, data, from, bl._data.length);
+            blChunk.get()._data = data;
         }
 
-        BlockinfoMessage response = new BlockinfoMessage(msg.getSource(), back);
-        response.set_Blockinfo(bi);
-        return response;
+        // the header lets readers with an old chunkid detect, that it belongs to an other block
+        blChunk.setHeader(a.stamp, index);
+        // @todo handle more possible fails better
+        if (tableChunk == fsnodeChunk) {
+            chunkS.put().put(fsnodeChunk, blChunk);
+        } else {
+            chunkS.put().put(fsnodeChunk, tableChunk, blChunk);
+        }
+        fragments.forget(blChunk.getID());
+        if (oldBlockId != DxramFsConfig.INVALID_ID) {
+            LOG.debug("moved Block [%s] to [%s]", String.format("0x%X", oldBlockId), String.format("0x%X", blChunk.getID()));
+            chunkS.remove().remove(oldBlockId);
+            fragments.forget(oldBlockId);
+        }
+        // dxram has copied the data: the arrays are free for the next messages
+        BlockPool.release(blChunk.get()._data);
+        if (blChunk.get()._data != bl._data) {
+            BlockPool.release(bl._data);
+        }
+
+        // the size has changed: hadoop nodes with a lease must get it again
+        flushed(fsnodeChunk.getID());
+
+        // if the block index not equal fsnode.size/DxramFsConfig.file_blocksize -> add a new block
+
+        int newRefId = (int) (fsnodeChunk.get().size/(long)DxramFsConfig.file_blocksize);
+        if (
+            // the block is full AND
+            (bli.length == DxramFsConfig.file_blocksize) &&
+            // it is the last block of the file AND
+            ( newRefId == (index +1) ) &&
+            // e.g. the new calculated refId is 1 (= we need 2 blocks to store) but we have only 1 blocks
+            (newRefId == blockCount(fsnodeChunk))
+        ) {
+            // @todo handle more possible fails better
+            enlarge(fsnodeChunk);
+        }
+
+        // @todo handle more possible fails better
+        if (blChunk.getID() == ChunkID.INVALID_ID) {
+            return new FlushOkMessage(msg, false);
+        } else {
+            return new FlushOkMessage(msg, true);
+        }
     }
 
 }
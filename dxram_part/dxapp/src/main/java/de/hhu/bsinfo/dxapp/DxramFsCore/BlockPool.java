@@ -0,0 +1,42 @@
+package de.hhu.bsinfo.dxapp.dxramfscore;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * recycles the data arrays of full blocks. Block messages import their data into an array of this pool,
+ * thus a 4 MB block transfer does not allocate a new array each time. Only arrays with
+ * file_blocksize bytes are pooled, all others are normal heap arrays.
+ * Give an array back with release(), if nobody uses it anymore.
+ */
+public class BlockPool {
+
+    private static final int MAX_POOLED = 32;
+
+    private static final ConcurrentLinkedQueue<byte[]> FREE = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    /**
+     * @param length
+     * @return an array with length bytes. A recycled one holds old data!
+     */
+    public static byte[] take(int length) {
+        if (length == DxramFsConfig.file_blocksize) {
+            byte[] back = FREE.poll();
+            if (back != null) {
+                POOLED.decrementAndGet();
+                return back;
+            }
+        }
+        return new byte[length];
+    }
+
+    public static void release(byte[] data) {
+        if (data == null || data.length != DxramFsConfig.file_blocksize) return;
+        if (POOLED.incrementAndGet() > MAX_POOLED) {
+            POOLED.decrementAndGet();
+            return;
+        }
+        FREE.offer(data);
+    }
+}
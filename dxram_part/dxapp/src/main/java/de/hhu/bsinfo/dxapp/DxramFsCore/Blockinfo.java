@@ -1,27 +1,23 @@
 package de.hhu.bsinfo.dxapp.dxramfscore;
 
-import java.util.Arrays;
-
+/**
+ * a block of a file. In dxram it is not a chunk of its own: the FsNode (and its EXT FsNodes)
+ * stores the block table in refIds (storageId) and blockLengths (length). The owner is resolved
+ * by the peer from its node map, if it sends the FsNode to a client.
+ */
 public class Blockinfo {
-    public long ID; // chunkid of that BlockinfoChunk
-    public int offset;  // @todo Offset of the block in the file (index/position of that block in the file)
-    public int length; // @todo how many byte did we need from this block? -> 2GB int limit!!
+    public int offset;  // index of the block in the file
+    public int length; // how many byte did we need from this block? -> 2GB int limit!!
     public boolean corrupt; // @todo how does this happend?
     public long storageId; // to the BlockChunk id, where the data exists (only 1 id because no replica)
     /* we do not have replica like in the blocklocation class of hadoop */
-    public String host;
-    public String addr;
-    public int port;
+    public short owner; // dxnet node id of the peer, which owns the BlockChunk (-1 = unknown)
 
     public Blockinfo() {}
 
     public void init() {
-        char[] dummy = new char[DxramFsConfig.max_hostlength_chars];
-        Arrays.fill(dummy, ' ');
-        this.host = new String(dummy);
-        char[] dummy2 = new char[DxramFsConfig.max_addrlength_chars];
-        Arrays.fill(dummy2, ' ');
-        this.addr = new String(dummy2);
+        this.storageId = DxramFsConfig.INVALID_ID;
+        this.owner = -1;
     }
 };
 
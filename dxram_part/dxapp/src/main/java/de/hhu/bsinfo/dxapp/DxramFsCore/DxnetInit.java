@@ -3,35 +3,57 @@ package de.hhu.bsinfo.dxapp.dxramfscore;
 import de.hhu.bsinfo.dxnet.DXNet;
 import de.hhu.bsinfo.dxnet.DXNetConfig;
 import de.hhu.bsinfo.dxnet.DXNetNodeMap;
+import de.hhu.bsinfo.dxnet.MessageReceiver;
 import de.hhu.bsinfo.dxapp.dxramfscore.rpc.*;
 
 import java.net.InetSocketAddress;
 
 public class DxnetInit {
     private DXNet _dxNet;
-    // tag 10 - 20
-    public BlockinfoMessage.InHandler bimh;
-    public CreateMessage.InHandler cmh;
-    public DeleteMessage.InHandler dmh;
-    public ExistsMessage.InHandler emh;
-    public FileLengthMessage.InHandler flmh;
-    public IsDirectoryMessage.InHandler idmh;
-    public ListMessage.InHandler lmh;
-    public MkDirsMessage.InHandler mdmh;
-    public RenameToMessage.InHandler rtmh;
-
-    public GetBlockMessage.InHandler getBlockmh;
-    public AskBlockMessage.InHandler askBlockmh;
-
-    // tag 21-
-
-    public FsNodeMessage.InHandler fsnodemh;
-    public FsNodeByIdMessage.InHandler fsnodeByIdmh; //22
-
-    public FlushMessage.InHandler flushMh;
-    public FlushOkMessage.InHandler flushOkMh;  // 24
 
+    // request tags (11 - 23, 28, 31) the dxramFsApp has to handle. responses (GetBlock 18, FlushOk 24,
+    // Status 25, FsNode 26, ListStatus 29, BlockLocations 32) need no receiver: dxnet
+    // maps them by the request id to the waiting request. Invalidate 30 is sent by a peer to the hadoop nodes
+    // and by the namespace peer to the other peers. Watch 33 is sent by a peer to the namespace peer.
+    // 10 and 27 were the Blockinfo request and response: the FsNode holds the block table now.
+    private static final byte[] REQUEST_TAGS = {
+            CreateMessage.TAG,
+            DeleteMessage.TAG,
+            ExistsMessage.TAG,
+            FileLengthMessage.TAG,
+            IsDirectoryMessage.TAG,
+            ListMessage.TAG,
+            MkDirsMessage.TAG,
+            RenameToMessage.TAG,
+            AskBlockMessage.TAG,
+            FsNodeMessage.TAG,
+            FsNodeByIdMessage.TAG,
+            FlushMessage.TAG,
+            ListStatusMessage.TAG,
+            BlockLocationsMessage.TAG,
+            InvalidateMessage.TAG,
+            WatchMessage.TAG
+    };
+
+    /**
+     * dxnet for the hadoop connector: it only sends requests and gets responses.
+     *
+     * @param nopeConfig
+     * @param myNodeId
+     */
     public DxnetInit(NodePeerConfig nopeConfig, short myNodeId) {
+        this(nopeConfig, myNodeId, null);
+    }
+
+    /**
+     * dxnet for the dxramFsApp: all incoming requests go to requestReceiver. It is called by the
+     * dxnet message handler threads, thus it should not block long.
+     *
+     * @param nopeConfig
+     * @param myNodeId
+     * @param requestReceiver
+     */
+    public DxnetInit(NodePeerConfig nopeConfig, short myNodeId, MessageReceiver requestReceiver) {
         DXNetConfig conf = new DXNetConfig();
         DXNetNodeMap nodeMap = null;
 
@@ -59,7 +81,6 @@ public class DxnetInit {
                 nodeMap
         );
 
-        _dxNet.registerMessageType(BlockinfoMessage.MTYPE, BlockinfoMessage.TAG, BlockinfoMessage.class);
         _dxNet.registerMessageType(CreateMessage.MTYPE, CreateMessage.TAG, CreateMessage.class);
         _dxNet.registerMessageType(DeleteMessage.MTYPE, DeleteMessage.TAG, DeleteMessage.class);
         _dxNet.registerMessageType(ExistsMessage.MTYPE, ExistsMessage.TAG, ExistsMessage.class);
@@ -78,44 +99,21 @@ public class DxnetInit {
         _dxNet.registerMessageType(FlushMessage.MTYPE, FlushMessage.TAG, FlushMessage.class);
         _dxNet.registerMessageType(FlushOkMessage.MTYPE, FlushOkMessage.TAG, FlushOkMessage.class);
 
-        bimh = new BlockinfoMessage.InHandler();
-        cmh = new CreateMessage.InHandler();
-        dmh = new DeleteMessage.InHandler();
-        emh = new ExistsMessage.InHandler();
-        flmh = new FileLengthMessage.InHandler();
-        idmh = new IsDirectoryMessage.InHandler();
-        lmh = new ListMessage.InHandler();
-        mdmh = new MkDirsMessage.InHandler();
-        rtmh = new RenameToMessage.InHandler();
-
-        getBlockmh = new GetBlockMessage.InHandler();
-        askBlockmh = new AskBlockMessage.InHandler();
+        _dxNet.registerMessageType(StatusResponse.MTYPE, StatusResponse.TAG, StatusResponse.class); // 25
+        _dxNet.registerMessageType(FsNodeResponse.MTYPE, FsNodeResponse.TAG, FsNodeResponse.class); // 26
 
-        fsnodemh = new FsNodeMessage.InHandler(); // 21
-        fsnodeByIdmh = new FsNodeByIdMessage.InHandler(); // 22
-
-        flushMh = new FlushMessage.InHandler();
-        flushOkMh = new FlushOkMessage.InHandler();
-
-        _dxNet.register(BlockinfoMessage.MTYPE, BlockinfoMessage.TAG, bimh);
-        _dxNet.register(CreateMessage.MTYPE, CreateMessage.TAG, cmh);
-        _dxNet.register(DeleteMessage.MTYPE, DeleteMessage.TAG, dmh);
-        _dxNet.register(ExistsMessage.MTYPE, ExistsMessage.TAG, emh);
-        _dxNet.register(FileLengthMessage.MTYPE, FileLengthMessage.TAG, flmh);
-        _dxNet.register(IsDirectoryMessage.MTYPE, IsDirectoryMessage.TAG, idmh);
-        _dxNet.register(ListMessage.MTYPE, ListMessage.TAG, lmh);
-        _dxNet.register(MkDirsMessage.MTYPE, MkDirsMessage.TAG, mdmh);
-        _dxNet.register(RenameToMessage.MTYPE, RenameToMessage.TAG, rtmh);
-
-        _dxNet.register(GetBlockMessage.MTYPE, GetBlockMessage.TAG, getBlockmh);
-        _dxNet.register(AskBlockMessage.MTYPE, AskBlockMessage.TAG, askBlockmh);
-
-        _dxNet.register(FsNodeMessage.MTYPE, FsNodeMessage.TAG, fsnodemh); // 21
-        _dxNet.register(FsNodeByIdMessage.MTYPE, FsNodeByIdMessage.TAG, fsnodeByIdmh); // 22
-
-        _dxNet.register(FlushMessage.MTYPE, FlushMessage.TAG, flushMh); // 23
-        _dxNet.register(FlushOkMessage.MTYPE, FlushOkMessage.TAG, flushOkMh); // 24
+        _dxNet.registerMessageType(ListStatusMessage.MTYPE, ListStatusMessage.TAG, ListStatusMessage.class); // 28
+        _dxNet.registerMessageType(ListStatusResponse.MTYPE, ListStatusResponse.TAG, ListStatusResponse.class); // 29
+        _dxNet.registerMessageType(InvalidateMessage.MTYPE, InvalidateMessage.TAG, InvalidateMessage.class); // 30
+        _dxNet.registerMessageType(BlockLocationsMessage.MTYPE, BlockLocationsMessage.TAG, BlockLocationsMessage.class); // 31
+        _dxNet.registerMessageType(BlockLocationsResponse.MTYPE, BlockLocationsResponse.TAG, BlockLocationsResponse.class); // 32
+        _dxNet.registerMessageType(WatchMessage.MTYPE, WatchMessage.TAG, WatchMessage.class); // 33
 
+        if (requestReceiver != null) {
+            for (byte tag : REQUEST_TAGS) {
+                _dxNet.register(ExistsMessage.MTYPE, tag, requestReceiver);
+            }
+        }
     }
 
     public DXNet getDxNet() {
@@ -2,10 +2,11 @@ package de.hhu.bsinfo.dxapp.dxramfscore;
 import java.nio.charset.Charset;
 
 public class DxramFsConfig {
-    // @todo: US_ASCII is fix in DXRAM for string, but it should be the standard java+hadoop utf16 ! (4. Sep 2018)  
-    public static final Charset STRING_STD_CHARSET = java.nio.charset.StandardCharsets.US_ASCII;
+    // DXRAM writes strings as US_ASCII: we send and store names as UTF-8 bytes (see FsNodeChunk)
+    public static final Charset STRING_STD_CHARSET = java.nio.charset.StandardCharsets.UTF_8;
     
     public static final long INVALID_ID = -1;   // only important for the dxram part of the project
+    public static final int RPC_TIMEOUT = -1;   // ms to wait for a response. -1 uses the request timeout of dxnet
 
     public static String ROOT_Chunk;            // only important for the dxram part of the project
     public static String dxnet_to_dxram_peers;
@@ -17,6 +18,18 @@ public class DxramFsConfig {
     public static int max_filenamelength_chars;
     public static int max_hostlength_chars;
     public static int max_addrlength_chars;
+
+    public static int worker_threads;           // only dxram part: threads to handle requests. 0 = cores
+    public static int worker_queue_size;        // only dxram part: waiting requests until dxnet runs them itself. 0 = 1024
+    public static int path_cache_size;          // only dxram part: cached path -> FsNode chunkid entries. 0 = off
+    public static int block_cache_size;         // only dxram part: blocks cached for reads in fragments. 0 = off
+    public static int fragment_timeout_ms;      // only dxram part: an incomplete fragmented flush is dropped after this idle time. 0 = 60000
+    public static String block_placement;       // only dxram part: peer for new blocks: local, round_robin, fewest_placed or hash_striped
+    public static int inline_file_bytes;        // only dxram part: files up to this size store their data in the FsNode. Each file FsNode keeps these bytes. 0 = off
+    public static int ext_index_size;           // only dxram part: large files with cached EXT FsNode chunkids. 0 = off
+    public static int folder_index_size;        // only dxram part: large folders with a cached name hash index. 0 = off
+    public static int reclaim_chunks_per_second; // only dxram part: chunks of deleted files, the peer frees each second. 0 = no limit
+    public static int head_ref_ids;             // only dxram part: blocks (or entries) in the file (or folder) FsNode itself. 0 = ref_ids_each_fsnode
     
     public class GsonFiller {
         public String ROOT_Chunk;
@@ -27,5 +40,16 @@ public class DxramFsConfig {
         public int max_filenamelength_chars;
         public int max_hostlength_chars;
         public int max_addrlength_chars;
+        public int worker_threads;
+        public int worker_queue_size;
+        public int path_cache_size;
+        public int block_cache_size;
+        public int fragment_timeout_ms;
+        public String block_placement;
+        public int inline_file_bytes;
+        public int ext_index_size;
+        public int folder_index_size;
+        public int reclaim_chunks_per_second;
+        public int head_ref_ids;
     }
 };
@@ -1,6 +1,5 @@
 package de.hhu.bsinfo.dxapp.dxramfscore;
 
-import java.util.Arrays;
 
 public class FsNode {
     // chunkid
@@ -13,13 +12,36 @@ public class FsNode {
     public String name;
     // folder=1, file or ext (ext to stores more refIds)
     public int type;
-    public long size; // file: total bytes / folder: number of entries
-    public int refSize; // file: total number of blocks (if >= 100, use forwardId) / folder/ext: number of entries in refIds
+    public long size; // file: total bytes / folder: number of entries / ext of a file: index of its first block
+    public int refSize; // number of entries in refIds of this FsNode (if it is full, the next ones are in the EXT of forwardId)
+    // folder: a random value, which changes with each added or removed entry (see FolderIndex).
+    // file: a random value of the create. It is not stored in an EXT
+    public long stamp;
+    // file: the chunkid of its MOVED FsNode, if a rename has moved it into a new chunk (see FsNodeType.MOVED).
+    // The MOVED FsNodes link to the ones before, the reclaimer frees them with the file
+    public long movedFrom = DxramFsConfig.INVALID_ID;
 
-    // if we are a folder, we interpret this ids as chunkids to other FSNODES (and not chunkids to blockinfos) !!!!!
+    // if we are a folder, we interpret this ids as chunkids to other FSNODES (and not chunkids to blocks) !!!!!
+    // file/ext: the chunkids of the BlockChunks (storageId)
+    // in dxram the length is fixed: head_ref_ids in a file or folder, ref_ids_each_fsnode in an EXT
     public long[] refIds = new long[0];
 
-    // refernce to a ext fsNodeChunk, if we need more than "blockinfo_ids_each_fsnode" blocks (and block infos)
+    // file/ext: blockLengths[i] is the number of used bytes of the block refIds[i]
+    public int[] blockLengths = new int[0];
+
+    // file/ext: blockOwners[i] is the dxnet node id of the peer, which owns the block refIds[i] (-1 = unknown).
+    // The peer fills it from its node map, if it sends the FsNode to a client. It is not stored in dxram.
+    public short[] blockOwners = new short[0];
+
+    // folder/ext: refHashes[i] is nameHash() of the entry refIds[i]. Thus we only get the entry chunks
+    // with the same hash to find a name. It is only stored in dxram and not submitted to hadoop.
+    public int[] refHashes = new int[0];
+
+    // small file: its data, as long as it has no blocks (refSize == 0). The length of the array is
+    // fixed by the FsNodeChunk (inline_file_bytes), only the first size bytes are used.
+    public byte[] inline = new byte[0];
+
+    // refernce to a ext fsNodeChunk, if we need more than "ref_ids_each_fsnode" blocks. The last one links to itself
 
     /*
     example: a directory /goo/ with 203 entries:
@@ -59,11 +81,44 @@ public class FsNode {
     public FsNode() { }
 
     public void init() {
+        init(DxramFsConfig.ref_ids_each_fsnode);
+    }
+
+    /**
+     * a folder without entries. The FsNodeChunk reserves the bytes of the name at its create:
+     * set the name before the create of the chunk.
+     *
+     * @param refCapacity length of refIds (and refHashes)
+     */
+    public void init(int refCapacity) {
         this.type = FsNodeType.FOLDER;
-        char[] dummy = new char[DxramFsConfig.max_filenamelength_chars];
-        Arrays.fill(dummy, ' '); // better '\0' ?!?!
-        this.name = new String(dummy);
-        this.refIds = new long[DxramFsConfig.ref_ids_each_fsnode];
+        this.name = "";
+        this.refIds = new long[refCapacity];
+        this.refHashes = new int[refCapacity];
+    }
+
+    /**
+     * @param index of the block in refIds
+     * @return the block record of the file (or EXT) with the index in the file relative to this FsNode
+     */
+    public Blockinfo blockinfo(int index) {
+        Blockinfo bi = new Blockinfo();
+        bi.init();
+        bi.offset = index;
+        bi.storageId = refIds[index];
+        bi.length = index < blockLengths.length ? blockLengths[index] : 0;
+        bi.owner = index < blockOwners.length ? blockOwners[index] : -1;
+        return bi;
+    }
+
+    /**
+     * the hash of an entry name in refHashes
+     *
+     * @param name
+     * @return
+     */
+    public static int nameHash(String name) {
+        return name.hashCode();
     }
     
     @Override
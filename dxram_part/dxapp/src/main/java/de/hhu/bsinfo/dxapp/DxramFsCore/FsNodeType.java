@@ -4,4 +4,6 @@ public class FsNodeType {
     public static final int FOLDER = 1;
     public static final int FILE = 2;
     public static final int EXT = 3;
+    // the old chunk of a file, which a rename has moved into a new chunk (forwardId). Writers may still flush with it
+    public static final int MOVED = 4;
 };
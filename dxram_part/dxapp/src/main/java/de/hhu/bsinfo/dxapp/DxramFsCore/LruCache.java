@@ -0,0 +1,59 @@
+package de.hhu.bsinfo.dxapp.dxramfscore;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * a thread safe cache, which drops the least recently used entry, if it is full.
+ *
+ * We do not use the LRU policy of the dxutils Cache: it compares the access times in ms and
+ * fails (NullPointerException), if all entries of a full cache were used in the current ms.
+ */
+public class LruCache<K, V> {
+
+    private final LinkedHashMap<K, V> _map;
+
+    /**
+     * @param size max entries (> 0)
+     */
+    public LruCache(final int size) {
+        // the access order moves a used entry to the end: the first one is the least recently used
+        _map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+                return size() > size;
+            }
+        };
+    }
+
+    /**
+     * @return the value or null
+     */
+    public synchronized V get(final K key) {
+        return _map.get(key);
+    }
+
+    public synchronized void put(final K key, final V value) {
+        _map.put(key, value);
+    }
+
+    public synchronized void remove(final K key) {
+        _map.remove(key);
+    }
+
+    /**
+     * removes all entries with a matching key (e.g. the paths below a folder)
+     */
+    public synchronized void removeIf(final Predicate<K> filter) {
+        _map.keySet().removeIf(filter);
+    }
+
+    public synchronized void clear() {
+        _map.clear();
+    }
+
+    public synchronized int size() {
+        return _map.size();
+    }
+}
@@ -92,5 +92,23 @@ public class NodePeerConfig {
         return nopeConfig;
     }
 
-    // @todo a fast mapping function for blocklocation data to get the dxnet peer of a dxram peer storage
+    /**
+     * the dxnet node id of a dxram peer (e.g. the owner of a BlockChunk)
+     *
+     * @param dxramHost hostname or addr of the dxram peer
+     * @param dxramAddr ip addr of the dxram peer
+     * @param dxramPort
+     * @return the node id or -1, if the dxram peer has no dxnet mapping
+     */
+    public short dxnetNodeOf(String dxramHost, String dxramAddr, int dxramPort) {
+        if (isDxram(dxram_addr, dxram_port, dxramHost, dxramAddr, dxramPort)) return nodeId;
+        for (Mapping m : peerMappings) {
+            if (isDxram(m.dxram_addr, m.dxram_port, dxramHost, dxramAddr, dxramPort)) return m.nodeId;
+        }
+        return -1;
+    }
+
+    private static boolean isDxram(String addr, int port, String dxramHost, String dxramAddr, int dxramPort) {
+        return addr != null && port == dxramPort && (addr.equals(dxramAddr) || addr.equals(dxramHost));
+    }
 };
@@ -3,32 +3,55 @@ package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
 import de.hhu.bsinfo.dxapp.dxramfscore.Block;
 import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
 import de.hhu.bsinfo.dxnet.DXNet;
-import de.hhu.bsinfo.dxnet.MessageReceiver;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
-import de.hhu.bsinfo.dxnet.core.Message;
 import de.hhu.bsinfo.dxnet.core.NetworkException;
-import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+import de.hhu.bsinfo.dxnet.core.Request;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-public class AskBlockMessage extends Message {
+public class AskBlockMessage extends Request {
 
     public static final Logger LOG = LogManager.getLogger(AskBlockMessage.class.getName());
     public static final byte MTYPE = 42;
     public static final byte TAG = 20;
     private long _id;
-
-    public static Block _result;
-    public static boolean success;
+    // the block, we expect in the BlockChunk: dxram uses the chunkid of a moved (or deleted) block again
+    private long _stamp;
+    private int _index;
+    // the bytes _offset, ..., _offset+_length-1 of the block. -1 = the whole block
+    private int _offset;
+    private int _length;
 
     public long getAskBlockId() {
         return _id;
     }
 
+    /**
+     * @return the stamp of the FsNode of the file
+     */
+    public long getStamp() {
+        return _stamp;
+    }
+
+    /**
+     * @return the index of the block in the file
+     */
+    public int getIndex() {
+        return _index;
+    }
+
+    public int getOffset() {
+        return _offset;
+    }
+
+    public int getLength() {
+        return _length;
+    }
+
     @Override
     protected final int getPayloadLength() {
-        return Long.BYTES;
+        return Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES + Integer.BYTES;
     }
 
     @Override
@@ -36,6 +59,10 @@ public class AskBlockMessage extends Message {
             final AbstractMessageExporter p_exporter
     ) {
         p_exporter.writeLong(_id);
+        p_exporter.writeLong(_stamp);
+        p_exporter.writeInt(_index);
+        p_exporter.writeInt(_offset);
+        p_exporter.writeInt(_length);
     }
 
     @Override
@@ -43,6 +70,10 @@ public class AskBlockMessage extends Message {
             final AbstractMessageImporter p_importer
     ) {
         _id = p_importer.readLong(_id);
+        _stamp = p_importer.readLong(_stamp);
+        _index = p_importer.readInt(_index);
+        _offset = p_importer.readInt(_offset);
+        _length = p_importer.readInt(_length);
     }
 
     // ---------------------------------------------------------------
@@ -54,60 +85,64 @@ public class AskBlockMessage extends Message {
     public AskBlockMessage(final short p_destination) {
         super(p_destination, AskBlockMessage.MTYPE, AskBlockMessage.TAG);
         _id = DxramFsConfig.INVALID_ID;
-        _result = null;
-        success = false;
+        _index = -1;
+        _offset = 0;
+        _length = -1;
+    }
+
+    /**
+     * @param p_destination
+     * @param id chunkid of the block
+     * @param stamp of the FsNode of the file (see FsNode.stamp)
+     * @param index of the block in the file
+     */
+    public AskBlockMessage(final short p_destination, final long id, final long stamp, final int index) {
+        this(p_destination, id, stamp, index, 0, -1);
     }
 
-    public AskBlockMessage(final short p_destination, final long id) {
+    /**
+     * asks for a fragment of the block. The response holds only the bytes of the fragment
+     * (less, if the block ends before).
+     *
+     * @param p_destination
+     * @param id chunkid of the block
+     * @param stamp of the FsNode of the file
+     * @param index of the block in the file
+     * @param offset first byte of the fragment
+     * @param length bytes of the fragment or -1 for the whole block
+     */
+    public AskBlockMessage(
+            final short p_destination, final long id, final long stamp, final int index, final int offset, final int length
+    ) {
         super(p_destination, AskBlockMessage.MTYPE, AskBlockMessage.TAG);
         _id = id;
-        _result = null;
-        success = false;
+        _stamp = stamp;
+        _index = index;
+        _offset = offset;
+        _length = length;
     }
 
     // ---------------------------------------------------------------
 
     /**
-     * send a request for an existing path/file in DxramFs and handles the response.
-     * Attention! The Request-Handling of this sended message is Outside of this Class!
-     * The Request Handling can use methods of the InHandler to get access.
+     * asks the owner of a Block (by its chunkid) for a range of it and waits for the GetBlockMessage.
      *
      * @param dxnet
-     * @return
+     * @return the Block or null, e.g. if the chunkid holds no longer this block of the file
      */
-    public boolean send(DXNet dxnet) {
+    public Block send(DXNet dxnet) {
         try {
-            AskBlockMessage._result = null;
-            dxnet.sendMessage(this);
-            while (AskBlockMessage._result == null) {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ignored) {
-                    // nothing.
-                    // maybe handle response here !!
-                }
-            }
+            dxnet.sendSync(this, DxramFsConfig.RPC_TIMEOUT, true);
+            GetBlockMessage response = getResponse(GetBlockMessage.class);
             LOG.debug("got Block by ask!");
-            if (AskBlockMessage.success) {
-                return true;
+            if (response.getSuccess()) {
+                return response.getData();
             } else {
-                return false;
+                return null;
             }
         } catch (NetworkException e) {
             e.printStackTrace();
-            return false;
-        }
-    }
-
-
-    public static class InHandler implements MessageReceiver {
-
-        public AskBlockMessage askMsg;
-
-        @Override
-        public void onIncomingMessage(Message p_message) {
-            askMsg = (AskBlockMessage) p_message;
-            LOG.info(askMsg._id);
+            return null;
         }
     }
 }
@@ -0,0 +1,97 @@
+package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+import de.hhu.bsinfo.dxnet.DXNet;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.NetworkException;
+import de.hhu.bsinfo.dxnet.core.Request;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * asks for the locations (owning dxram peer) of all blocks of a file in the byte range
+ * start, ..., start+len-1. hadoop uses them to schedule tasks near to the data.
+ */
+public class BlockLocationsMessage extends Request {
+
+    public static final Logger LOG = LogManager.getLogger(BlockLocationsMessage.class.getName());
+    public static final byte MTYPE = 42;
+    public static final byte TAG = 31;
+    private byte[] _data;
+    private long _start;
+    private long _len;
+
+    public String getData() {
+        return new String(_data, DxramFsConfig.STRING_STD_CHARSET);
+    }
+
+    public long getStart() {
+        return _start;
+    }
+
+    public long getLen() {
+        return _len;
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        return ObjectSizeUtil.sizeofByteArray(_data) + Long.BYTES + Long.BYTES;
+    }
+
+    @Override
+    protected final void writePayload(
+            final AbstractMessageExporter p_exporter
+    ) {
+        p_exporter.writeByteArray(_data);
+        p_exporter.writeLong(_start);
+        p_exporter.writeLong(_len);
+    }
+
+    @Override
+    protected final void readPayload(
+            final AbstractMessageImporter p_importer
+    ) {
+        _data = p_importer.readByteArray(_data);
+        _start = p_importer.readLong(_start);
+        _len = p_importer.readLong(_len);
+    }
+
+    // ---------------------------------------------------------------
+
+    public BlockLocationsMessage() {
+        super();
+    }
+
+    public BlockLocationsMessage(final short p_destination, final String p_data, final long p_start, final long p_len) {
+        super(p_destination, BlockLocationsMessage.MTYPE, BlockLocationsMessage.TAG);
+        _data = p_data.getBytes(DxramFsConfig.STRING_STD_CHARSET);
+        _start = p_start;
+        _len = p_len;
+    }
+
+    // ---------------------------------------------------------------
+
+    /**
+     * send the request and waits for the BlockLocationsResponse.
+     *
+     * @param dxnet
+     * @return the response or null, if the file does not exist
+     */
+    public BlockLocationsResponse send(DXNet dxnet) {
+        try {
+            dxnet.sendSync(this, DxramFsConfig.RPC_TIMEOUT, true);
+            BlockLocationsResponse response = getResponse(BlockLocationsResponse.class);
+            LOG.debug("got Response: " + response.getData());
+            if (response.isOk()) {
+                return response;
+            } else {
+                return null;
+            }
+        } catch (NetworkException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Request;
+import de.hhu.bsinfo.dxnet.core.Response;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+
+/**
+ * Response to BlockLocationsMessage: for each block the offset in the file, the used bytes,
+ * host, addr and port of the dxram peer with the BlockChunk and the dxnet node id of this peer
+ * (-1, if it has no dxnet mapping). Hosts and addrs are joined with "/". The chunkids of the BlockChunks
+ * allow a client to ask the owners for the blocks directly.
+ */
+public class BlockLocationsResponse extends Response {
+
+    public static final byte MTYPE = 42;
+    public static final byte TAG = 32;
+
+    private byte[] _data;
+    private long[] _offsets;
+    private long[] _lengths;
+    private byte[] _hosts;
+    private byte[] _addrs;
+    private int[] _ports;
+    private short[] _nodeIds;
+    private long[] _storageIds;
+
+    public String getData() {
+        return new String(_data, DxramFsConfig.STRING_STD_CHARSET);
+    }
+
+    public boolean isOk() {
+        return getData().startsWith("OK");
+    }
+
+    public long[] getOffsets() {
+        return _offsets;
+    }
+
+    public long[] getLengths() {
+        return _lengths;
+    }
+
+    public String[] getHosts() {
+        return split(_hosts);
+    }
+
+    public String[] getAddrs() {
+        return split(_addrs);
+    }
+
+    public int[] getPorts() {
+        return _ports;
+    }
+
+    public short[] getNodeIds() {
+        return _nodeIds;
+    }
+
+    public long[] getStorageIds() {
+        return _storageIds;
+    }
+
+    private String[] split(byte[] joined) {
+        if (_offsets.length == 0) return new String[0];
+        return new String(joined, DxramFsConfig.STRING_STD_CHARSET).split("/", -1);
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        int s = ObjectSizeUtil.sizeofByteArray(_data);
+        s += ObjectSizeUtil.sizeofLongArray(_offsets);
+        s += ObjectSizeUtil.sizeofLongArray(_lengths);
+        s += ObjectSizeUtil.sizeofByteArray(_hosts);
+        s += ObjectSizeUtil.sizeofByteArray(_addrs);
+        s += ObjectSizeUtil.sizeofIntArray(_ports);
+        s += ObjectSizeUtil.sizeofShortArray(_nodeIds);
+        s += ObjectSizeUtil.sizeofLongArray(_storageIds);
+        return s;
+    }
+
+    @Override
+    protected final void writePayload(
+            final AbstractMessageExporter p_exporter
+    ) {
+        p_exporter.writeByteArray(_data);
+        p_exporter.writeLongArray(_offsets);
+        p_exporter.writeLongArray(_lengths);
+        p_exporter.writeByteArray(_hosts);
+        p_exporter.writeByteArray(_addrs);
+        p_exporter.writeIntArray(_ports);
+        p_exporter.writeShortArray(_nodeIds);
+        p_exporter.writeLongArray(_storageIds);
+    }
+
+    @Override
+    protected final void readPayload(
+            final AbstractMessageImporter p_importer
+    ) {
+        _data = p_importer.readByteArray(_data);
+        _offsets = p_importer.readLongArray(_offsets);
+        _lengths = p_importer.readLongArray(_lengths);
+        _hosts = p_importer.readByteArray(_hosts);
+        _addrs = p_importer.readByteArray(_addrs);
+        _ports = p_importer.readIntArray(_ports);
+        _nodeIds = p_importer.readShortArray(_nodeIds);
+        _storageIds = p_importer.readLongArray(_storageIds);
+    }
+
+    // ---------------------------------------------------------------
+
+    public BlockLocationsResponse() {
+        super();
+    }
+
+    /**
+     * a failure without blocks
+     *
+     * @param p_request
+     * @param p_data
+     */
+    public BlockLocationsResponse(final Request p_request, final String p_data) {
+        this(p_request, p_data, new long[0], new long[0], new String[0], new String[0], new int[0], new short[0], new long[0]);
+    }
+
+    public BlockLocationsResponse(
+            final Request p_request, final String p_data,
+            final long[] p_offsets, final long[] p_lengths,
+            final String[] p_hosts, final String[] p_addrs, final int[] p_ports, final short[] p_nodeIds,
+            final long[] p_storageIds
+    ) {
+        super(p_request, BlockLocationsResponse.TAG);
+        _data = p_data.getBytes(DxramFsConfig.STRING_STD_CHARSET);
+        _offsets = p_offsets;
+        _lengths = p_lengths;
+        _hosts = String.join("/", p_hosts).getBytes(DxramFsConfig.STRING_STD_CHARSET);
+        _addrs = String.join("/", p_addrs).getBytes(DxramFsConfig.STRING_STD_CHARSET);
+        _ports = p_ports;
+        _nodeIds = p_nodeIds;
+        _storageIds = p_storageIds;
+    }
+}
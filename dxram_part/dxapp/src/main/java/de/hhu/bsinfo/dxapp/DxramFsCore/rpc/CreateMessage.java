@@ -2,18 +2,17 @@ package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
 
 import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
 import de.hhu.bsinfo.dxnet.DXNet;
-import de.hhu.bsinfo.dxnet.MessageReceiver;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
-import de.hhu.bsinfo.dxnet.core.Message;
 import de.hhu.bsinfo.dxnet.core.NetworkException;
+import de.hhu.bsinfo.dxnet.core.Request;
 import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.nio.charset.StandardCharsets;
 
-public class CreateMessage extends Message {
+public class CreateMessage extends Request {
 
     public static final Logger LOG = LogManager.getLogger(CreateMessage.class.getName());
     public static final byte MTYPE = 42;
@@ -30,9 +29,6 @@ public class CreateMessage extends Message {
     }
 
 
-    public static boolean gotResult;
-    public static CreateMessage result;
-
     public String getData() {
         return new String(data, DxramFsConfig.STRING_STD_CHARSET);
     }
@@ -80,7 +76,6 @@ public class CreateMessage extends Message {
     }
 
     private void fill(final byte[] p_data, final long fsNodeChunkId) {
-        gotResult = false;
         this.fsNodeChunkId = fsNodeChunkId;
         data = p_data;
     }
@@ -88,52 +83,21 @@ public class CreateMessage extends Message {
     // ---------------------------------------------------------------
 
     /**
-     * send a request for an existing path/file in DxramFs and handles the response.
-     * Attention! The Request-Handling of this sended message is Outside of this Class!
-     * The Request Handling can use methods of the InHandler to get access.
+     * creates a new empty file at the path and waits for the StatusResponse.
      *
      * @param dxnet
-     * @return
+     * @return true, if the file was created
      */
     public boolean send(DXNet dxnet) {
         try {
-            dxnet.sendMessage(this);
-            while (gotResult == false) {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ignored) {
-                    // nothing.
-                    // maybe handle response here !!
-                }
-            }
-            LOG.debug("got Response: " + result.getData());
-            if (result.getData().startsWith("OK")) {
-                return true;
-            } else {
-                return false;
-            }
+            dxnet.sendSync(this, DxramFsConfig.RPC_TIMEOUT, true);
+            StatusResponse response = getResponse(StatusResponse.class);
+            LOG.debug("got Response: " + response.getData());
+            fsNodeChunkId = response.getValue();
+            return response.isOk();
         } catch (NetworkException e) {
             e.printStackTrace();
             return false;
         }
     }
-
-
-    public static class InHandler implements MessageReceiver {
-
-        @Override
-        public void onIncomingMessage(Message p_message) {
-            result = (CreateMessage) p_message;
-            LOG.info(result.getData());
-            gotResult = true;
-        }
-
-        public Message Result() {
-            return result;
-        }
-
-        public boolean gotResult() {
-            return gotResult;
-        }
-    }
 }
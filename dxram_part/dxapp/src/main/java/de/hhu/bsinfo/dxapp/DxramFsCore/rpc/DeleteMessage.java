@@ -2,34 +2,38 @@ package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
 
 import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
 import de.hhu.bsinfo.dxnet.DXNet;
-import de.hhu.bsinfo.dxnet.MessageReceiver;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
-import de.hhu.bsinfo.dxnet.core.Message;
 import de.hhu.bsinfo.dxnet.core.NetworkException;
+import de.hhu.bsinfo.dxnet.core.Request;
 import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.nio.charset.StandardCharsets;
 
-public class DeleteMessage extends Message {
+public class DeleteMessage extends Request {
 
     public static final Logger LOG = LogManager.getLogger(DeleteMessage.class.getName());
     public static final byte MTYPE = 42;
     public static final byte TAG = 12;
     private byte[] data;
-
-    public static boolean gotResult;
-    public static DeleteMessage result;
+    private boolean _recursive;
 
     public String getData() {
         return new String(data, DxramFsConfig.STRING_STD_CHARSET);
     }
 
+    /**
+     * @return true, if the peer deletes a folder with all entries below it
+     */
+    public boolean isRecursive() {
+        return _recursive;
+    }
+
     @Override
     protected final int getPayloadLength() {
-        return ObjectSizeUtil.sizeofByteArray(data);
+        return ObjectSizeUtil.sizeofByteArray(data) + ObjectSizeUtil.sizeofBoolean();
     }
 
     @Override
@@ -37,6 +41,7 @@ public class DeleteMessage extends Message {
             final AbstractMessageExporter p_exporter
     ) {
         p_exporter.writeByteArray(data);
+        p_exporter.writeBoolean(_recursive);
     }
 
     @Override
@@ -44,6 +49,7 @@ public class DeleteMessage extends Message {
             final AbstractMessageImporter p_importer
     ) {
         data = p_importer.readByteArray(data);
+        _recursive = p_importer.readBoolean(_recursive);
     }
 
     // ---------------------------------------------------------------
@@ -58,60 +64,37 @@ public class DeleteMessage extends Message {
     }
 
     public DeleteMessage(final short p_destination, final String p_data) {
+        this(p_destination, p_data, false);
+    }
+
+    /**
+     * @param p_destination
+     * @param p_data path
+     * @param p_recursive the peer deletes the entries of a folder, too. Otherwise it only deletes empty folders
+     */
+    public DeleteMessage(final short p_destination, final String p_data, final boolean p_recursive) {
         super(p_destination, DeleteMessage.MTYPE, DeleteMessage.TAG);
-        gotResult = false;
         data = p_data.getBytes(DxramFsConfig.STRING_STD_CHARSET);
+        _recursive = p_recursive;
     }
 
     // ---------------------------------------------------------------
 
     /**
-     * send a request for an existing path/file in DxramFs and handles the response.
-     * Attention! The Request-Handling of this sended message is Outside of this Class!
-     * The Request Handling can use methods of the InHandler to get access.
+     * deletes the file or the empty folder at the path and waits for the StatusResponse.
      *
      * @param dxnet
-     * @return
+     * @return true, if it was deleted
      */
     public boolean send(DXNet dxnet) {
         try {
-            dxnet.sendMessage(this);
-            while (gotResult == false) {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ignored) {
-                    // nothing.
-                    // maybe handle response here !!
-                }
-            }
-            LOG.debug("got Response: " + result.getData());
-            if (result.getData().startsWith("OK")) {
-                return true;
-            } else {
-                return false;
-            }
+            dxnet.sendSync(this, DxramFsConfig.RPC_TIMEOUT, true);
+            StatusResponse response = getResponse(StatusResponse.class);
+            LOG.debug("got Response: " + response.getData());
+            return response.isOk();
         } catch (NetworkException e) {
             e.printStackTrace();
             return false;
         }
     }
-
-
-    public static class InHandler implements MessageReceiver {
-
-        @Override
-        public void onIncomingMessage(Message p_message) {
-            result = (DeleteMessage) p_message;
-            LOG.info(result.getData());
-            gotResult = true;
-        }
-
-        public Message Result() {
-            return result;
-        }
-
-        public boolean gotResult() {
-            return gotResult;
-        }
-    }
 }
@@ -2,27 +2,23 @@ package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
 
 import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
 import de.hhu.bsinfo.dxnet.DXNet;
-import de.hhu.bsinfo.dxnet.MessageReceiver;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
-import de.hhu.bsinfo.dxnet.core.Message;
 import de.hhu.bsinfo.dxnet.core.NetworkException;
+import de.hhu.bsinfo.dxnet.core.Request;
 import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.nio.charset.StandardCharsets;
 
-public class ExistsMessage extends Message {
+public class ExistsMessage extends Request {
 
     public static final Logger LOG = LogManager.getLogger(ExistsMessage.class.getName());
     public static final byte MTYPE = 42;
     public static final byte TAG = 13;
     private byte[] _data;
 
-    public static boolean gotResult;
-    public static ExistsMessage result;
-
     public String get_data() {
         return new String(_data, DxramFsConfig.STRING_STD_CHARSET);
     }
@@ -59,59 +55,26 @@ public class ExistsMessage extends Message {
 
     public ExistsMessage(final short p_destination, final String p_data) {
         super(p_destination, ExistsMessage.MTYPE, ExistsMessage.TAG);
-        gotResult = false;
         _data = p_data.getBytes(DxramFsConfig.STRING_STD_CHARSET);
     }
 
     // ---------------------------------------------------------------
 
     /**
-     * send a request for an existing path/file in DxramFs and handles the response.
-     * Attention! The Request-Handling of this sended message is Outside of this Class!
-     * The Request Handling can use methods of the InHandler to get access.
+     * asks, if the path exists, and waits for the StatusResponse.
      *
      * @param dxnet
-     * @return
+     * @return true, if the path exists
      */
     public boolean send(DXNet dxnet) {
         try {
-            dxnet.sendMessage(this);
-            while (gotResult == false) {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ignored) {
-                    // nothing.
-                    // maybe handle response here !!
-                }
-            }
-            LOG.debug("got Response: " + result.get_data());
-            if (result.get_data().startsWith("OK")) {
-                return true;
-            } else {
-                return false;
-            }
+            dxnet.sendSync(this, DxramFsConfig.RPC_TIMEOUT, true);
+            StatusResponse response = getResponse(StatusResponse.class);
+            LOG.debug("got Response: " + response.getData());
+            return response.isOk();
         } catch (NetworkException e) {
             e.printStackTrace();
             return false;
         }
     }
-
-
-    public static class InHandler implements MessageReceiver {
-
-        @Override
-        public void onIncomingMessage(Message p_message) {
-            result = (ExistsMessage) p_message;
-            LOG.info(result.get_data());
-            gotResult = true;
-        }
-
-        public Message Result() {
-            return result;
-        }
-
-        public boolean gotResult() {
-            return gotResult;
-        }
-    }
 }
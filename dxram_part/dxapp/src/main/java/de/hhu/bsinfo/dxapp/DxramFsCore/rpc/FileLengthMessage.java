@@ -2,18 +2,17 @@ package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
 
 import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
 import de.hhu.bsinfo.dxnet.DXNet;
-import de.hhu.bsinfo.dxnet.MessageReceiver;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
-import de.hhu.bsinfo.dxnet.core.Message;
 import de.hhu.bsinfo.dxnet.core.NetworkException;
+import de.hhu.bsinfo.dxnet.core.Request;
 import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.nio.charset.StandardCharsets;
 
-public class FileLengthMessage extends Message {
+public class FileLengthMessage extends Request {
 
     public static final Logger LOG = LogManager.getLogger(FileLengthMessage.class.getName());
     public static final byte MTYPE = 42;
@@ -21,9 +20,6 @@ public class FileLengthMessage extends Message {
     private byte[] _data;
     private long _length;
 
-    public static boolean gotResult;
-    public static FileLengthMessage result;
-
     public String get_data() {
         return new String(_data, DxramFsConfig.STRING_STD_CHARSET);
     }
@@ -72,7 +68,6 @@ public class FileLengthMessage extends Message {
 
     public FileLengthMessage(final short p_destination, final String p_data) {
         super(p_destination, FileLengthMessage.MTYPE, FileLengthMessage.TAG);
-        gotResult = false;
         _data = p_data.getBytes(DxramFsConfig.STRING_STD_CHARSET);
         _length = -1;
     }
@@ -80,27 +75,18 @@ public class FileLengthMessage extends Message {
     // ---------------------------------------------------------------
 
     /**
-     * send a request for an existing path/file in DxramFs and handles the response.
-     * Attention! The Request-Handling of this sended message is Outside of this Class!
-     * The Request Handling can use methods of the InHandler to get access.
+     * asks for the length of the file at the path and waits for the StatusResponse.
      *
      * @param dxnet
-     * @return
+     * @return the length in bytes or -1, if the file does not exist
      */
     public long send(DXNet dxnet) {
         try {
-            dxnet.sendMessage(this);
-            while (gotResult == false) {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ignored) {
-                    // nothing.
-                    // maybe handle response here !!
-                }
-            }
-            LOG.debug("got Response: " + result.get_data());
-            if (result.get_data().startsWith("OK")) {
-                return result.get_length();
+            dxnet.sendSync(this, DxramFsConfig.RPC_TIMEOUT, true);
+            StatusResponse response = getResponse(StatusResponse.class);
+            LOG.debug("got Response: " + response.getData());
+            if (response.isOk()) {
+                return response.getValue();
             } else {
                 return -1;
             }
@@ -109,23 +95,4 @@ public class FileLengthMessage extends Message {
             return -1;
         }
     }
-
-
-    public static class InHandler implements MessageReceiver {
-
-        @Override
-        public void onIncomingMessage(Message p_message) {
-            result = (FileLengthMessage) p_message;
-            LOG.info(result.get_data());
-            gotResult = true;
-        }
-
-        public Message Result() {
-            return result;
-        }
-
-        public boolean gotResult() {
-            return gotResult;
-        }
-    }
 }
@@ -1,30 +1,25 @@
 package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
 
 import de.hhu.bsinfo.dxapp.dxramfscore.Block;
+import de.hhu.bsinfo.dxapp.dxramfscore.BlockPool;
 import de.hhu.bsinfo.dxapp.dxramfscore.Blockinfo;
 import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
 import de.hhu.bsinfo.dxapp.dxramfscore.FsNode;
 import de.hhu.bsinfo.dxnet.DXNet;
-import de.hhu.bsinfo.dxnet.MessageReceiver;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
-import de.hhu.bsinfo.dxnet.core.Message;
 import de.hhu.bsinfo.dxnet.core.NetworkException;
+import de.hhu.bsinfo.dxnet.core.Request;
 import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-public class FlushMessage extends Message {
+public class FlushMessage extends Request {
 
     public static final Logger LOG = LogManager.getLogger(FlushMessage.class.getName());
     public static final byte MTYPE = 42;
     public static final byte TAG = 23;
 
-    // response handling
-
-    public static FlushOkMessage result;
-    public static boolean success;
-
     // submitted data:
 
     private long _ID;
@@ -34,19 +29,26 @@ public class FlushMessage extends Message {
     private int _refSize;
     private long _backId;
     private long _forwardId;
+    private long _stamp;
     private long[] _refIds;
 
-    private long _biID;
     private int _offset;
     private int _length;
     private boolean _corrupt;
     private long _storageId;
-    private byte[] _host;
-    private byte[] _addr;
-    private int _port;
 
     private long _bID;
     private byte[] _data;
+    // only the bytes [_dataOffset, _dataOffset + _dataLength) of the block are submitted
+    private int _dataOffset;
+    private int _dataLength;
+    // index of the submitted range in _data: _dataOffset in the block of the client, 0 in a received message
+    private int _arrayOffset;
+    // > 1, if the range of the flush is split into fragment messages. The peer stores the block,
+    // if it has got all of them
+    private int _fragments = 1;
+    // dxram node id of the peer, which got the flush from the client (-1 = the receiving peer)
+    private short _nearPeer = -1;
 
     // getter and setter
 
@@ -59,6 +61,7 @@ public class FlushMessage extends Message {
         fsn.refSize = _refSize;
         fsn.backId = _backId;
         fsn.forwardId = _forwardId;
+        fsn.stamp = _stamp;
         fsn.refIds = _refIds;
         return fsn;
     }
@@ -76,19 +79,17 @@ public class FlushMessage extends Message {
         this._refSize = fsn.refSize;
         this._backId = fsn.backId;
         this._forwardId = fsn.forwardId;
+        this._stamp = fsn.stamp;
         this._refIds = fsn.refIds;
     }
 
     public Blockinfo getBlockinfo() {
         Blockinfo bi = new Blockinfo();
-        bi.ID = _biID;
+        bi.init();
         bi.offset = _offset;
         bi.length = _length;
         bi.corrupt = _corrupt;
         bi.storageId = _storageId;
-        bi.host = new String(_host, DxramFsConfig.STRING_STD_CHARSET);
-        bi.addr = new String(_addr, DxramFsConfig.STRING_STD_CHARSET);
-        bi.port = _port;
         return bi;
     }
 
@@ -96,18 +97,19 @@ public class FlushMessage extends Message {
         if (bi == null) {
             bi = new Blockinfo();
             bi.init();
-            bi.ID = DxramFsConfig.INVALID_ID;
         }
-        this._biID = bi.ID;
         this._offset = bi.offset;
         this._length = bi.length;
         this._corrupt = bi.corrupt;
         this._storageId = bi.storageId;
-        this._host = bi.host.getBytes(DxramFsConfig.STRING_STD_CHARSET);
-        this._addr = bi.addr.getBytes(DxramFsConfig.STRING_STD_CHARSET);
-        this._port = bi.port;
     }
 
+    /**
+     * the received block holds only the submitted range of the data. Use getDataOffset() to
+     * patch it into the stored block.
+     *
+     * @return
+     */
     public Block getBlock() {
         Block block = new Block();
         block.ID = _bID;
@@ -123,6 +125,61 @@ public class FlushMessage extends Message {
         }
         this._bID = b.ID;
         this._data = b._data;
+        this._dataOffset = 0;
+        this._dataLength = b._data.length;
+        this._arrayOffset = 0;
+    }
+
+    /**
+     * submit only the bytes from, ..., to-1 of the block data.
+     *
+     * @param from
+     * @param to
+     */
+    public void setRange(int from, int to) {
+        if (from < 0 || to > _data.length || from > to) {
+            throw new IndexOutOfBoundsException("range " + from + ".." + to + " of block data");
+        }
+        this._dataOffset = from;
+        this._dataLength = to - from;
+        this._arrayOffset = from;
+    }
+
+    public int getDataOffset() {
+        return _dataOffset;
+    }
+
+    public int getFragments() {
+        return _fragments;
+    }
+
+    /**
+     * @param fragments number of FlushMessages with the parts of the same flush range
+     */
+    public void setFragments(int fragments) {
+        this._fragments = fragments;
+    }
+
+    /**
+     * @return dxram node id of the peer, which got the flush from the client, or -1, if it is the receiving peer
+     */
+    public short getNearPeer() {
+        return _nearPeer;
+    }
+
+    /**
+     * a received flush for an other peer: the copy has the same range (and fragment) of the block.
+     *
+     * @param p_destination
+     * @param p_nearPeer dxram node id of the peer, which got the flush from the client
+     * @return
+     */
+    public FlushMessage forward(final short p_destination, final short p_nearPeer) {
+        FlushMessage copy = new FlushMessage(p_destination, getFsNode(), getBlockinfo(), getBlock());
+        copy._dataOffset = _dataOffset;
+        copy._fragments = _fragments;
+        copy._nearPeer = p_nearPeer;
+        return copy;
     }
 
     // Data transfer handling
@@ -136,19 +193,19 @@ public class FlushMessage extends Message {
         s += Integer.BYTES;
         s += Long.BYTES;
         s += Long.BYTES;
+        s += Long.BYTES;
         s += ObjectSizeUtil.sizeofLongArray(_refIds);
 
-        s += Long.BYTES;
         s += Integer.BYTES;
         s += Integer.BYTES;
         s += ObjectSizeUtil.sizeofBoolean();
         s += Long.BYTES;
-        s += ObjectSizeUtil.sizeofByteArray(_host);
-        s += ObjectSizeUtil.sizeofByteArray(_addr);
-        s += Integer.BYTES;
 
         s += Long.BYTES;
-        s += ObjectSizeUtil.sizeofByteArray(_data);
+        s += Integer.BYTES;
+        s += Integer.BYTES;
+        s += Short.BYTES;
+        s += ObjectSizeUtil.sizeofCompactedNumber(_dataLength) + _dataLength;
         return s;
     }
 
@@ -163,19 +220,21 @@ public class FlushMessage extends Message {
         p_exporter.writeInt(_refSize);
         p_exporter.writeLong(_backId);
         p_exporter.writeLong(_forwardId);
+        p_exporter.writeLong(_stamp);
         p_exporter.writeLongArray(_refIds);
 
-        p_exporter.writeLong(_biID);
         p_exporter.writeInt(_offset);
         p_exporter.writeInt(_length);
         p_exporter.writeBoolean(_corrupt);
         p_exporter.writeLong(_storageId);
-        p_exporter.writeByteArray(_host);
-        p_exporter.writeByteArray(_addr);
-        p_exporter.writeInt(_port);
 
         p_exporter.writeLong(_bID);
-        p_exporter.writeByteArray(_data);
+        p_exporter.writeInt(_dataOffset);
+        p_exporter.writeInt(_fragments);
+        p_exporter.writeShort(_nearPeer);
+        // like writeByteArray(), but without copying the range
+        p_exporter.writeCompactNumber(_dataLength);
+        p_exporter.writeBytes(_data, _arrayOffset, _dataLength);
     }
 
     @Override
@@ -189,19 +248,24 @@ public class FlushMessage extends Message {
         _refSize = p_importer.readInt(_refSize);
         _backId = p_importer.readLong(_backId);
         _forwardId = p_importer.readLong(_forwardId);
+        _stamp = p_importer.readLong(_stamp);
         _refIds = p_importer.readLongArray(_refIds);
 
-        _biID = p_importer.readLong(_biID);
         _offset = p_importer.readInt(_offset);
         _length = p_importer.readInt(_length);
         _corrupt = p_importer.readBoolean(_corrupt);
         _storageId = p_importer.readLong(_storageId);
-        _host = p_importer.readByteArray(_host);
-        _addr = p_importer.readByteArray(_addr);
-        _port = p_importer.readInt(_port);
 
         _bID = p_importer.readLong(_bID);
-        _data = p_importer.readByteArray(_data);
+        _dataOffset = p_importer.readInt(_dataOffset);
+        _fragments = p_importer.readInt(_fragments);
+        _nearPeer = p_importer.readShort(_nearPeer);
+        // same format as readByteArray(), but a full block goes into a recycled array of the BlockPool
+        _dataLength = p_importer.readCompactNumber(_dataLength);
+        if (_data == null || _data.length != _dataLength) {
+            _data = BlockPool.take(_dataLength);
+        }
+        p_importer.readBytes(_data, 0, _dataLength);
     }
 
     // ---------------------------------------------------------------
@@ -212,8 +276,6 @@ public class FlushMessage extends Message {
 
     public FlushMessage(final short p_destination) {
         super(p_destination, FlushMessage.MTYPE, FlushMessage.TAG);
-        result = null;
-        success = false;
         setFsNode(null);
         setBlockinfo(null);
         setBlock(null);
@@ -221,49 +283,33 @@ public class FlushMessage extends Message {
 
     public FlushMessage(final short p_destination, final FsNode fsNode, final Blockinfo blockinfo, final Block block) {
         super(p_destination, FlushMessage.MTYPE, FlushMessage.TAG);
-        result = null;
-        success = false;
         setFsNode(fsNode);
         setBlockinfo(blockinfo);
         setBlock(block);
     }
 
+    public FlushMessage(final short p_destination, final FsNode fsNode, final Blockinfo blockinfo, final Block block, final int from, final int to) {
+        this(p_destination, fsNode, blockinfo, block);
+        setRange(from, to);
+    }
+
     // ---------------------------------------------------------------
 
     /**
-     * send a request for an existing path/file in DxramFs and handles the response.
-     * Attention! The Request-Handling of this sended message is Outside of this Class!
-     * The Request Handling can use methods of the InHandler to get access.
+     * sends FsNode, Blockinfo and the (dirty part of the) Block to the dxramFsApp and waits for the FlushOkMessage.
      *
      * @param dxnet
-     * @return
+     * @return true, if the range is stored
      */
     public boolean send(DXNet dxnet) {
         try {
-            FlushMessage.result = null;
-            dxnet.sendMessage(this);
-            while (FlushMessage.result == null) { // waiting for a FlushOkMessage
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ignored) { }
-            }
-            return FlushMessage.success; // this success data was written by the FlushOkMessage Handler!
+            dxnet.sendSync(this, DxramFsConfig.RPC_TIMEOUT, true);
+            FlushOkMessage response = getResponse(FlushOkMessage.class);
+            return response.getSuccess();
 
         } catch (NetworkException e) {
             e.printStackTrace();
             return false;
         }
     }
-
-
-    // used by the dxramApp to handle incoming data
-    public static class InHandler implements MessageReceiver {
-
-        public FlushMessage dataMsg;
-
-        @Override
-        public void onIncomingMessage(Message p_message) {
-            dataMsg = (FlushMessage) p_message;
-        }
-    }
 }
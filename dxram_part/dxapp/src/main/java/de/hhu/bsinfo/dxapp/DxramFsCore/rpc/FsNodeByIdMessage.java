@@ -3,79 +3,28 @@ package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
 import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
 import de.hhu.bsinfo.dxapp.dxramfscore.FsNode;
 import de.hhu.bsinfo.dxnet.DXNet;
-import de.hhu.bsinfo.dxnet.MessageReceiver;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
-import de.hhu.bsinfo.dxnet.core.Message;
 import de.hhu.bsinfo.dxnet.core.NetworkException;
+import de.hhu.bsinfo.dxnet.core.Request;
 import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-public class FsNodeByIdMessage extends Message {
+public class FsNodeByIdMessage extends Request {
 
     public static final Logger LOG = LogManager.getLogger(FsNodeByIdMessage.class.getName());
     public static final byte MTYPE = 42;
     public static final byte TAG = 22;
     private byte[] _data;
 
-    private long _ID;
-    private long _size;
-    private byte[] _name;
-    private int _type;
-    private int _refSize;
-    private long _backId;
-    private long _forwardId;
-    private long[] _refIds;
-
-    public static boolean gotResult;
-    public static FsNodeByIdMessage result;
-
     public String get_data() {
         return new String(_data, DxramFsConfig.STRING_STD_CHARSET);
     }
 
-    public FsNode get_fsNode() {
-        FsNode fsn = new FsNode();
-        fsn.ID = _ID;
-        fsn.size = _size;
-        fsn.name = new String(_name, DxramFsConfig.STRING_STD_CHARSET);
-        fsn.type = _type;
-        fsn.refSize = _refSize;
-        fsn.backId = _backId;
-        fsn.forwardId = _forwardId;
-        fsn.refIds = _refIds;
-        return fsn;
-    }
-
-    public void set_fsNode(FsNode fsn) {
-        if (fsn == null) {
-            fsn = new FsNode();
-            fsn.init();
-            fsn.ID = DxramFsConfig.INVALID_ID;
-        }
-        this._ID = fsn.ID;
-        this._size = fsn.size;
-        this._name = fsn.name.getBytes(DxramFsConfig.STRING_STD_CHARSET);
-        this._type = fsn.type;
-        this._refSize = fsn.refSize;
-        this._backId = fsn.backId;
-        this._forwardId = fsn.forwardId;
-        this._refIds = fsn.refIds;
-    }
-
     @Override
     protected final int getPayloadLength() {
-        int s = ObjectSizeUtil.sizeofByteArray(_data);
-        s += Long.BYTES;
-        s += Long.BYTES;
-        s += ObjectSizeUtil.sizeofByteArray(_name);
-        s += Integer.BYTES;
-        s += Integer.BYTES;
-        s += Long.BYTES;
-        s += Long.BYTES;
-        s += ObjectSizeUtil.sizeofLongArray(_refIds);
-        return s;
+        return ObjectSizeUtil.sizeofByteArray(_data);
     }
 
     @Override
@@ -83,14 +32,6 @@ public class FsNodeByIdMessage extends Message {
             final AbstractMessageExporter p_exporter
     ) {
         p_exporter.writeByteArray(_data);
-        p_exporter.writeLong(_ID);
-        p_exporter.writeLong(_size);
-        p_exporter.writeByteArray(_name);
-        p_exporter.writeInt(_type);
-        p_exporter.writeInt(_refSize);
-        p_exporter.writeLong(_backId);
-        p_exporter.writeLong(_forwardId);
-        p_exporter.writeLongArray(_refIds);
     }
 
     @Override
@@ -98,14 +39,6 @@ public class FsNodeByIdMessage extends Message {
             final AbstractMessageImporter p_importer
     ) {
         _data = p_importer.readByteArray(_data);
-        _ID = p_importer.readLong(_ID);
-        _size = p_importer.readLong(_size);
-        _name = p_importer.readByteArray(_name);
-        _type = p_importer.readInt(_type);
-        _refSize = p_importer.readInt(_refSize);
-        _backId = p_importer.readLong(_backId);
-        _forwardId = p_importer.readLong(_forwardId);
-        _refIds = p_importer.readLongArray(_refIds);
     }
 
     // ---------------------------------------------------------------
@@ -117,40 +50,28 @@ public class FsNodeByIdMessage extends Message {
     public FsNodeByIdMessage(final short p_destination) {
         super(p_destination, FsNodeByIdMessage.MTYPE, FsNodeByIdMessage.TAG);
         _data = new byte[DxramFsConfig.max_pathlength_chars];
-        set_fsNode(null);
     }
 
-    public FsNodeByIdMessage(final short p_destination, final String p_data) {
+    public FsNodeByIdMessage(final short p_destination, final String _data) {
         super(p_destination, FsNodeByIdMessage.MTYPE, FsNodeByIdMessage.TAG);
-        gotResult = false;
-        _data = p_data.getBytes(DxramFsConfig.STRING_STD_CHARSET);
-        set_fsNode(null);
+        this._data = _data.getBytes(DxramFsConfig.STRING_STD_CHARSET);
     }
 
     // ---------------------------------------------------------------
 
     /**
-     * send a request for an existing path/file in DxramFs and handles the response.
-     * Attention! The Request-Handling of this sended message is Outside of this Class!
-     * The Request Handling can use methods of the InHandler to get access.
+     * asks for the FsNode of a chunkid and waits for the FsNodeResponse.
      *
      * @param dxnet
-     * @return
+     * @return the FsNode or null
      */
     public FsNode send(DXNet dxnet) {
         try {
-            dxnet.sendMessage(this);
-            while (gotResult == false) {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ignored) {
-                    // nothing.
-                    // maybe handle response here !!
-                }
-            }
-            LOG.debug("got Response: " + result.get_data());
-            if (result.get_data().startsWith("OK")) {
-                return result.get_fsNode();
+            dxnet.sendSync(this, DxramFsConfig.RPC_TIMEOUT, true);
+            FsNodeResponse response = getResponse(FsNodeResponse.class);
+            LOG.debug("got Response: " + response.get_data());
+            if (response.isOk()) {
+                return response.get_fsNode();
             } else {
                 return null;
             }
@@ -159,23 +80,4 @@ public class FsNodeByIdMessage extends Message {
             return null;
         }
     }
-
-
-    public static class InHandler implements MessageReceiver {
-
-        @Override
-        public void onIncomingMessage(Message p_message) {
-            result = (FsNodeByIdMessage) p_message;
-            LOG.info(result.get_data());
-            gotResult = true;
-        }
-
-        public Message Result() {
-            return result;
-        }
-
-        public boolean gotResult() {
-            return gotResult;
-        }
-    }
 }
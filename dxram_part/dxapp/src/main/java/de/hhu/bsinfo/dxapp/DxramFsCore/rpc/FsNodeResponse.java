@@ -0,0 +1,154 @@
+package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
+
+import java.util.Arrays;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+import de.hhu.bsinfo.dxapp.dxramfscore.FsNode;
+import de.hhu.bsinfo.dxapp.dxramfscore.FsNodeType;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Request;
+import de.hhu.bsinfo.dxnet.core.Response;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+
+/**
+ * Response to FsNodeMessage and FsNodeByIdMessage: a status string and the requested FsNode.
+ */
+public class FsNodeResponse extends Response {
+
+    public static final byte MTYPE = 42;
+    public static final byte TAG = 26;
+
+    private byte[] _data;
+
+    private long _ID;
+    private long _size;
+    private int _type;
+    private int _refSize;
+    private long _backId;
+    private long _forwardId;
+    private long _stamp;
+    private byte[] _name;
+    private long[] _refIds;
+    private int[] _blockLengths;
+    private short[] _blockOwners;
+    // the used bytes of a small file without blocks
+    private byte[] _inline;
+
+    public String get_data() {
+        return new String(_data, DxramFsConfig.STRING_STD_CHARSET);
+    }
+
+    public boolean isOk() {
+        return get_data().startsWith("OK");
+    }
+
+    public FsNode get_fsNode() {
+        FsNode fsn = new FsNode();
+        fsn.ID = _ID;
+        fsn.size = _size;
+        fsn.type = _type;
+        fsn.refSize = _refSize;
+        fsn.backId = _backId;
+        fsn.forwardId = _forwardId;
+        fsn.stamp = _stamp;
+        fsn.name = new String(_name, DxramFsConfig.STRING_STD_CHARSET);
+        fsn.refIds = _refIds;
+        fsn.blockLengths = _blockLengths;
+        fsn.blockOwners = _blockOwners;
+        fsn.inline = _inline;
+        return fsn;
+    }
+
+    public void set_fsNode(FsNode fsn) {
+        if (fsn == null) {
+            fsn = new FsNode();
+            fsn.init();
+            fsn.ID = DxramFsConfig.INVALID_ID;
+        }
+        this._ID = fsn.ID;
+        this._size = fsn.size;
+        this._type = fsn.type;
+        this._refSize = fsn.refSize;
+        this._backId = fsn.backId;
+        this._forwardId = fsn.forwardId;
+        this._stamp = fsn.stamp;
+        this._name = fsn.name.getBytes(DxramFsConfig.STRING_STD_CHARSET);
+        this._refIds = fsn.refIds;
+        this._blockLengths = fsn.blockLengths;
+        this._blockOwners = fsn.blockOwners;
+        if (fsn.type == FsNodeType.FILE && fsn.refSize == 0) {
+            this._inline = Arrays.copyOf(fsn.inline, (int) Math.min(fsn.size, fsn.inline.length));
+        } else {
+            this._inline = new byte[0];
+        }
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        int s = ObjectSizeUtil.sizeofByteArray(_data);
+        s += Long.BYTES;
+        s += Long.BYTES;
+        s += Integer.BYTES;
+        s += Integer.BYTES;
+        s += Long.BYTES;
+        s += Long.BYTES;
+        s += Long.BYTES;
+        s += ObjectSizeUtil.sizeofByteArray(_name);
+        s += ObjectSizeUtil.sizeofLongArray(_refIds);
+        s += ObjectSizeUtil.sizeofIntArray(_blockLengths);
+        s += ObjectSizeUtil.sizeofShortArray(_blockOwners);
+        s += ObjectSizeUtil.sizeofByteArray(_inline);
+        return s;
+    }
+
+    @Override
+    protected final void writePayload(
+            final AbstractMessageExporter p_exporter
+    ) {
+        p_exporter.writeByteArray(_data);
+        p_exporter.writeLong(_ID);
+        p_exporter.writeLong(_size);
+        p_exporter.writeInt(_type);
+        p_exporter.writeInt(_refSize);
+        p_exporter.writeLong(_backId);
+        p_exporter.writeLong(_forwardId);
+        p_exporter.writeLong(_stamp);
+        p_exporter.writeByteArray(_name);
+        p_exporter.writeLongArray(_refIds);
+        p_exporter.writeIntArray(_blockLengths);
+        p_exporter.writeShortArray(_blockOwners);
+        p_exporter.writeByteArray(_inline);
+    }
+
+    @Override
+    protected final void readPayload(
+            final AbstractMessageImporter p_importer
+    ) {
+        _data = p_importer.readByteArray(_data);
+        _ID = p_importer.readLong(_ID);
+        _size = p_importer.readLong(_size);
+        _type = p_importer.readInt(_type);
+        _refSize = p_importer.readInt(_refSize);
+        _backId = p_importer.readLong(_backId);
+        _forwardId = p_importer.readLong(_forwardId);
+        _stamp = p_importer.readLong(_stamp);
+        _name = p_importer.readByteArray(_name);
+        _refIds = p_importer.readLongArray(_refIds);
+        _blockLengths = p_importer.readIntArray(_blockLengths);
+        _blockOwners = p_importer.readShortArray(_blockOwners);
+        _inline = p_importer.readByteArray(_inline);
+    }
+
+    // ---------------------------------------------------------------
+
+    public FsNodeResponse() {
+        super();
+    }
+
+    public FsNodeResponse(final Request p_request, final String p_data, final FsNode p_fsNode) {
+        super(p_request, FsNodeResponse.TAG);
+        _data = p_data.getBytes(DxramFsConfig.STRING_STD_CHARSET);
+        set_fsNode(p_fsNode);
+    }
+}
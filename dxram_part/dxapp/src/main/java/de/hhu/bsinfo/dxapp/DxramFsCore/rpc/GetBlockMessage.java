@@ -1,30 +1,27 @@
 package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
 
 import de.hhu.bsinfo.dxapp.dxramfscore.Block;
+import de.hhu.bsinfo.dxapp.dxramfscore.BlockPool;
 import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
-import de.hhu.bsinfo.dxnet.DXNet;
-import de.hhu.bsinfo.dxnet.MessageReceiver;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
-import de.hhu.bsinfo.dxnet.core.Message;
-import de.hhu.bsinfo.dxnet.core.NetworkException;
+import de.hhu.bsinfo.dxnet.core.Response;
 import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
-public class GetBlockMessage extends Message {
+/**
+ * Response to AskBlockMessage with the data of the Block. Give the data of a full block back
+ * to the BlockPool, if you do not need it anymore.
+ */
+public class GetBlockMessage extends Response {
 
-    public static final Logger LOG = LogManager.getLogger(GetBlockMessage.class.getName());
     public static final byte MTYPE = 42;
     public static final byte TAG = 18;
 
     private long bID;
     private byte[] bdata;
+    private int _bLength;
     private boolean _success;
 
-    public static boolean gotResult;
-    public static GetBlockMessage result;
-
     public Block getData() {
         Block _block = new Block();
         _block.ID = bID;
@@ -59,7 +56,12 @@ public class GetBlockMessage extends Message {
             final AbstractMessageImporter p_importer
     ) {
         bID = p_importer.readLong(bID);
-        bdata = p_importer.readByteArray(bdata);
+        // same format as readByteArray(), but a full block goes into a recycled array of the BlockPool
+        _bLength = p_importer.readCompactNumber(_bLength);
+        if (bdata == null || bdata.length != _bLength) {
+            bdata = BlockPool.take(_bLength);
+        }
+        p_importer.readBytes(bdata, 0, _bLength);
         _success = p_importer.readBoolean(_success);
     }
 
@@ -70,34 +72,17 @@ public class GetBlockMessage extends Message {
     }
 
 
-    // @todo: response Message (requestBlockMassage, responseBlockMessageS)
-
-    public GetBlockMessage(final short p_destination) {
-        super(p_destination, GetBlockMessage.MTYPE, GetBlockMessage.TAG);
-        gotResult = false;
-        bID = DxramFsConfig.INVALID_ID;
-        bdata = new byte[DxramFsConfig.file_blocksize];
+    public GetBlockMessage(final AskBlockMessage p_request) {
+        super(p_request, GetBlockMessage.TAG);
+        bID = p_request.getAskBlockId();
+        bdata = new byte[0];
         _success = false;
     }
 
-    public GetBlockMessage(final short p_destination, final Block p_data) {
-        super(p_destination, GetBlockMessage.MTYPE, GetBlockMessage.TAG);
-        gotResult = false;
+    public GetBlockMessage(final AskBlockMessage p_request, final Block p_data) {
+        super(p_request, GetBlockMessage.TAG);
         bID = p_data.ID;
         bdata = p_data._data;
         _success = false;
     }
-
-    // ---------------------------------------------------------------
-
-    public static class InHandler implements MessageReceiver {
-
-        @Override
-        public void onIncomingMessage(Message p_message) {
-            result = (GetBlockMessage) p_message;
-            LOG.info("get block");
-            AskBlockMessage.success = result.getSuccess();
-            AskBlockMessage._result = result.getData();
-        }
-    }
 }
@@ -0,0 +1,67 @@
+package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Message;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+
+/**
+ * a peer sends it to each hadoop node with a lease on a path (see FsNodeMessage), if the path
+ * is changed (delete, rename, flush). The hadoop node drops the path from its metadata cache.
+ * It is not a request: the peer does not wait for an answer.
+ *
+ * The namespace peer sends it to the other peers with a lease on the path, too (see WatchMessage): they
+ * drop the path from their path cache and notify the hadoop nodes with a lease of them.
+ */
+public class InvalidateMessage extends Message {
+
+    public static final byte MTYPE = 42;
+    public static final byte TAG = 30;
+    private byte[] _data;
+    private boolean _subtree;
+
+    public String getData() {
+        return new String(_data, DxramFsConfig.STRING_STD_CHARSET);
+    }
+
+    /**
+     * @return true, if all paths below this path are invalid, too
+     */
+    public boolean isSubtree() {
+        return _subtree;
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        return ObjectSizeUtil.sizeofByteArray(_data) + ObjectSizeUtil.sizeofBoolean();
+    }
+
+    @Override
+    protected final void writePayload(
+            final AbstractMessageExporter p_exporter
+    ) {
+        p_exporter.writeByteArray(_data);
+        p_exporter.writeBoolean(_subtree);
+    }
+
+    @Override
+    protected final void readPayload(
+            final AbstractMessageImporter p_importer
+    ) {
+        _data = p_importer.readByteArray(_data);
+        _subtree = p_importer.readBoolean(_subtree);
+    }
+
+    // ---------------------------------------------------------------
+
+    public InvalidateMessage() {
+        super();
+    }
+
+    public InvalidateMessage(final short p_destination, final String p_data, final boolean p_subtree) {
+        super(p_destination, InvalidateMessage.MTYPE, InvalidateMessage.TAG);
+        _data = p_data.getBytes(DxramFsConfig.STRING_STD_CHARSET);
+        _subtree = p_subtree;
+    }
+}
@@ -2,16 +2,15 @@ package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
 
 import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
 import de.hhu.bsinfo.dxnet.DXNet;
-import de.hhu.bsinfo.dxnet.MessageReceiver;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
-import de.hhu.bsinfo.dxnet.core.Message;
 import de.hhu.bsinfo.dxnet.core.NetworkException;
+import de.hhu.bsinfo.dxnet.core.Request;
 import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-public class ListMessage extends Message {
+public class ListMessage extends Request {
 
     public static final Logger LOG = LogManager.getLogger(ListMessage.class.getName());
     public static final byte MTYPE = 42;
@@ -19,9 +18,6 @@ public class ListMessage extends Message {
     private byte[] _data;
     private int _count;
 
-    public static boolean gotResult;
-    public static ListMessage result;
-
     public String getData() {
         return new String(_data, DxramFsConfig.STRING_STD_CHARSET);
     }
@@ -65,7 +61,6 @@ public class ListMessage extends Message {
 
     public ListMessage(final short p_destination, final String p_data, final int p_count) {
         super(p_destination, ListMessage.MTYPE, ListMessage.TAG);
-        gotResult = false;
         _data = p_data.getBytes(DxramFsConfig.STRING_STD_CHARSET);
         _count = p_count;
     }
@@ -73,52 +68,24 @@ public class ListMessage extends Message {
     // ---------------------------------------------------------------
 
     /**
-     * send a request for an existing path/file in DxramFs and handles the response.
-     * Attention! The Request-Handling of this sended message is Outside of this Class!
-     * The Request Handling can use methods of the InHandler to get access.
+     * asks for the names of all entries in the folder and waits for the StatusResponse.
      *
      * @param dxnet
-     * @return
+     * @return the names or null, if the folder is empty or does not exist
      */
     public String[] send(DXNet dxnet) {
         try {
-            dxnet.sendMessage(this);
-            while (gotResult == false) {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ignored) {
-                    // nothing.
-                    // maybe handle response here !!
-                }
-            }
-            LOG.debug("got Response: " + result.getData());
-            if (result.getCount() < 1) { // good till < 0,but < 1 may be better?!
+            dxnet.sendSync(this, DxramFsConfig.RPC_TIMEOUT, true);
+            StatusResponse response = getResponse(StatusResponse.class);
+            LOG.debug("got Response: " + response.getData());
+            if (response.getValue() < 1) { // good till < 0,but < 1 may be better?!
                 return null;
             } else {
-                return result.getData().split("/");
+                return response.getData().split("/");
             }
         } catch (NetworkException e) {
             e.printStackTrace();
             return null;
         }
     }
-
-
-    public static class InHandler implements MessageReceiver {
-
-        @Override
-        public void onIncomingMessage(Message p_message) {
-            result = (ListMessage) p_message;
-            LOG.info(result.getData());
-            gotResult = true;
-        }
-
-        public Message Result() {
-            return result;
-        }
-
-        public boolean gotResult() {
-            return gotResult;
-        }
-    }
 }
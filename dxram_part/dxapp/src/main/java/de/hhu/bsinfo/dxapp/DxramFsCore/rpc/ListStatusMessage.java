@@ -0,0 +1,103 @@
+package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+import de.hhu.bsinfo.dxnet.DXNet;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.NetworkException;
+import de.hhu.bsinfo.dxnet.core.Request;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * like ListMessage, but the peer sends name, type, size and block count of each entry.
+ * Thus hadoop needs no exists/isDirectory/length requests for each entry of a folder.
+ * The entries come in the order of their name hash (and name). A page starts behind the last name of the
+ * page before: an entry, which is created or deleted while listing, does not shift the following pages.
+ */
+public class ListStatusMessage extends Request {
+
+    public static final Logger LOG = LogManager.getLogger(ListStatusMessage.class.getName());
+    public static final byte MTYPE = 42;
+    public static final byte TAG = 28;
+    private byte[] _data;
+    private byte[] _after;
+    private int _maxEntries;
+
+    public String getData() {
+        return new String(_data, DxramFsConfig.STRING_STD_CHARSET);
+    }
+
+    /**
+     * @return the last name of the page before or "" for the first page
+     */
+    public String getAfter() {
+        return new String(_after, DxramFsConfig.STRING_STD_CHARSET);
+    }
+
+    public int getMaxEntries() {
+        return _maxEntries;
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        return ObjectSizeUtil.sizeofByteArray(_data) + ObjectSizeUtil.sizeofByteArray(_after) + Integer.BYTES;
+    }
+
+    @Override
+    protected final void writePayload(
+            final AbstractMessageExporter p_exporter
+    ) {
+        p_exporter.writeByteArray(_data);
+        p_exporter.writeByteArray(_after);
+        p_exporter.writeInt(_maxEntries);
+    }
+
+    @Override
+    protected final void readPayload(
+            final AbstractMessageImporter p_importer
+    ) {
+        _data = p_importer.readByteArray(_data);
+        _after = p_importer.readByteArray(_after);
+        _maxEntries = p_importer.readInt(_maxEntries);
+    }
+
+    // ---------------------------------------------------------------
+
+    public ListStatusMessage() {
+        super();
+    }
+
+    public ListStatusMessage(final short p_destination, final String p_data, final String p_after, final int p_maxEntries) {
+        super(p_destination, ListStatusMessage.MTYPE, ListStatusMessage.TAG);
+        _data = p_data.getBytes(DxramFsConfig.STRING_STD_CHARSET);
+        _after = p_after.getBytes(DxramFsConfig.STRING_STD_CHARSET);
+        _maxEntries = p_maxEntries;
+    }
+
+    // ---------------------------------------------------------------
+
+    /**
+     * send a request for a page of entries in a folder and waits for the ListStatusResponse.
+     * A path to a file gets the file as single entry.
+     *
+     * @param dxnet
+     * @return the response or null, if the path does not exist
+     */
+    public ListStatusResponse send(DXNet dxnet) {
+        try {
+            dxnet.sendSync(this, DxramFsConfig.RPC_TIMEOUT, true);
+            ListStatusResponse response = getResponse(ListStatusResponse.class);
+            LOG.debug("got Response: " + response.getData());
+            if (response.isOk()) {
+                return response;
+            } else {
+                return null;
+            }
+        } catch (NetworkException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Request;
+import de.hhu.bsinfo.dxnet.core.Response;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+
+/**
+ * Response to ListStatusMessage: a status string and a page of entries. The names are joined
+ * with "/" (like in ListMessage), the other values are arrays with the same index.
+ */
+public class ListStatusResponse extends Response {
+
+    public static final byte MTYPE = 42;
+    public static final byte TAG = 29;
+    // status of a listed file: the single entry is the file itself
+    public static final String OK_FILE = "OK a file";
+
+    private byte[] _data;
+    private byte[] _names;
+    private int[] _types;
+    private long[] _sizes;
+    private int[] _blockCounts;
+    private boolean _lastPage;
+
+    public String getData() {
+        return new String(_data, DxramFsConfig.STRING_STD_CHARSET);
+    }
+
+    public boolean isOk() {
+        return getData().startsWith("OK");
+    }
+
+    public boolean isFile() {
+        return getData().equals(OK_FILE);
+    }
+
+    public String[] getNames() {
+        if (_types.length == 0) return new String[0];
+        return new String(_names, DxramFsConfig.STRING_STD_CHARSET).split("/", -1);
+    }
+
+    public int[] getTypes() {
+        return _types;
+    }
+
+    public long[] getSizes() {
+        return _sizes;
+    }
+
+    public int[] getBlockCounts() {
+        return _blockCounts;
+    }
+
+    /**
+     * @return true, if there are no entries behind this page. Otherwise the next page starts behind its last name
+     */
+    public boolean isLastPage() {
+        return _lastPage;
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        int s = ObjectSizeUtil.sizeofByteArray(_data);
+        s += ObjectSizeUtil.sizeofByteArray(_names);
+        s += ObjectSizeUtil.sizeofIntArray(_types);
+        s += ObjectSizeUtil.sizeofLongArray(_sizes);
+        s += ObjectSizeUtil.sizeofIntArray(_blockCounts);
+        s += Byte.BYTES;
+        return s;
+    }
+
+    @Override
+    protected final void writePayload(
+            final AbstractMessageExporter p_exporter
+    ) {
+        p_exporter.writeByteArray(_data);
+        p_exporter.writeByteArray(_names);
+        p_exporter.writeIntArray(_types);
+        p_exporter.writeLongArray(_sizes);
+        p_exporter.writeIntArray(_blockCounts);
+        p_exporter.writeBoolean(_lastPage);
+    }
+
+    @Override
+    protected final void readPayload(
+            final AbstractMessageImporter p_importer
+    ) {
+        _data = p_importer.readByteArray(_data);
+        _names = p_importer.readByteArray(_names);
+        _types = p_importer.readIntArray(_types);
+        _sizes = p_importer.readLongArray(_sizes);
+        _blockCounts = p_importer.readIntArray(_blockCounts);
+        _lastPage = p_importer.readBoolean(_lastPage);
+    }
+
+    // ---------------------------------------------------------------
+
+    public ListStatusResponse() {
+        super();
+    }
+
+    /**
+     * a failure without entries
+     *
+     * @param p_request
+     * @param p_data
+     */
+    public ListStatusResponse(final Request p_request, final String p_data) {
+        this(p_request, p_data, new String[0], new int[0], new long[0], new int[0], true);
+    }
+
+    public ListStatusResponse(
+            final Request p_request, final String p_data,
+            final String[] p_names, final int[] p_types, final long[] p_sizes, final int[] p_blockCounts,
+            final boolean p_lastPage
+    ) {
+        super(p_request, ListStatusResponse.TAG);
+        _data = p_data.getBytes(DxramFsConfig.STRING_STD_CHARSET);
+        _names = String.join("/", p_names).getBytes(DxramFsConfig.STRING_STD_CHARSET);
+        _types = p_types;
+        _sizes = p_sizes;
+        _blockCounts = p_blockCounts;
+        _lastPage = p_lastPage;
+    }
+}
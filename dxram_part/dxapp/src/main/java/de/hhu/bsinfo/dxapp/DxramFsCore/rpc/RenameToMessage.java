@@ -2,18 +2,17 @@ package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
 
 import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
 import de.hhu.bsinfo.dxnet.DXNet;
-import de.hhu.bsinfo.dxnet.MessageReceiver;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
 import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
-import de.hhu.bsinfo.dxnet.core.Message;
 import de.hhu.bsinfo.dxnet.core.NetworkException;
+import de.hhu.bsinfo.dxnet.core.Request;
 import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.nio.charset.StandardCharsets;
 
-public class RenameToMessage extends Message {
+public class RenameToMessage extends Request {
 
     public static final Logger LOG = LogManager.getLogger(RenameToMessage.class.getName());
     public static final byte MTYPE = 42;
@@ -21,9 +20,6 @@ public class RenameToMessage extends Message {
     private byte[] data;
     private byte[] toData;
 
-    public static boolean gotResult;
-    public static RenameToMessage result;
-
     public String getData() {
         return new String(data, DxramFsConfig.STRING_STD_CHARSET);
     }
@@ -66,7 +62,6 @@ public class RenameToMessage extends Message {
 
     public RenameToMessage(final short p_destination, final String p_data, final String to_data) {
         super(p_destination, RenameToMessage.MTYPE, RenameToMessage.TAG);
-        gotResult = false;
         data = p_data.getBytes(DxramFsConfig.STRING_STD_CHARSET);
         toData = to_data.getBytes(DxramFsConfig.STRING_STD_CHARSET);
     }
@@ -74,53 +69,20 @@ public class RenameToMessage extends Message {
     // ---------------------------------------------------------------
 
     /**
-     * send a request for an existing path/file in DxramFs and handles the response.
-     * Attention! The Request-Handling of this sended message is Outside of this Class!
-     * The Request Handling can use methods of the InHandler to get access.
+     * moves the file or folder to the new path and waits for the StatusResponse.
      *
      * @param dxnet
-     * @return
+     * @return true, if it was moved
      */
     public boolean send(DXNet dxnet) {
         try {
-            dxnet.sendMessage(this);
-            while (gotResult == false) {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ignored) {
-                    // nothing.
-                    // maybe handle response here !!
-                }
-            }
-            LOG.debug("got Response: " + result.getData());
-            if (result.getData().startsWith("OK")) {
-                return true;
-            } else {
-                return false;
-            }
+            dxnet.sendSync(this, DxramFsConfig.RPC_TIMEOUT, true);
+            StatusResponse response = getResponse(StatusResponse.class);
+            LOG.debug("got Response: " + response.getData());
+            return response.isOk();
         } catch (NetworkException e) {
             e.printStackTrace();
             return false;
         }
     }
-
-
-    public static class InHandler implements MessageReceiver {
-
-        @Override
-        public void onIncomingMessage(Message p_message) {
-            result = (RenameToMessage) p_message;
-            LOG.info(result.getData());
-            LOG.info(result.getToData());
-            gotResult = true;
-        }
-
-        public Message Result() {
-            return result;
-        }
-
-        public boolean gotResult() {
-            return gotResult;
-        }
-    }
 }
@@ -0,0 +1,74 @@
+package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Request;
+import de.hhu.bsinfo.dxnet.core.Response;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+
+/**
+ * Response to all path based requests, which only need a status string ("OK..." or a failure text)
+ * and maybe a single number (file length, entry count, chunkid of a new FsNode, ...).
+ * <p>
+ * All request messages of DxramFs send with dxnet.sendSync(). dxnet gives each request an id, copies it into
+ * the response (see the constructor) and wakes up exactly the thread waiting for that id. So many threads can
+ * share one connection and have requests in flight at the same time, without any correlation on our side.
+ */
+public class StatusResponse extends Response {
+
+    public static final byte MTYPE = 42;
+    public static final byte TAG = 25;
+
+    private byte[] _data;
+    private long _value;
+
+    public String getData() {
+        return new String(_data, DxramFsConfig.STRING_STD_CHARSET);
+    }
+
+    public long getValue() {
+        return _value;
+    }
+
+    public boolean isOk() {
+        return getData().startsWith("OK");
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        return ObjectSizeUtil.sizeofByteArray(_data) + Long.BYTES;
+    }
+
+    @Override
+    protected final void writePayload(
+            final AbstractMessageExporter p_exporter
+    ) {
+        p_exporter.writeByteArray(_data);
+        p_exporter.writeLong(_value);
+    }
+
+    @Override
+    protected final void readPayload(
+            final AbstractMessageImporter p_importer
+    ) {
+        _data = p_importer.readByteArray(_data);
+        _value = p_importer.readLong(_value);
+    }
+
+    // ---------------------------------------------------------------
+
+    public StatusResponse() {
+        super();
+    }
+
+    public StatusResponse(final Request p_request, final String p_data) {
+        this(p_request, p_data, DxramFsConfig.INVALID_ID);
+    }
+
+    public StatusResponse(final Request p_request, final String p_data, final long p_value) {
+        super(p_request, StatusResponse.TAG);
+        _data = p_data.getBytes(DxramFsConfig.STRING_STD_CHARSET);
+        _value = p_value;
+    }
+}
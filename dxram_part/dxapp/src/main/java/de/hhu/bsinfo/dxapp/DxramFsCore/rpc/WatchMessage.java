@@ -0,0 +1,73 @@
+package de.hhu.bsinfo.dxapp.dxramfscore.rpc;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageExporter;
+import de.hhu.bsinfo.dxnet.core.AbstractMessageImporter;
+import de.hhu.bsinfo.dxnet.core.Message;
+import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
+
+/**
+ * a peer sends it to the namespace peer, if it gives a hadoop node a lease on a path (see FsNodeMessage).
+ * The namespace peer changes all paths and handles all flushes: it sends an InvalidateMessage to the
+ * peer, if the path changes within the lease time. Thus it only tells the peers with an interest in a path.
+ * It is not a request: the peer does not wait for an answer.
+ */
+public class WatchMessage extends Message {
+
+    public static final byte MTYPE = 42;
+    public static final byte TAG = 33;
+    private byte[] _data;
+    private long _fsNodeId;
+    private int _leaseMs;
+
+    public String getData() {
+        return new String(_data, DxramFsConfig.STRING_STD_CHARSET);
+    }
+
+    /**
+     * @return the chunkid of the FsNode of the path (a flush knows only the chunkid)
+     */
+    public long getFsNodeId() {
+        return _fsNodeId;
+    }
+
+    public int getLeaseMs() {
+        return _leaseMs;
+    }
+
+    @Override
+    protected final int getPayloadLength() {
+        return ObjectSizeUtil.sizeofByteArray(_data) + Long.BYTES + Integer.BYTES;
+    }
+
+    @Override
+    protected final void writePayload(
+            final AbstractMessageExporter p_exporter
+    ) {
+        p_exporter.writeByteArray(_data);
+        p_exporter.writeLong(_fsNodeId);
+        p_exporter.writeInt(_leaseMs);
+    }
+
+    @Override
+    protected final void readPayload(
+            final AbstractMessageImporter p_importer
+    ) {
+        _data = p_importer.readByteArray(_data);
+        _fsNodeId = p_importer.readLong(_fsNodeId);
+        _leaseMs = p_importer.readInt(_leaseMs);
+    }
+
+    // ---------------------------------------------------------------
+
+    public WatchMessage() {
+        super();
+    }
+
+    public WatchMessage(final short p_destination, final String p_data, final long p_fsNodeId, final int p_leaseMs) {
+        super(p_destination, WatchMessage.MTYPE, WatchMessage.TAG);
+        _data = p_data.getBytes(DxramFsConfig.STRING_STD_CHARSET);
+        _fsNodeId = p_fsNodeId;
+        _leaseMs = p_leaseMs;
+    }
+}
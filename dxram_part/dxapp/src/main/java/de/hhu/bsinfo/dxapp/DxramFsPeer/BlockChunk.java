@@ -6,8 +6,15 @@ import de.hhu.bsinfo.dxutils.serialization.Exporter;
 import de.hhu.bsinfo.dxutils.serialization.Importer;
 import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
 
+/**
+ * the data of a block. The header names the file (the stamp of its FsNode) and the index of the block:
+ * dxram uses the chunkid of a removed BlockChunk again, thus a reader with an old chunkid gets the
+ * block only, if the header is the expected one (see AskBlockMessage). The layout belongs to FsNodeChunk.FORMAT.
+ */
 public class BlockChunk extends AbstractChunk {
     private Block _block;
+    private long _stamp;
+    private int _index;
 
     public BlockChunk() {
         _block = new Block();
@@ -29,17 +36,37 @@ public class BlockChunk extends AbstractChunk {
         return _block;
     }
 
+    /**
+     * @param stamp of the FsNode of the file
+     * @param index of the block in the file
+     */
+    public void setHeader(final long stamp, final int index) {
+        _stamp = stamp;
+        _index = index;
+    }
+
+    /**
+     * @return true, if it is block index of the file with this stamp
+     */
+    public boolean isBlockOf(final long stamp, final int index) {
+        return _stamp == stamp && _index == index;
+    }
+
     // -----------------------------------------------------------------------------
 
     @Override
     public void exportObject(final Exporter p_exporter) {
         p_exporter.writeLong(_block.ID);
+        p_exporter.writeLong(_stamp);
+        p_exporter.writeInt(_index);
         p_exporter.writeByteArray(_block._data);
     }
 
     @Override
     public void importObject(final Importer p_importer) {
         _block.ID = p_importer.readLong(_block.ID);
+        _stamp = p_importer.readLong(_stamp);
+        _index = p_importer.readInt(_index);
         _block._data = p_importer.readByteArray(_block._data);
     }
 
@@ -47,6 +74,8 @@ public class BlockChunk extends AbstractChunk {
     public int sizeofObject() {
         int size = 0;
         size += Long.BYTES; // _block.ID
+        size += Long.BYTES; // stamp
+        size += Integer.BYTES; // index
         size += ObjectSizeUtil.sizeofByteArray(_block._data);
         return size;
     }
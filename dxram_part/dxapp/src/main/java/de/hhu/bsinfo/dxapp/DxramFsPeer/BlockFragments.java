@@ -0,0 +1,158 @@
+package de.hhu.bsinfo.dxapp.dxramfspeer;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.BlockPool;
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+import de.hhu.bsinfo.dxapp.dxramfscore.LruCache;
+import de.hhu.bsinfo.dxapp.dxramfscore.rpc.FlushMessage;
+
+/**
+ * Large blocks are sent in fragment messages, thus a block transfer does not block other messages
+ * on the connection. This class holds the state of the fragments on the peer:
+ *
+ * - reads: the data of the blocks, we send in fragments. A fragment with offset 0 starts a new read
+ *   of the block and gets it from dxram again, the following fragments use the cached data.
+ * - flushes: the fragments of a FlushMessage range. The block is stored, if all of them are here.
+ *   An Assembly, which gets no fragment for fragment_timeout_ms, is dropped. The next fragment
+ *   of its flush fails, thus the client does not get an ok for lost data.
+ */
+public class BlockFragments {
+
+    /**
+     * the received fragments of a flush
+     */
+    public static class Assembly {
+        public final byte[] data;
+        public int from;
+        public int to;
+        private int _received;
+        private long _touched;
+
+        Assembly() {
+            data = BlockPool.take(DxramFsConfig.file_blocksize);
+            from = Integer.MAX_VALUE;
+            to = 0;
+            _received = 0;
+            _touched = System.currentTimeMillis();
+        }
+    }
+
+    // used, if fragment_timeout_ms is not set
+    private static final long ASSEMBLY_TIMEOUT_MS = 60000;
+
+    private final LruCache<Long, byte[]> _blocks;
+    // FsNode chunkid + ":" + block index -> received fragments
+    private final Map<String, Assembly> _assemblies;
+    // keys of dropped Assemblies -> time of the drop. The next fragment with this key fails
+    private final Map<String, Long> _expired;
+    private final long _timeout;
+
+    /**
+     * @param cachedBlocks blocks, we hold for fragment reads (LRU). 0 = get the block for each fragment
+     * @param timeoutMs an incomplete flush is dropped, if it gets no fragment for this time. <= 0 = 60 s
+     */
+    public BlockFragments(int cachedBlocks, long timeoutMs) {
+        _blocks = cachedBlocks > 0 ? new LruCache<>(cachedBlocks) : null;
+        _assemblies = new HashMap<>();
+        _expired = new HashMap<>();
+        _timeout = timeoutMs > 0 ? timeoutMs : ASSEMBLY_TIMEOUT_MS;
+    }
+
+    /**
+     * @param storageId chunkid of the BlockChunk
+     * @param offset of the asked fragment
+     * @return the data of the block or null, if the caller has to get it from dxram
+     */
+    public byte[] cached(long storageId, int offset) {
+        if (_blocks == null || offset == 0) return null;
+        return _blocks.get(storageId);
+    }
+
+    public void cache(long storageId, byte[] data) {
+        if (_blocks != null) _blocks.put(storageId, data);
+    }
+
+    /**
+     * the block has changed or is deleted
+     */
+    public void forget(long storageId) {
+        if (_blocks != null) _blocks.remove(storageId);
+    }
+
+    /**
+     * adds the fragment of a received msg.
+     *
+     * @param msg with getFragments() > 1
+     */
+    public Assembly add(FlushMessage msg) {
+        return add(
+            msg.getFsNode().ID, msg.getBlockinfo().offset, msg.getBlock()._data, msg.getDataOffset(), msg.getFragments()
+        );
+    }
+
+    /**
+     * adds a received fragment.
+     *
+     * @param fsNodeId chunkid of the FsNode of the file
+     * @param blockIndex index of the block in the file
+     * @param fragment the received bytes
+     * @param from offset of the fragment in the block
+     * @param fragments number of fragments of the flush range
+     * @return the Assembly, if it was the last missing fragment, otherwise null
+     * @throws IllegalStateException, if fragments of this flush were dropped. The client must not get an ok
+     */
+    public synchronized Assembly add(long fsNodeId, int blockIndex, byte[] fragment, int from, int fragments) {
+        String key = fsNodeId + ":" + blockIndex;
+        long now = System.currentTimeMillis();
+        purge(key, now);
+
+        if (_expired.remove(key) != null) {
+            throw new IllegalStateException("fragments of block " + key + " expired");
+        }
+        Assembly a = _assemblies.get(key);
+        if (a != null && now - a._touched > _timeout) {
+            // the other keys are purged above: this one has waited too long, too
+            _assemblies.remove(key);
+            BlockPool.release(a.data);
+            throw new IllegalStateException("fragments of block " + key + " expired");
+        }
+        if (a == null) {
+            a = new Assembly();
+            _assemblies.put(key, a);
+        }
+        if (from < 0 || from + fragment.length > a.data.length) {
+            _assemblies.remove(key);
+            BlockPool.release(a.data);
+            throw new IndexOutOfBoundsException("fragment " + from + "+" + fragment.length + " of block data");
+        }
+        System.arraycopy(fragment, 0, a.data, from, fragment.length);
+        a.from = Math.min(a.from, from);
+        a.to = Math.max(a.to, from + fragment.length);
+        a._received++;
+        a._touched = now;
+
+        if (a._received < fragments) return null;
+        _assemblies.remove(key);
+        return a;
+    }
+
+    /**
+     * drops the Assemblies of other keys, which got no fragment for the timeout, and
+     * forgets old drops, whose flush has not sent a fragment since.
+     */
+    private void purge(String key, long now) {
+        Iterator<Map.Entry<String, Assembly>> it = _assemblies.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Assembly> e = it.next();
+            if (!e.getKey().equals(key) && now - e.getValue()._touched > _timeout) {
+                it.remove();
+                BlockPool.release(e.getValue().data);
+                _expired.put(e.getKey(), now);
+            }
+        }
+        _expired.values().removeIf(dropped -> now - dropped > _timeout);
+    }
+}
@@ -0,0 +1,91 @@
+package de.hhu.bsinfo.dxapp.dxramfspeer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * chooses the dxram peer for a new BlockChunk. Use forName() with the block_placement value
+ * of the config:
+ * - local: the peer, which handles the request (like before)
+ * - round_robin: the next online peer for each new block
+ * - fewest_placed (or least_loaded): the peer with the fewest blocks, we placed on it. It is not the
+ *   free memory of the peers, only an approximation of the load (see FewestPlaced)
+ * - hash_striped: by file and block index, thus the blocks of a file are striped over all peers
+ */
+public interface BlockPlacement {
+
+    /**
+     * @param fileId chunkid of the FsNode of the file
+     * @param blockIndex index of the new block in the file
+     * @param peers online dxram peers (not empty)
+     * @param me the peer, which handles the request
+     * @return the peer for the new BlockChunk
+     */
+    short choose(long fileId, int blockIndex, List<Short> peers, short me);
+
+    static BlockPlacement forName(String name) {
+        if (name == null || name.isEmpty() || name.equals("local")) {
+            return new Local();
+        } else if (name.equals("round_robin")) {
+            return new RoundRobin();
+        } else if (name.equals("fewest_placed") || name.equals("least_loaded")) {
+            return new FewestPlaced();
+        } else if (name.equals("hash_striped")) {
+            return new HashStriped();
+        }
+        throw new IllegalArgumentException("unknown block_placement " + name);
+    }
+
+    class Local implements BlockPlacement {
+        @Override
+        public short choose(long fileId, int blockIndex, List<Short> peers, short me) {
+            return me;
+        }
+    }
+
+    class RoundRobin implements BlockPlacement {
+        private final AtomicInteger _next = new AtomicInteger();
+
+        @Override
+        public short choose(long fileId, int blockIndex, List<Short> peers, short me) {
+            return peers.get(Math.floorMod(_next.getAndIncrement(), peers.size()));
+        }
+    }
+
+    /**
+     * counts the blocks, we have placed on each peer, and does not ask dxram for the free memory.
+     * The namespace peer places the blocks of all flushes, thus the counts cover the new blocks.
+     * They do not know the size of the blocks, deleted files, data of other applications or
+     * the counts of an earlier run: it is an approximation of the load.
+     */
+    class FewestPlaced implements BlockPlacement {
+        private final Map<Short, Integer> _placed = new HashMap<>();
+
+        @Override
+        public synchronized short choose(long fileId, int blockIndex, List<Short> peers, short me) {
+            short best = peers.get(0);
+            int bestCount = Integer.MAX_VALUE;
+            for (short peer : peers) {
+                int count = _placed.getOrDefault(peer, 0);
+                // on equal load we prefer the local peer
+                if (count < bestCount || (count == bestCount && peer == me)) {
+                    best = peer;
+                    bestCount = count;
+                }
+            }
+            _placed.merge(best, 1, Integer::sum);
+            return best;
+        }
+    }
+
+    class HashStriped implements BlockPlacement {
+        @Override
+        public short choose(long fileId, int blockIndex, List<Short> peers, short me) {
+            // the file id gives the first peer, the following blocks go to the next ones
+            int first = Long.hashCode(fileId * 0x9E3779B97F4A7C15L);
+            return peers.get(Math.floorMod(first + blockIndex, peers.size()));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package de.hhu.bsinfo.dxapp.dxramfspeer;
+
+import java.util.ArrayList;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+import de.hhu.bsinfo.dxapp.dxramfscore.LruCache;
+
+/**
+ * Cache of the EXT FsNode chunkids of large files (and folders). EXT number k (1 = the first EXT after the
+ * file FsNode) holds the blocks (or entries) head_ref_ids + (k-1) * ref_ids_each_fsnode, ... of the file.
+ * Thus a block is found with a single get and not by walking the forwardId chain from the file FsNode.
+ *
+ * The chain of a file only grows, until the file is deleted: a delete must call forget().
+ * Other peers may delete a file, too. The caller checks each EXT from the cache (type and
+ * first block) and calls forget(), if it does not belong to the file anymore.
+ */
+public class ExtIndex {
+
+    // file FsNode chunkid -> chunkids of EXT 1, 2, ...
+    private final LruCache<Long, ArrayList<Long>> _cache;
+
+    /**
+     * @param size max cached files (LRU). 0 disables the cache
+     */
+    public ExtIndex(int size) {
+        _cache = size > 0 ? new LruCache<>(size) : null;
+    }
+
+    /**
+     * @param fileId
+     * @return number of known EXT FsNodes of the file
+     */
+    public synchronized int size(long fileId) {
+        if (_cache == null) return 0;
+        ArrayList<Long> exts = _cache.get(fileId);
+        return exts == null ? 0 : exts.size();
+    }
+
+    /**
+     * @param fileId
+     * @param k number of the EXT (>= 1)
+     * @return the chunkid of EXT k or INVALID_ID, if it is not known
+     */
+    public synchronized long get(long fileId, int k) {
+        if (_cache == null || k < 1) return DxramFsConfig.INVALID_ID;
+        ArrayList<Long> exts = _cache.get(fileId);
+        if (exts == null || exts.size() < k) return DxramFsConfig.INVALID_ID;
+        return exts.get(k - 1);
+    }
+
+    /**
+     * adds EXT k, if we know EXT 1, ..., k-1
+     *
+     * @param fileId
+     * @param k number of the EXT (>= 1)
+     * @param extId chunkid of EXT k
+     */
+    public synchronized void add(long fileId, int k, long extId) {
+        if (_cache == null || k < 1) return;
+        ArrayList<Long> exts = _cache.get(fileId);
+        if (exts == null) {
+            if (k != 1) return;
+            exts = new ArrayList<>();
+            _cache.put(fileId, exts);
+        }
+        if (exts.size() == k - 1) exts.add(extId);
+    }
+
+    /**
+     * the file is deleted or the cached chain is wrong
+     */
+    public synchronized void forget(long fileId) {
+        if (_cache != null) _cache.remove(fileId);
+    }
+}
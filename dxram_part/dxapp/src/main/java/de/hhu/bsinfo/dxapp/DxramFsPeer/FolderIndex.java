@@ -0,0 +1,213 @@
+package de.hhu.bsinfo.dxapp.dxramfspeer;
+
+import java.util.Arrays;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.LruCache;
+
+/**
+ * Name hash index of large folders: nameHash -> chunkids of the entries with this hash. Thus getIn()
+ * finds a name in a folder with EXT FsNodes by a binary search and does not get the whole chain.
+ *
+ * The index is not stored in dxram. It is built from the chain of the folder (refHashes and refIds)
+ * and belongs to a stamp of the folder FsNode, which changes with each added or removed entry.
+ * An index with an other stamp than the folder is not used: the caller builds it again. The namespace
+ * peer changes all folders and updates its index with added() and removed() instead. The other peers
+ * build it again once after each change of the folder.
+ */
+public class FolderIndex {
+
+    /**
+     * the entries of a folder, sorted by name hash. All methods are thread safe: a worker
+     * may search it, while the namespace peer adds an entry.
+     */
+    public static final class Entries {
+
+        private long _stamp;
+        private int _size;
+        private int[] _hashes;
+        private long[] _ids;
+
+        /**
+         * @param stamp of the folder FsNode
+         * @param hashes name hashes of the entries (refHashes of the folder chain)
+         * @param ids chunkids of the entries (refIds of the folder chain)
+         * @param size number of entries in hashes and ids
+         */
+        public Entries(long stamp, int[] hashes, long[] ids, int size) {
+            _stamp = stamp;
+            _size = size;
+            // sort (hash, position) pairs as a single long
+            long[] order = new long[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = ((long) hashes[i] << 32) | i;
+            }
+            Arrays.sort(order);
+            _hashes = new int[Math.max(size, 8)];
+            _ids = new long[_hashes.length];
+            for (int i = 0; i < size; i++) {
+                int position = (int) order[i];
+                _hashes[i] = hashes[position];
+                _ids[i] = ids[position];
+            }
+        }
+
+        public synchronized long stamp() {
+            return _stamp;
+        }
+
+        public synchronized int size() {
+            return _size;
+        }
+
+        /**
+         * @param hash name hash
+         * @return the chunkids of all entries with this hash (the same name or a collision)
+         */
+        public synchronized long[] find(int hash) {
+            int from = first(hash);
+            int to = from;
+            while (to < _size && _hashes[to] == hash) to++;
+            return Arrays.copyOfRange(_ids, from, to);
+        }
+
+        /**
+         * the entries in the order of their name hash, starting with hash.
+         *
+         * @param hash the first name hash
+         * @param max number of entries
+         * @return up to max entries with a hash >= hash (all entries with the same hash, even if they are more)
+         */
+        public synchronized Entries from(int hash, int max) {
+            int from = first(hash);
+            int to = Math.min(_size, from + Math.max(max, 0));
+            while (to < _size && to > from && _hashes[to] == _hashes[to - 1]) to++;
+            return new Entries(
+                _stamp, Arrays.copyOfRange(_hashes, from, to), Arrays.copyOfRange(_ids, from, to), to - from
+            );
+        }
+
+        public synchronized int hashAt(int index) {
+            return _hashes[index];
+        }
+
+        public synchronized long idAt(int index) {
+            return _ids[index];
+        }
+
+        /**
+         * adds an entry and keeps the order by name hash
+         */
+        public synchronized void add(int hash, long id) {
+            if (_size == _hashes.length) {
+                _hashes = Arrays.copyOf(_hashes, _size * 2);
+                _ids = Arrays.copyOf(_ids, _size * 2);
+            }
+            // behind the entries with the same hash
+            int i = first(hash);
+            while (i < _size && _hashes[i] == hash) i++;
+            System.arraycopy(_hashes, i, _hashes, i + 1, _size - i);
+            System.arraycopy(_ids, i, _ids, i + 1, _size - i);
+            _hashes[i] = hash;
+            _ids[i] = id;
+            _size++;
+        }
+
+        /**
+         * @return false, if the entry is not in the index
+         */
+        public synchronized boolean remove(int hash, long id) {
+            int i = first(hash);
+            while (i < _size && _hashes[i] == hash && _ids[i] != id) i++;
+            if (i == _size || _hashes[i] != hash) return false;
+            _size--;
+            System.arraycopy(_hashes, i + 1, _hashes, i, _size - i);
+            System.arraycopy(_ids, i + 1, _ids, i, _size - i);
+            return true;
+        }
+
+        /**
+         * @return index of the first entry with a name hash >= hash
+         */
+        private int first(int hash) {
+            int low = 0;
+            int high = _size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (_hashes[mid] < hash) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * an entry of the folder changed: it only applies, if we are the index of the stamp before
+         */
+        private synchronized boolean change(long oldStamp, long newStamp, int hash, long id, boolean add) {
+            if (_stamp != oldStamp) return false;
+            if (add) {
+                add(hash, id);
+            } else if (!remove(hash, id)) {
+                return false;
+            }
+            _stamp = newStamp;
+            return true;
+        }
+    }
+
+    // folder FsNode chunkid -> its entries
+    private final LruCache<Long, Entries> _cache;
+
+    /**
+     * @param size max cached folders (LRU). 0 disables the cache
+     */
+    public FolderIndex(int size) {
+        _cache = size > 0 ? new LruCache<>(size) : null;
+    }
+
+    /**
+     * @param folderId
+     * @param stamp of the folder FsNode
+     * @return the index of the folder or null, if it is not cached for this stamp
+     */
+    public synchronized Entries get(long folderId, long stamp) {
+        if (_cache == null) return null;
+        Entries entries = _cache.get(folderId);
+        return entries == null || entries.stamp() != stamp ? null : entries;
+    }
+
+    public synchronized void put(long folderId, Entries entries) {
+        if (_cache != null) _cache.put(folderId, entries);
+    }
+
+    /**
+     * an entry was added to the folder and its stamp has changed
+     */
+    public synchronized void added(long folderId, long oldStamp, long newStamp, int hash, long id) {
+        change(folderId, oldStamp, newStamp, hash, id, true);
+    }
+
+    /**
+     * an entry was removed from the folder and its stamp has changed
+     */
+    public synchronized void removed(long folderId, long oldStamp, long newStamp, int hash, long id) {
+        change(folderId, oldStamp, newStamp, hash, id, false);
+    }
+
+    /**
+     * the folder is deleted or moved into an other chunk
+     */
+    public synchronized void forget(long folderId) {
+        if (_cache != null) _cache.remove(folderId);
+    }
+
+    private void change(long folderId, long oldStamp, long newStamp, int hash, long id, boolean add) {
+        if (_cache == null) return;
+        Entries entries = _cache.get(folderId);
+        if (entries != null && !entries.change(oldStamp, newStamp, hash, id, add)) {
+            _cache.remove(folderId);
+        }
+    }
+}
@@ -1,19 +1,57 @@
 package de.hhu.bsinfo.dxapp.dxramfspeer;
 
+import java.util.Arrays;
+import java.util.Comparator;
+
 import de.hhu.bsinfo.dxmem.data.AbstractChunk;
 import de.hhu.bsinfo.dxmem.data.ChunkID;
 import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
 import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsUtil;
 import de.hhu.bsinfo.dxapp.dxramfscore.FsNode;
 import de.hhu.bsinfo.dxapp.dxramfscore.FsNodeType;
+import de.hhu.bsinfo.dxram.chunk.ChunkService;
+import de.hhu.bsinfo.dxutils.serialization.CompactNumber;
 import de.hhu.bsinfo.dxutils.serialization.Exporter;
 import de.hhu.bsinfo.dxutils.serialization.Importer;
-import de.hhu.bsinfo.dxutils.serialization.ObjectSizeUtil;
 
+/**
+ * a FsNode in dxram. dxram can not resize a chunk, thus its size is fixed by the capacities at the create:
+ * the bytes of the name, the refIds (with refHashes or blockLengths) and the inline data. The name capacity
+ * is the UTF-8 length of the name at the create: a rename to a longer name moves the FsNode into a new chunk.
+ * A file or folder FsNode has head_ref_ids refIds, an EXT ref_ids_each_fsnode and no name. More blocks
+ * (or entries) go into new EXT FsNodes (growth on demand). With the default 8 head refIds a file or folder
+ * FsNode needs 139 bytes plus its name (and inline_file_bytes in a file), an EXT 1580 bytes.
+ *
+ * Layout (FORMAT 4): mark with format (int), type, arrays (byte each), the capacities (CompactNumber),
+ * backId, forwardId, size, stamp (long), movedFrom (long, only with the flag MOVED_FROM in arrays),
+ * refSize, name length (1, 2 or 4 bytes: the width of the capacity), name (UTF-8), refIds, refHashes or
+ * blockLengths, inline. Only the used part of the arrays is written, the rest up to the capacity is filled
+ * with zeros. A chunk without the mark (e.g. of an older DxramFsApp) is imported as missing. FORMAT 3 added
+ * the header of BlockChunk, FORMAT 4 the widths of refSize and the name length.
+ * size and refSize are not CompactNumbers: a flush changes them with a put into the same chunk, thus their
+ * width must not depend on their value. The width of refSize is fixed by the capacity, size is a long.
+ */
 public class FsNodeChunk extends AbstractChunk {
 
+    // FsNodes in a single get() of getAll()
+    public static final int GET_BATCH = 128;
+
+    public static final byte FORMAT = 4;
+    // "FSN" and the format. The older FsNodeChunks start with their chunkid
+    private static final int MARK = 0x46534E00 | FORMAT;
+    private static final byte HASHES = 1;
+    private static final byte LENGTHS = 2;
+    private static final byte MOVED_FROM = 4;
+    private static final byte[] ZEROS = new byte[4096];
+
     private FsNode _fsNode;
 
+    // fixed by the create (or the get) of the chunk. -1 = not fixed: we take the lengths of the FsNode arrays
+    private int _refCapacity = -1;
+    private int _nameCapacity = -1;
+    private int _inlineCapacity = -1;
+    private byte _arrays;
+
     public FsNodeChunk() {
         _fsNode = new FsNode();
     }
@@ -38,46 +76,202 @@ public class FsNodeChunk extends AbstractChunk {
         setID(f.ID);
         _fsNode = f;
     }
-    
+
+    /**
+     * the default is the length of the name at the create. Call it before the create of the chunk.
+     *
+     * @param bytes of the UTF-8 name, we can store
+     */
+    public void setNameCapacity(final int bytes) {
+        _nameCapacity = bytes;
+    }
+
+    private static byte[] nameBytes(final String name) {
+        return name == null ? new byte[0] : name.getBytes(DxramFsConfig.STRING_STD_CHARSET);
+    }
+
+    /**
+     * @param name
+     * @return true, if a file or folder FsNode can store the name
+     */
+    public static boolean nameFits(final String name) {
+        return nameBytes(name).length <= Math.min(DxramFsConfig.max_filenamelength_chars, Short.MAX_VALUE);
+    }
+
+    /**
+     * @param name
+     * @return true, if this chunk has room for the name. Otherwise a rename has to move the FsNode
+     */
+    public boolean hasRoomFor(final String name) {
+        fixCapacities();
+        return nameBytes(name).length <= _nameCapacity;
+    }
+
+    /**
+     * gets many FsNodes (e.g. the entries of a folder) with a get() of up to GET_BATCH chunks each, and not
+     * one get() for each chunk. They are sorted by their creating peer first: dxram sends one request to each
+     * peer of a get(), thus a batch needs few requests.
+     *
+     * @param chunkS
+     * @param chunks with the chunkids. The array keeps its order
+     */
+    public static void getAll(final ChunkService chunkS, final FsNodeChunk[] chunks) {
+        if (chunks.length == 0) return;
+        FsNodeChunk[] sorted = chunks.clone();
+        Arrays.sort(sorted, Comparator.comparingInt(c -> ChunkID.getCreatorID(c.getID()) & 0xFFFF));
+        for (int from = 0; from < sorted.length; from += GET_BATCH) {
+            int to = Math.min(from + GET_BATCH, sorted.length);
+            chunkS.get().get(from == 0 && to == sorted.length ? sorted : Arrays.copyOfRange(sorted, from, to));
+        }
+    }
+
+    private void fixCapacities() {
+        if (_refCapacity >= 0) return;
+        _refCapacity = _fsNode.refIds.length;
+        if (_nameCapacity < 0) _nameCapacity = nameBytes(_fsNode.name).length;
+        _inlineCapacity = _fsNode.inline.length;
+        _arrays = 0;
+        if (_fsNode.refHashes.length > 0) _arrays |= HASHES;
+        if (_fsNode.blockLengths.length > 0) _arrays |= LENGTHS;
+        if (_fsNode.movedFrom != ChunkID.INVALID_ID) _arrays |= MOVED_FROM;
+    }
+
+    /**
+     * @param max the capacity
+     * @return the bytes of a count up to max
+     */
+    private static int width(final int max) {
+        return max <= 0xFF ? Byte.BYTES : max <= 0xFFFF ? Short.BYTES : Integer.BYTES;
+    }
+
+    private static void writeCount(final Exporter p_exporter, final int width, final int count) {
+        if (width == Byte.BYTES) {
+            p_exporter.writeByte((byte) count);
+        } else if (width == Short.BYTES) {
+            p_exporter.writeShort((short) count);
+        } else {
+            p_exporter.writeInt(count);
+        }
+    }
+
+    private static int readCount(final Importer p_importer, final int width) {
+        if (width == Byte.BYTES) {
+            return p_importer.readByte((byte) 0) & 0xFF;
+        } else if (width == Short.BYTES) {
+            return p_importer.readShort((short) 0) & 0xFFFF;
+        }
+        return p_importer.readInt(0);
+    }
+
+    private static void pad(final Exporter p_exporter, int bytes) {
+        while (bytes > 0) {
+            int n = Math.min(bytes, ZEROS.length);
+            p_exporter.writeBytes(ZEROS, 0, n);
+            bytes -= n;
+        }
+    }
+
     // -----------------------------------------------------------------------------
 
     @Override
     public void exportObject(final Exporter p_exporter) {
-        p_exporter.writeLong(_fsNode.ID);
+        fixCapacities();
+        byte[] name = nameBytes(_fsNode.name);
+        int nameLength = name.length;
+        if (nameLength > _nameCapacity) {
+            throw new IllegalStateException("FsNode " + ChunkID.toHexString(getID()) + " has a name of " + nameLength + " bytes, capacity " + _nameCapacity);
+        }
+        int refSize = _fsNode.refSize;
+        if (refSize > _refCapacity) {
+            throw new IllegalStateException("FsNode " + ChunkID.toHexString(getID()) + " has " + refSize + " refIds, capacity " + _refCapacity);
+        }
+
+        p_exporter.writeInt(MARK);
+        p_exporter.writeByte((byte) _fsNode.type);
+        p_exporter.writeByte(_arrays);
+        p_exporter.writeCompactNumber(_refCapacity);
+        p_exporter.writeCompactNumber(_nameCapacity);
+        p_exporter.writeCompactNumber(_inlineCapacity);
         p_exporter.writeLong(_fsNode.backId);
-        p_exporter.writeString(_fsNode.name);
-        p_exporter.writeInt(_fsNode.type);
-        p_exporter.writeLong(_fsNode.size);
-        p_exporter.writeInt(_fsNode.refSize);
-        p_exporter.writeLongArray(_fsNode.refIds);
         p_exporter.writeLong(_fsNode.forwardId);
+        p_exporter.writeLong(_fsNode.size);
+        p_exporter.writeLong(_fsNode.stamp);
+        if ((_arrays & MOVED_FROM) != 0) p_exporter.writeLong(_fsNode.movedFrom);
+        writeCount(p_exporter, width(_refCapacity), refSize);
+        writeCount(p_exporter, width(_nameCapacity), nameLength);
+        p_exporter.writeBytes(name, 0, nameLength);
+        pad(p_exporter, _nameCapacity - nameLength);
+        p_exporter.writeLongs(_fsNode.refIds, 0, refSize);
+        pad(p_exporter, (_refCapacity - refSize) * Long.BYTES);
+        if ((_arrays & HASHES) != 0) {
+            p_exporter.writeInts(_fsNode.refHashes, 0, refSize);
+            pad(p_exporter, (_refCapacity - refSize) * Integer.BYTES);
+        }
+        if ((_arrays & LENGTHS) != 0) {
+            p_exporter.writeInts(_fsNode.blockLengths, 0, refSize);
+            pad(p_exporter, (_refCapacity - refSize) * Integer.BYTES);
+        }
+        int inlineLength = Math.min(_fsNode.inline.length, _inlineCapacity);
+        p_exporter.writeBytes(_fsNode.inline, 0, inlineLength);
+        pad(p_exporter, _inlineCapacity - inlineLength);
     }
 
     @Override
     public void importObject(final Importer p_importer) {
-        _fsNode.ID = p_importer.readLong(_fsNode.ID);
+        int mark = p_importer.readInt(0);
+        if (mark != MARK) {
+            // a chunk of an other version (or not a FsNode): the caller sees a missing chunk
+            setID(ChunkID.INVALID_ID);
+            return;
+        }
+        _fsNode.ID = getID();
+        _fsNode.type = p_importer.readByte((byte) 0);
+        _arrays = p_importer.readByte(_arrays);
+        _refCapacity = p_importer.readCompactNumber(0);
+        _nameCapacity = p_importer.readCompactNumber(0);
+        _inlineCapacity = p_importer.readCompactNumber(0);
         _fsNode.backId = p_importer.readLong(_fsNode.backId);
-        _fsNode.name = p_importer.readString(_fsNode.name);
-        _fsNode.type = p_importer.readInt(_fsNode.type);
-        _fsNode.size = p_importer.readLong(_fsNode.size);
-        _fsNode.refSize = p_importer.readInt(_fsNode.refSize);
-        _fsNode.refIds = p_importer.readLongArray(_fsNode.refIds);
         _fsNode.forwardId = p_importer.readLong(_fsNode.forwardId);
+        _fsNode.size = p_importer.readLong(_fsNode.size);
+        _fsNode.stamp = p_importer.readLong(_fsNode.stamp);
+        _fsNode.movedFrom = (_arrays & MOVED_FROM) != 0 ? p_importer.readLong(0) : ChunkID.INVALID_ID;
+        _fsNode.refSize = readCount(p_importer, width(_refCapacity));
+        int nameLength = readCount(p_importer, width(_nameCapacity));
+        // we read the complete capacities: the rest of each array is zero
+        byte[] name = new byte[_nameCapacity];
+        p_importer.readBytes(name);
+        _fsNode.name = new String(name, 0, nameLength, DxramFsConfig.STRING_STD_CHARSET);
+        _fsNode.refIds = new long[_refCapacity];
+        p_importer.readLongs(_fsNode.refIds);
+        _fsNode.refHashes = new int[(_arrays & HASHES) != 0 ? _refCapacity : 0];
+        p_importer.readInts(_fsNode.refHashes);
+        _fsNode.blockLengths = new int[(_arrays & LENGTHS) != 0 ? _refCapacity : 0];
+        p_importer.readInts(_fsNode.blockLengths);
+        _fsNode.inline = new byte[_inlineCapacity];
+        p_importer.readBytes(_fsNode.inline);
     }
 
     @Override
     public int sizeofObject() {
+        fixCapacities();
         int size = 0;
-        size += Long.BYTES; // ID
+        size += Integer.BYTES; // mark with format
+        size += 2 * Byte.BYTES; // type, arrays
+        size += CompactNumber.compact(_refCapacity).length;
+        size += CompactNumber.compact(_nameCapacity).length;
+        size += CompactNumber.compact(_inlineCapacity).length;
         size += Long.BYTES; // referenceId backId
-        size += ObjectSizeUtil.sizeofString(_fsNode.name);
-        //size += _fsNode.name.getBytes().length +1; // name @todo the +1 is a bit suspect
-        size += Integer.BYTES; // fsNodeType type
-        size += Long.BYTES; // size
-        size += Integer.BYTES; // refSize
-        size += ObjectSizeUtil.sizeofLongArray(_fsNode.refIds);
-//        size += Long.BYTES * DxramFsConfig.ref_ids_each_fsnode;
         size += Long.BYTES; // extID forwardId
+        size += Long.BYTES; // size
+        size += Long.BYTES; // stamp
+        if ((_arrays & MOVED_FROM) != 0) size += Long.BYTES;
+        size += width(_refCapacity); // refSize
+        size += width(_nameCapacity); // name length
+        size += _nameCapacity;
+        size += _refCapacity * Long.BYTES;
+        if ((_arrays & HASHES) != 0) size += _refCapacity * Integer.BYTES;
+        if ((_arrays & LENGTHS) != 0) size += _refCapacity * Integer.BYTES;
+        size += _inlineCapacity;
         return size;
     }
 
@@ -0,0 +1,91 @@
+package de.hhu.bsinfo.dxapp.dxramfspeer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Leases of hadoop nodes on paths: a node caches the FsNode of a path until the lease ends.
+ * If the path changes before, the peer sends an InvalidateMessage to all nodes of revoke().
+ *
+ * Each peer knows only its own leases. The peer with a change sends an InvalidateMessage to the
+ * other peers, too, and they revoke their leases. If such a message is lost, a hadoop node still
+ * never caches longer than the lease time.
+ */
+public class LeaseTable {
+
+    // purge expired leases after this many grants, thus the table does not grow forever
+    private static final int PURGE_INTERVAL = 1024;
+
+    // path -> (node id -> end of lease in ms)
+    private final Map<String, Map<Short, Long>> _leases;
+    // chunkid of the FsNode -> path (a flush knows only the chunkid)
+    private final Map<Long, String> _paths;
+    private int _grants;
+
+    public LeaseTable() {
+        _leases = new HashMap<>();
+        _paths = new HashMap<>();
+        _grants = 0;
+    }
+
+    public synchronized void grant(String path, long chunkId, short nodeId, int leaseMs) {
+        String key = PathCache.key(path);
+        long now = System.currentTimeMillis();
+        _leases.computeIfAbsent(key, k -> new HashMap<>()).put(nodeId, now + leaseMs);
+        _paths.put(chunkId, key);
+        if (++_grants % PURGE_INTERVAL == 0) {
+            purge(now);
+        }
+    }
+
+    /**
+     * removes the leases of path (and all paths below it, if subtree).
+     *
+     * @param path
+     * @param subtree
+     * @return the nodes with a running lease
+     */
+    public synchronized Set<Short> revoke(String path, boolean subtree) {
+        String key = PathCache.key(path);
+        String prefix = key + "/";
+        long now = System.currentTimeMillis();
+        Set<Short> back = new HashSet<>();
+        Iterator<Map.Entry<String, Map<Short, Long>>> it = _leases.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Map<Short, Long>> e = it.next();
+            if (e.getKey().equals(key) || (subtree && (key.isEmpty() || e.getKey().startsWith(prefix)))) {
+                for (Map.Entry<Short, Long> holder : e.getValue().entrySet()) {
+                    if (holder.getValue() > now) back.add(holder.getKey());
+                }
+                it.remove();
+            }
+        }
+        return back;
+    }
+
+    /**
+     * @param chunkId
+     * @return the path of a FsNode with leases or null
+     */
+    public synchronized String pathOf(long chunkId) {
+        String path = _paths.get(chunkId);
+        if (path != null && !_leases.containsKey(path)) {
+            _paths.remove(chunkId);
+            return null;
+        }
+        return path;
+    }
+
+    private void purge(long now) {
+        Iterator<Map<Short, Long>> it = _leases.values().iterator();
+        while (it.hasNext()) {
+            Map<Short, Long> holders = it.next();
+            holders.values().removeIf(end -> end <= now);
+            if (holders.isEmpty()) it.remove();
+        }
+        _paths.values().removeIf(path -> !_leases.containsKey(path));
+    }
+}
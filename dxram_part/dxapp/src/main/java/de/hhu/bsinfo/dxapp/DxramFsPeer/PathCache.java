@@ -0,0 +1,91 @@
+package de.hhu.bsinfo.dxapp.dxramfspeer;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+import de.hhu.bsinfo.dxapp.dxramfscore.LruCache;
+
+/**
+ * Path to chunkid cache of the FsNodes (like a dentry cache). Thus a lookup of a known path
+ * does not search every folder on the way with getIn().
+ *
+ * We cache only existing paths: a new folder or file (mkDir, mkFile) needs no invalidation.
+ * A delete or rename of a path must call invalidate(). A deleted or renamed folder drops
+ * all paths below it, too.
+ */
+public class PathCache {
+
+    private final LruCache<String, Long> _cache;
+    // changes on every invalidate(). A lookup, which started before, does not put its old result
+    private long _generation;
+
+    /**
+     * @param size max cached paths (LRU). 0 disables the cache
+     */
+    public PathCache(int size) {
+        _cache = size > 0 ? new LruCache<>(size) : null;
+        _generation = 0;
+    }
+
+    /**
+     * @param path
+     * @return the cached chunkid or INVALID_ID
+     */
+    public long get(String path) {
+        if (_cache == null) return DxramFsConfig.INVALID_ID;
+        Long id = _cache.get(key(path));
+        return id == null ? DxramFsConfig.INVALID_ID : id;
+    }
+
+    /**
+     * get it before the lookup and pass it to put()
+     *
+     * @return
+     */
+    public synchronized long generation() {
+        return _generation;
+    }
+
+    public synchronized void put(String path, long chunkId, long generation) {
+        if (_cache == null || generation != _generation) return;
+        _cache.put(key(path), chunkId);
+    }
+
+    /**
+     * @param path the deleted or renamed path
+     * @param folder true, if there may be cached paths below it
+     */
+    public synchronized void invalidate(String path, boolean folder) {
+        _generation++;
+        if (_cache == null) return;
+        String key = key(path);
+        if (key.isEmpty() && folder) {
+            _cache.clear();
+        } else if (folder) {
+            String below = key + "/";
+            _cache.removeIf(k -> k.equals(key) || k.startsWith(below));
+        } else {
+            _cache.remove(key);
+        }
+    }
+
+    /**
+     * "/a//b/" and "a/b" are the same path
+     *
+     * @param path
+     * @return
+     */
+    public static String key(String path) {
+        return String.join("/", parts(path));
+    }
+
+    /**
+     * the names of the path without empty parts
+     *
+     * @param path
+     * @return
+     */
+    public static String[] parts(String path) {
+        String p = PathLocks.normalize(path);
+        if (p.isEmpty()) return new String[0];
+        return p.split("/+");
+    }
+}
@@ -0,0 +1,146 @@
+package de.hhu.bsinfo.dxapp.dxramfspeer;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Striped locks for paths in DxramFs. Mutating requests (mkdirs, create, delete, rename, flush)
+ * change the FsNode of a folder (refIds, size) with a get/modify/put, thus two requests on the
+ * same folder must not run at the same time. Requests on different folders run in parallel.
+ *
+ * With lockPaths() a request also holds the folders above its paths shared: a delete or rename
+ * of a folder (exclusive) waits for all requests below it, and they wait for it.
+ */
+public class PathLocks {
+
+    private final ReentrantReadWriteLock[] _stripes;
+
+    public PathLocks(int stripes) {
+        _stripes = new ReentrantReadWriteLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            _stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * locks all stripes of the given keys exclusive.
+     *
+     * @param keys paths or other names (e.g. chunkids)
+     * @return the locked stripes, to use them with unlock()
+     */
+    public int[] lock(String... keys) {
+        return lock(keys, new String[0]);
+    }
+
+    /**
+     * locks the given paths exclusive and all folders above them shared.
+     * for "a/b" it locks "a/b" exclusive, "" and "a" shared.
+     *
+     * @param paths
+     * @return the locked stripes, to use them with unlock()
+     */
+    public int[] lockPaths(String... paths) {
+        String[][] above = new String[paths.length][];
+        int count = 0;
+        for (int i = 0; i < paths.length; i++) {
+            above[i] = normalize(paths[i]).isEmpty() ? new String[0] : ancestors(paths[i]);
+            count += above[i].length;
+        }
+        String[] shared = new String[count];
+        count = 0;
+        for (String[] a : above) {
+            System.arraycopy(a, 0, shared, count, a.length);
+            count += a.length;
+        }
+        return lock(paths, shared);
+    }
+
+    /**
+     * locks the stripes in index order, thus two threads never wait for each other in a different
+     * order. A stripe, which is needed exclusive and shared, is locked exclusive (a ReentrantReadWriteLock
+     * does not upgrade).
+     *
+     * @return for each stripe (index * 2 + 1) if exclusive, (index * 2) if shared
+     */
+    private int[] lock(String[] exclusive, String[] shared) {
+        int[] idx = new int[exclusive.length + shared.length];
+        for (int i = 0; i < exclusive.length; i++) {
+            idx[i] = stripe(exclusive[i]) * 2 + 1;
+        }
+        for (int i = 0; i < shared.length; i++) {
+            idx[exclusive.length + i] = stripe(shared[i]) * 2;
+        }
+        Arrays.sort(idx);
+        // the exclusive entry of a stripe follows its shared one
+        int count = 0;
+        for (int i = 0; i < idx.length; i++) {
+            if (count > 0 && idx[count - 1] / 2 == idx[i] / 2) {
+                idx[count - 1] = idx[i];
+            } else {
+                idx[count++] = idx[i];
+            }
+        }
+        idx = Arrays.copyOf(idx, count);
+        for (int i : idx) {
+            if (i % 2 == 1) {
+                _stripes[i / 2].writeLock().lock();
+            } else {
+                _stripes[i / 2].readLock().lock();
+            }
+        }
+        return idx;
+    }
+
+    public void unlock(int[] locked) {
+        if (locked == null) return;
+        for (int i = locked.length - 1; i >= 0; i--) {
+            if (locked[i] % 2 == 1) {
+                _stripes[locked[i] / 2].writeLock().unlock();
+            } else {
+                _stripes[locked[i] / 2].readLock().unlock();
+            }
+        }
+    }
+
+    private int stripe(String path) {
+        return Math.floorMod(normalize(path).hashCode(), _stripes.length);
+    }
+
+    /**
+     * the folder, which gets or loses the entry of path ("" is the root)
+     *
+     * @param path
+     * @return
+     */
+    public static String parent(String path) {
+        String p = normalize(path);
+        int i = p.lastIndexOf('/');
+        return i < 0 ? "" : p.substring(0, i);
+    }
+
+    /**
+     * all folders, which may get a new entry, if we create path with all missing folders.
+     * for "a/b/c" it is "", "a" and "a/b".
+     *
+     * @param path
+     * @return
+     */
+    public static String[] ancestors(String path) {
+        String[] parts = normalize(path).split("/");
+        String[] back = new String[parts.length];
+        String p = "";
+        for (int i = 0; i < parts.length; i++) {
+            back[i] = p;
+            p = p.isEmpty() ? parts[i] : p + "/" + parts[i];
+        }
+        return back;
+    }
+
+    public static String normalize(String path) {
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == '/') start++;
+        while (end > start && path.charAt(end - 1) == '/') end--;
+        return path.substring(start, end);
+    }
+}
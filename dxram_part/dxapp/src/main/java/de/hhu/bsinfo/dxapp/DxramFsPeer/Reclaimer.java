@@ -0,0 +1,251 @@
+package de.hhu.bsinfo.dxapp.dxramfspeer;
+
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+import de.hhu.bsinfo.dxapp.dxramfscore.FsNode;
+import de.hhu.bsinfo.dxapp.dxramfscore.FsNodeType;
+import de.hhu.bsinfo.dxmem.data.ChunkID;
+import de.hhu.bsinfo.dxram.chunk.ChunkService;
+import de.hhu.bsinfo.dxutils.stats.AbstractState;
+import de.hhu.bsinfo.dxutils.stats.StatisticsManager;
+import de.hhu.bsinfo.dxutils.stats.Value;
+
+/**
+ * frees the chunks of deleted files and folders in the background. A delete only removes the entry from
+ * the parent folder and passes the FsNode to reclaim(): this thread walks the subtree (EXT FsNodes,
+ * BlockChunks of files, entries of folders) and removes the chunks in batches of BATCH chunkids.
+ * With chunksPerSecond > 0 it sleeps between the batches, thus a large delete does not slow down
+ * the requests of the workers.
+ *
+ * If the peer stops, the chunks of the waiting FsNodes are lost until dxram restarts.
+ */
+public class Reclaimer extends Thread {
+
+    private static final Logger LOG = LogManager.getFormatterLogger(Reclaimer.class.getSimpleName());
+
+    // chunkids in a single remove(). dxram sends one request to each owning peer of them
+    private static final int BATCH = 256;
+
+    private static final Value SOP_RECLAIMED_CHUNKS = new Value(Reclaimer.class, "ReclaimedChunks");
+    // data of BlockChunks and FsNodes
+    private static final Value SOP_RECLAIMED_BYTES = new Value(Reclaimer.class, "ReclaimedBytes", Value.Base.B_2);
+
+    static {
+        StatisticsManager.get().registerOperation(Reclaimer.class, SOP_RECLAIMED_CHUNKS);
+        StatisticsManager.get().registerOperation(Reclaimer.class, SOP_RECLAIMED_BYTES);
+    }
+
+    private final ChunkService _chunkS;
+    private final PathLocks _nodeLocks;
+    private final BlockFragments _fragments;
+    private final ExtIndex _extIndex;
+    private final int _chunksPerSecond;
+
+    // chunkids of unlinked file or folder FsNodes
+    private final LinkedBlockingQueue<Long> _roots;
+
+    private final long[] _batch;
+    // read by the statistics (QueueState)
+    private volatile int _batchSize;
+    private long _batchBytes;
+
+    /**
+     * @param chunkS
+     * @param nodeLocks the locks of the flushes (by FsNode chunkid)
+     * @param fragments forgets the cached blocks, we free
+     * @param extIndex forgets the EXTs of the files, we free
+     * @param chunksPerSecond max. removed chunks each second. 0 = no limit
+     */
+    public Reclaimer(ChunkService chunkS, PathLocks nodeLocks, BlockFragments fragments, ExtIndex extIndex,
+            int chunksPerSecond) {
+        super("dxramfs-reclaimer");
+        setDaemon(true);
+        _chunkS = chunkS;
+        _nodeLocks = nodeLocks;
+        _fragments = fragments;
+        _extIndex = extIndex;
+        _chunksPerSecond = Math.max(0, chunksPerSecond);
+        _roots = new LinkedBlockingQueue<>();
+        _batch = new long[BATCH];
+        _batchSize = 0;
+        _batchBytes = 0;
+        StatisticsManager.get().registerOperation(Reclaimer.class, new QueueState());
+    }
+
+    /**
+     * frees the FsNode and all chunks below it. Nobody may find the FsNode anymore:
+     * the caller has removed it from its parent folder.
+     *
+     * @param chunkId of a file or folder FsNode
+     */
+    public void reclaim(long chunkId) {
+        _roots.add(chunkId);
+    }
+
+    @Override
+    public void run() {
+        while (!isInterrupted()) {
+            long chunkId;
+            try {
+                chunkId = _roots.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            try {
+                FsNodeChunk node = new FsNodeChunk(chunkId);
+                _chunkS.get().get(node);
+                if (node.getID() == ChunkID.INVALID_ID) {
+                    LOG.warn("reclaim: missing FsNode [%s]", String.format("0x%X", chunkId));
+                    continue;
+                }
+                collect(node);
+                flush();
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                // we lose the rest of this subtree, but not the following ones
+                LOG.error("reclaim [%s] failed: %s", String.format("0x%X", chunkId), e.getMessage());
+                _batchSize = 0;
+                _batchBytes = 0;
+            }
+        }
+    }
+
+    /**
+     * adds the chunkids of node, its EXT FsNodes, the BlockChunks and MOVED FsNodes of a file and all entries
+     * of a folder (recursive) to the batch.
+     * A file is marked with backId INVALID under its node lock first: a flush, which runs, has put its
+     * blocks before we read them, a later flush fails (the delete of a folder does not mark its files).
+     */
+    private void collect(FsNodeChunk node) throws InterruptedException {
+        if (node.get().type != FsNodeType.FILE) {
+            collectParts(node, false);
+            return;
+        }
+        int[] locked = _nodeLocks.lock(String.valueOf(node.getID()));
+        try {
+            long chunkId = node.getID();
+            _chunkS.get().get(node);
+            if (node.getID() == ChunkID.INVALID_ID) {
+                LOG.warn("reclaim: missing file [%s]", String.format("0x%X", chunkId));
+                return;
+            }
+            FsNode n = node.get();
+            n.backId = DxramFsConfig.INVALID_ID;
+            node.set(n);
+            _chunkS.put().put(node);
+            collectParts(node, true);
+        } finally {
+            _nodeLocks.unlock(locked);
+        }
+    }
+
+    private void collectParts(FsNodeChunk node, boolean file) throws InterruptedException {
+        FsNodeChunk part = node;
+        while (true) {
+            FsNode p = part.get();
+            if (file) {
+                for (int i = 0; i < p.refSize; i++) {
+                    // a block without flush has no BlockChunk
+                    if (p.refIds[i] == ChunkID.INVALID_ID) continue;
+                    _fragments.forget(p.refIds[i]);
+                    add(p.refIds[i], p.blockLengths[i]);
+                }
+            } else {
+                // the entries of this part of the folder in batched gets
+                FsNodeChunk[] entries = new FsNodeChunk[p.refSize];
+                for (int i = 0; i < p.refSize; i++) entries[i] = new FsNodeChunk(p.refIds[i]);
+                FsNodeChunk.getAll(_chunkS, entries);
+                for (int i = 0; i < p.refSize; i++) {
+                    if (entries[i].getID() == ChunkID.INVALID_ID) {
+                        LOG.warn("reclaim: missing entry [%s]", String.format("0x%X", p.refIds[i]));
+                        continue;
+                    }
+                    collect(entries[i]);
+                }
+            }
+            // follow the EXT chain. a FsNode without EXT links to itself
+            long next = p.forwardId;
+            if (next == part.getID() || next == ChunkID.INVALID_ID) break;
+            FsNodeChunk ext = new FsNodeChunk(next);
+            _chunkS.get().get(ext);
+            if (ext.getID() == ChunkID.INVALID_ID || ext.get().type != FsNodeType.EXT) break;
+            // we have the data of the EXT: a flush may free it before we read its refIds
+            add(next, ext.sizeofObject());
+            part = ext;
+        }
+        // the MOVED FsNodes of the renames of a file (see FsNodeType.MOVED)
+        long moved = node.get().movedFrom;
+        while (moved != ChunkID.INVALID_ID) {
+            FsNodeChunk old = new FsNodeChunk(moved);
+            _chunkS.get().get(old);
+            if (old.getID() == ChunkID.INVALID_ID || old.get().type != FsNodeType.MOVED) break;
+            add(moved, old.sizeofObject());
+            moved = old.get().movedFrom;
+        }
+        _extIndex.forget(node.getID());
+        add(node.getID(), node.sizeofObject());
+    }
+
+    private void add(long chunkId, long bytes) throws InterruptedException {
+        _batch[_batchSize++] = chunkId;
+        _batchBytes += bytes;
+        if (_batchSize == BATCH) flush();
+    }
+
+    /**
+     * removes the chunks of the batch and waits, if we are faster than _chunksPerSecond.
+     */
+    private void flush() throws InterruptedException {
+        if (_batchSize == 0) return;
+        long start = System.currentTimeMillis();
+
+        long[] ids = _batchSize == BATCH ? _batch : Arrays.copyOf(_batch, _batchSize);
+        int removed = _chunkS.remove().remove(ids);
+        if (removed != _batchSize) {
+            LOG.warn("reclaim: removed %d of %d chunks", removed, _batchSize);
+        }
+        SOP_RECLAIMED_CHUNKS.add(removed);
+        SOP_RECLAIMED_BYTES.add(_batchBytes);
+        LOG.debug("reclaimed %d chunks, %d bytes", removed, _batchBytes);
+        int count = _batchSize;
+        _batchSize = 0;
+        _batchBytes = 0;
+
+        if (_chunksPerSecond > 0) {
+            long wait = count * 1000L / _chunksPerSecond - (System.currentTimeMillis() - start);
+            if (wait > 0) Thread.sleep(wait);
+        }
+    }
+
+    /**
+     * the queue depth, when the statistics are printed: unlinked FsNodes, we did not walk,
+     * and collected chunks, we did not free
+     */
+    private class QueueState extends AbstractState {
+
+        QueueState() {
+            super(Reclaimer.class, "QueueDepth");
+        }
+
+        @Override
+        public String dataToString(final String p_indent, final boolean p_extended) {
+            return p_indent + "roots " + _roots.size() + ";batch " + _batchSize;
+        }
+
+        @Override
+        public String generateCSVHeader(final char p_delim) {
+            return "roots" + p_delim + "batch";
+        }
+
+        @Override
+        public String toCSV(final char p_delim) {
+            return Integer.toString(_roots.size()) + p_delim + _batchSize;
+        }
+    }
+}
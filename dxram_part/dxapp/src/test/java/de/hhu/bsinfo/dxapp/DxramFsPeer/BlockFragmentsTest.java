@@ -0,0 +1,90 @@
+package de.hhu.bsinfo.dxapp.dxramfspeer;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+
+public class BlockFragmentsTest {
+
+    private static final int BLOCK_SIZE = 64;
+
+    @Before
+    public void setUp() {
+        DxramFsConfig.file_blocksize = BLOCK_SIZE;
+    }
+
+    private static byte[] bytes(int from, int to) {
+        byte[] back = new byte[to - from];
+        for (int i = from; i < to; i++) back[i - from] = (byte) i;
+        return back;
+    }
+
+    @Test
+    public void testOutOfOrderReassembly() {
+        BlockFragments fragments = new BlockFragments(0, 60000);
+        // the range 8..40 in three fragments, the last one first
+        Assert.assertNull(fragments.add(1, 0, bytes(30, 40), 30, 3));
+        Assert.assertNull(fragments.add(1, 0, bytes(8, 20), 8, 3));
+        BlockFragments.Assembly a = fragments.add(1, 0, bytes(20, 30), 20, 3);
+        Assert.assertNotNull(a);
+        Assert.assertEquals(8, a.from);
+        Assert.assertEquals(40, a.to);
+        Assert.assertArrayEquals(bytes(8, 40), Arrays.copyOfRange(a.data, a.from, a.to));
+    }
+
+    @Test
+    public void testBlocksAreSeparate() {
+        BlockFragments fragments = new BlockFragments(0, 60000);
+        Assert.assertNull(fragments.add(1, 0, bytes(0, 10), 0, 2));
+        Assert.assertNull(fragments.add(1, 1, bytes(0, 10), 0, 2));
+        Assert.assertNull(fragments.add(2, 0, bytes(10, 20), 10, 2));
+        BlockFragments.Assembly a = fragments.add(1, 1, bytes(10, 20), 10, 2);
+        Assert.assertNotNull(a);
+        Assert.assertArrayEquals(bytes(0, 20), Arrays.copyOfRange(a.data, a.from, a.to));
+        // the completed flush starts again
+        Assert.assertNull(fragments.add(1, 1, bytes(0, 10), 0, 2));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testFragmentBehindBlock() {
+        new BlockFragments(0, 60000).add(1, 0, bytes(0, 10), BLOCK_SIZE - 5, 2);
+    }
+
+    @Test
+    public void testExpiredAssemblyFails() throws InterruptedException {
+        BlockFragments fragments = new BlockFragments(0, 20);
+        Assert.assertNull(fragments.add(1, 0, bytes(0, 10), 0, 2));
+        Assert.assertNull(fragments.add(2, 0, bytes(0, 10), 0, 2));
+        Thread.sleep(50);
+        // the waiting flush of the same block fails
+        try {
+            fragments.add(1, 0, bytes(10, 20), 10, 2);
+            Assert.fail("expired fragments were completed");
+        } catch (IllegalStateException expected) {
+        }
+        // the other one is dropped by the purge and fails with its next fragment
+        Assert.assertNull(fragments.add(3, 0, bytes(0, 10), 0, 2));
+        try {
+            fragments.add(2, 0, bytes(10, 20), 10, 2);
+            Assert.fail("dropped fragments were completed");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testReadCache() {
+        BlockFragments fragments = new BlockFragments(2, 60000);
+        byte[] data = bytes(0, 10);
+        fragments.cache(5, data);
+        // offset 0 starts a new read: it gets the block from dxram
+        Assert.assertNull(fragments.cached(5, 0));
+        Assert.assertSame(data, fragments.cached(5, 4));
+        fragments.forget(5);
+        Assert.assertNull(fragments.cached(5, 4));
+        Assert.assertNull(new BlockFragments(0, 60000).cached(5, 4));
+    }
+}
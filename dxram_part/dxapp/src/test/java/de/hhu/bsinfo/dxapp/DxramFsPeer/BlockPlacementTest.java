@@ -0,0 +1,78 @@
+package de.hhu.bsinfo.dxapp.dxramfspeer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BlockPlacementTest {
+
+    private static final List<Short> PEERS = Arrays.asList((short) 1, (short) 2, (short) 3);
+
+    @Test
+    public void testForName() {
+        Assert.assertTrue(BlockPlacement.forName(null) instanceof BlockPlacement.Local);
+        Assert.assertTrue(BlockPlacement.forName("") instanceof BlockPlacement.Local);
+        Assert.assertTrue(BlockPlacement.forName("local") instanceof BlockPlacement.Local);
+        Assert.assertTrue(BlockPlacement.forName("round_robin") instanceof BlockPlacement.RoundRobin);
+        Assert.assertTrue(BlockPlacement.forName("fewest_placed") instanceof BlockPlacement.FewestPlaced);
+        Assert.assertTrue(BlockPlacement.forName("least_loaded") instanceof BlockPlacement.FewestPlaced);
+        Assert.assertTrue(BlockPlacement.forName("hash_striped") instanceof BlockPlacement.HashStriped);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownName() {
+        BlockPlacement.forName("random");
+    }
+
+    @Test
+    public void testLocal() {
+        BlockPlacement placement = new BlockPlacement.Local();
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(2, placement.choose(7, i, PEERS, (short) 2));
+        }
+    }
+
+    @Test
+    public void testRoundRobin() {
+        BlockPlacement placement = new BlockPlacement.RoundRobin();
+        for (int i = 0; i < 6; i++) {
+            Assert.assertEquals((short) PEERS.get(i % 3), placement.choose(7, 0, PEERS, (short) 2));
+        }
+    }
+
+    @Test
+    public void testFewestPlaced() {
+        BlockPlacement placement = new BlockPlacement.FewestPlaced();
+        // on equal counts the local peer first, then the others
+        Assert.assertEquals(2, placement.choose(7, 0, PEERS, (short) 2));
+        Map<Short, Integer> placed = new HashMap<>();
+        placed.put((short) 2, 1);
+        for (int i = 1; i < 9; i++) {
+            placed.merge(placement.choose(7, i, PEERS, (short) 2), 1, Integer::sum);
+        }
+        for (short peer : PEERS) {
+            Assert.assertEquals(3, (int) placed.get(peer));
+        }
+        // a new peer gets the blocks, until it has as many as the others
+        List<Short> more = Arrays.asList((short) 1, (short) 2, (short) 3, (short) 4);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(4, placement.choose(7, i, more, (short) 2));
+        }
+    }
+
+    @Test
+    public void testHashStriped() {
+        BlockPlacement placement = new BlockPlacement.HashStriped();
+        // the same file and block always go to the same peer, the next blocks to the next peers
+        short first = placement.choose(42, 0, PEERS, (short) 1);
+        Assert.assertEquals(first, placement.choose(42, 0, PEERS, (short) 2));
+        int start = PEERS.indexOf(first);
+        for (int i = 0; i < 6; i++) {
+            Assert.assertEquals((short) PEERS.get((start + i) % 3), placement.choose(42, i, PEERS, (short) 3));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package de.hhu.bsinfo.dxapp.dxramfspeer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+
+public class ExtIndexTest {
+
+    @Test
+    public void testAddInOrder() {
+        ExtIndex index = new ExtIndex(4);
+        Assert.assertEquals(0, index.size(1));
+        Assert.assertEquals(DxramFsConfig.INVALID_ID, index.get(1, 1));
+        index.add(1, 1, 100);
+        index.add(1, 2, 200);
+        Assert.assertEquals(2, index.size(1));
+        Assert.assertEquals(100, index.get(1, 1));
+        Assert.assertEquals(200, index.get(1, 2));
+        Assert.assertEquals(DxramFsConfig.INVALID_ID, index.get(1, 3));
+        Assert.assertEquals(DxramFsConfig.INVALID_ID, index.get(1, 0));
+    }
+
+    @Test
+    public void testGapsAreIgnored() {
+        ExtIndex index = new ExtIndex(4);
+        // EXT 2 without EXT 1 is not known
+        index.add(1, 2, 200);
+        Assert.assertEquals(0, index.size(1));
+        index.add(1, 1, 100);
+        index.add(1, 3, 300);
+        Assert.assertEquals(1, index.size(1));
+        // a known EXT is not replaced
+        index.add(1, 1, 101);
+        Assert.assertEquals(100, index.get(1, 1));
+        index.add(1, 0, 50);
+        Assert.assertEquals(1, index.size(1));
+    }
+
+    @Test
+    public void testForget() {
+        ExtIndex index = new ExtIndex(4);
+        index.add(1, 1, 100);
+        index.add(2, 1, 110);
+        index.forget(1);
+        Assert.assertEquals(0, index.size(1));
+        Assert.assertEquals(DxramFsConfig.INVALID_ID, index.get(1, 1));
+        Assert.assertEquals(110, index.get(2, 1));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedFileIsDropped() {
+        ExtIndex index = new ExtIndex(2);
+        index.add(1, 1, 100);
+        index.add(2, 1, 200);
+        index.get(1, 1);
+        index.add(3, 1, 300);
+        Assert.assertEquals(100, index.get(1, 1));
+        Assert.assertEquals(DxramFsConfig.INVALID_ID, index.get(2, 1));
+        Assert.assertEquals(300, index.get(3, 1));
+    }
+
+    @Test
+    public void testDisabled() {
+        ExtIndex index = new ExtIndex(0);
+        index.add(1, 1, 100);
+        Assert.assertEquals(0, index.size(1));
+        Assert.assertEquals(DxramFsConfig.INVALID_ID, index.get(1, 1));
+        index.forget(1);
+    }
+}
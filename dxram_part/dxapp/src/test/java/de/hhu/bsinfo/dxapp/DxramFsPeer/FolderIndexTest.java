@@ -0,0 +1,80 @@
+package de.hhu.bsinfo.dxapp.dxramfspeer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FolderIndexTest {
+
+    private static FolderIndex.Entries entries(long stamp) {
+        // 3 and 10 have the same hash
+        return new FolderIndex.Entries(stamp, new int[] {7, -5, 7, 0}, new long[] {3, 1, 10, 2}, 4);
+    }
+
+    @Test
+    public void testFind() {
+        FolderIndex.Entries e = entries(1);
+        Assert.assertEquals(4, e.size());
+        Assert.assertArrayEquals(new long[] {3, 10}, e.find(7));
+        Assert.assertArrayEquals(new long[] {1}, e.find(-5));
+        Assert.assertArrayEquals(new long[0], e.find(8));
+    }
+
+    @Test
+    public void testAddRemove() {
+        FolderIndex.Entries e = entries(1);
+        for (int i = 0; i < 20; i++) {
+            e.add(100 + i, 1000 + i);
+        }
+        Assert.assertEquals(24, e.size());
+        Assert.assertArrayEquals(new long[] {1010}, e.find(110));
+
+        Assert.assertTrue(e.remove(7, 10));
+        Assert.assertFalse(e.remove(7, 10));
+        Assert.assertFalse(e.remove(8, 3));
+        Assert.assertArrayEquals(new long[] {3}, e.find(7));
+        for (int i = 1; i < e.size(); i++) {
+            Assert.assertTrue(e.hashAt(i - 1) <= e.hashAt(i));
+        }
+    }
+
+    @Test
+    public void testFrom() {
+        FolderIndex.Entries e = entries(1);
+        FolderIndex.Entries page = e.from(0, 2);
+        // 0, 7 and the second 7: the entries with the same hash stay on one page
+        Assert.assertEquals(3, page.size());
+        Assert.assertEquals(0, page.hashAt(0));
+        Assert.assertEquals(2, page.idAt(0));
+        Assert.assertEquals(7, page.hashAt(2));
+        Assert.assertEquals(0, e.from(8, 10).size());
+    }
+
+    @Test
+    public void testStamp() {
+        FolderIndex index = new FolderIndex(4);
+        index.put(42, entries(1));
+        Assert.assertNull(index.get(42, 2));
+        Assert.assertNotNull(index.get(42, 1));
+
+        // the namespace peer updates its index in place
+        index.added(42, 1, 2, 11, 5);
+        Assert.assertNull(index.get(42, 1));
+        Assert.assertArrayEquals(new long[] {5}, index.get(42, 2).find(11));
+        index.removed(42, 2, 3, 11, 5);
+        Assert.assertArrayEquals(new long[0], index.get(42, 3).find(11));
+
+        // a change of an other stamp drops the index
+        index.added(42, 1, 4, 12, 6);
+        Assert.assertNull(index.get(42, 3));
+        Assert.assertNull(index.get(42, 4));
+    }
+
+    @Test
+    public void testDisabled() {
+        FolderIndex index = new FolderIndex(0);
+        index.put(42, entries(1));
+        Assert.assertNull(index.get(42, 1));
+        index.added(42, 1, 2, 11, 5);
+        index.forget(42);
+    }
+}
@@ -0,0 +1,145 @@
+package de.hhu.bsinfo.dxapp.dxramfspeer;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+import de.hhu.bsinfo.dxapp.dxramfscore.FsNode;
+import de.hhu.bsinfo.dxapp.dxramfscore.FsNodeType;
+import de.hhu.bsinfo.dxmem.data.ChunkID;
+import de.hhu.bsinfo.dxutils.serialization.ByteBufferImExporter;
+
+public class FsNodeChunkTest {
+
+    @Before
+    public void setUp() {
+        DxramFsConfig.max_filenamelength_chars = 255;
+    }
+
+    private static FsNode file(String name, int refCapacity, int refSize) {
+        FsNode f = new FsNode();
+        f.init(refCapacity);
+        f.type = FsNodeType.FILE;
+        f.name = name;
+        f.refHashes = new int[0];
+        f.blockLengths = new int[refCapacity];
+        f.inline = new byte[16];
+        f.backId = 0x1000000000001L;
+        f.forwardId = 0x2000000000002L;
+        f.size = 5L * Integer.MAX_VALUE;
+        f.stamp = -7;
+        f.refSize = refSize;
+        for (int i = 0; i < refSize; i++) {
+            f.refIds[i] = 0x3000000000000L + i;
+            f.blockLengths[i] = 1000 + i;
+        }
+        f.inline[3] = 42;
+        return f;
+    }
+
+    /**
+     * exports chunk and checks, that it writes exactly sizeofObject() bytes
+     */
+    private static ByteBuffer export(FsNodeChunk chunk) {
+        ByteBuffer buffer = ByteBuffer.allocate(chunk.sizeofObject() + 8);
+        new ByteBufferImExporter(buffer).exportObject(chunk);
+        Assert.assertEquals(chunk.sizeofObject(), buffer.position());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static FsNodeChunk roundTrip(FsNode f) {
+        FsNodeChunk chunk = new FsNodeChunk(f.ID);
+        chunk.set(f);
+        ByteBuffer buffer = export(chunk);
+        FsNodeChunk back = new FsNodeChunk(f.ID);
+        new ByteBufferImExporter(buffer).importObject(back);
+        Assert.assertEquals(chunk.sizeofObject(), buffer.position());
+        Assert.assertEquals(chunk.sizeofObject(), back.sizeofObject());
+        return back;
+    }
+
+    @Test
+    public void testFileRoundTrip() {
+        FsNode f = file("données.txt", 8, 3);
+        f.ID = 0x4000000000004L;
+        FsNode b = roundTrip(f).get();
+        Assert.assertEquals(f.ID, b.ID);
+        Assert.assertEquals(FsNodeType.FILE, b.type);
+        Assert.assertEquals("données.txt", b.name);
+        Assert.assertEquals(f.backId, b.backId);
+        Assert.assertEquals(f.forwardId, b.forwardId);
+        Assert.assertEquals(f.size, b.size);
+        Assert.assertEquals(f.stamp, b.stamp);
+        Assert.assertEquals(ChunkID.INVALID_ID, b.movedFrom);
+        Assert.assertEquals(3, b.refSize);
+        Assert.assertArrayEquals(f.refIds, b.refIds);
+        Assert.assertArrayEquals(f.blockLengths, b.blockLengths);
+        Assert.assertEquals(0, b.refHashes.length);
+        Assert.assertArrayEquals(f.inline, b.inline);
+    }
+
+    @Test
+    public void testFolderAndMovedFrom() {
+        FsNode f = new FsNode();
+        f.init(8);
+        f.name = "folder";
+        f.refSize = 8;
+        for (int i = 0; i < 8; i++) {
+            f.refIds[i] = i + 1;
+            f.refHashes[i] = FsNode.nameHash("e" + i);
+        }
+        f.movedFrom = 0x5000000000005L;
+        FsNode b = roundTrip(f).get();
+        Assert.assertEquals(FsNodeType.FOLDER, b.type);
+        Assert.assertEquals(8, b.refSize);
+        Assert.assertArrayEquals(f.refHashes, b.refHashes);
+        Assert.assertEquals(0, b.blockLengths.length);
+        Assert.assertEquals(f.movedFrom, b.movedFrom);
+    }
+
+    @Test
+    public void testCountWidths() {
+        // refSize and the name length take the width of their capacity: 1, 2 or 4 bytes
+        int[] capacities = {0, 255, 256, 65535, 65536};
+        int[] widths = {1, 1, 2, 2, 4};
+        FsNodeChunk small = new FsNodeChunk(1);
+        small.set(file("", 0, 0));
+        int base = small.sizeofObject();
+        for (int i = 0; i < capacities.length; i++) {
+            FsNode f = file("", capacities[i], Math.min(capacities[i], 300));
+            f.ID = 1;
+            FsNodeChunk chunk = roundTrip(f);
+            int arrays = capacities[i] * (Long.BYTES + Integer.BYTES);
+            int compact = capacities[i] < 128 ? 1 : capacities[i] < 16384 ? 2 : 3;
+            Assert.assertEquals(base - 2 + widths[i] + arrays + compact, chunk.sizeofObject());
+            Assert.assertEquals(Math.min(capacities[i], 300), chunk.get().refSize);
+        }
+    }
+
+    @Test
+    public void testRefSizeAboveCapacity() {
+        FsNode f = file("a", 4, 4);
+        f.refSize = 5;
+        FsNodeChunk chunk = new FsNodeChunk(1);
+        chunk.set(f);
+        try {
+            export(chunk);
+            Assert.fail("refSize above the capacity was exported");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testOtherFormatIsMissing() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.putInt(0x46534E00 | (FsNodeChunk.FORMAT - 1));
+        buffer.flip();
+        FsNodeChunk chunk = new FsNodeChunk(7);
+        new ByteBufferImExporter(buffer).importObject(chunk);
+        Assert.assertEquals(ChunkID.INVALID_ID, chunk.getID());
+    }
+}
@@ -0,0 +1,53 @@
+package de.hhu.bsinfo.dxapp.dxramfspeer;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LeaseTableTest {
+
+    @Test
+    public void testRevokePath() {
+        LeaseTable leases = new LeaseTable();
+        leases.grant("/a/b", 11, (short) 1, 60000);
+        leases.grant("a/b/", 11, (short) 2, 60000);
+        leases.grant("a/c", 12, (short) 3, 60000);
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList((short) 1, (short) 2)), leases.revoke("a/b", false));
+        // revoked once: nobody gets a second InvalidateMessage
+        Assert.assertTrue(leases.revoke("a/b", false).isEmpty());
+        Assert.assertEquals(new HashSet<>(Arrays.asList((short) 3)), leases.revoke("a/c", false));
+    }
+
+    @Test
+    public void testRevokeSubtree() {
+        LeaseTable leases = new LeaseTable();
+        leases.grant("a", 10, (short) 1, 60000);
+        leases.grant("a/b", 11, (short) 2, 60000);
+        leases.grant("ab", 12, (short) 3, 60000);
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList((short) 1, (short) 2)), leases.revoke("a", true));
+        // the root is the parent of all paths
+        Assert.assertEquals(new HashSet<>(Arrays.asList((short) 3)), leases.revoke("", true));
+    }
+
+    @Test
+    public void testExpired() throws Exception {
+        LeaseTable leases = new LeaseTable();
+        leases.grant("a", 10, (short) 1, 1);
+        Thread.sleep(10);
+        Assert.assertTrue(leases.revoke("a", false).isEmpty());
+    }
+
+    @Test
+    public void testPathOf() {
+        LeaseTable leases = new LeaseTable();
+        leases.grant("/a/b", 11, (short) 1, 60000);
+        Assert.assertEquals("a/b", leases.pathOf(11));
+        Assert.assertNull(leases.pathOf(12));
+        leases.revoke("a/b", false);
+        Assert.assertNull(leases.pathOf(11));
+    }
+}
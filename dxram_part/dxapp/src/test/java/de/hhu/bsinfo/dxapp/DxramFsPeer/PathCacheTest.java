@@ -0,0 +1,74 @@
+package de.hhu.bsinfo.dxapp.dxramfspeer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.hhu.bsinfo.dxapp.dxramfscore.DxramFsConfig;
+
+public class PathCacheTest {
+
+    @Test
+    public void testKey() {
+        Assert.assertEquals("a/b", PathCache.key("/a//b/"));
+        Assert.assertEquals("", PathCache.key("/"));
+        Assert.assertArrayEquals(new String[] {"a", "b"}, PathCache.parts("a//b"));
+    }
+
+    @Test
+    public void testPutGet() {
+        PathCache cache = new PathCache(16);
+        Assert.assertEquals(DxramFsConfig.INVALID_ID, cache.get("a/b"));
+        cache.put("/a/b/", 42, cache.generation());
+        Assert.assertEquals(42, cache.get("a//b"));
+    }
+
+    @Test
+    public void testInvalidate() {
+        PathCache cache = new PathCache(16);
+        cache.put("a", 1, cache.generation());
+        cache.put("a/b", 2, cache.generation());
+        cache.put("c", 3, cache.generation());
+
+        cache.invalidate("c", false);
+        Assert.assertEquals(DxramFsConfig.INVALID_ID, cache.get("c"));
+        Assert.assertEquals(2, cache.get("a/b"));
+
+        cache.put("ab", 4, cache.generation());
+        cache.invalidate("a", true);
+        Assert.assertEquals(DxramFsConfig.INVALID_ID, cache.get("a"));
+        Assert.assertEquals(DxramFsConfig.INVALID_ID, cache.get("a/b"));
+        // only the paths below the folder
+        Assert.assertEquals(4, cache.get("ab"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedPathIsDropped() {
+        PathCache cache = new PathCache(2);
+        // all in the same ms
+        cache.put("a", 1, cache.generation());
+        cache.put("b", 2, cache.generation());
+        cache.get("a");
+        cache.put("c", 3, cache.generation());
+        Assert.assertEquals(1, cache.get("a"));
+        Assert.assertEquals(DxramFsConfig.INVALID_ID, cache.get("b"));
+        Assert.assertEquals(3, cache.get("c"));
+    }
+
+    @Test
+    public void testStaleLookupIsNotCached() {
+        PathCache cache = new PathCache(16);
+        long generation = cache.generation();
+        // a rename runs while the lookup walks the folders
+        cache.invalidate("a", true);
+        cache.put("a/b", 2, generation);
+        Assert.assertEquals(DxramFsConfig.INVALID_ID, cache.get("a/b"));
+    }
+
+    @Test
+    public void testDisabled() {
+        PathCache cache = new PathCache(0);
+        cache.put("a", 1, cache.generation());
+        Assert.assertEquals(DxramFsConfig.INVALID_ID, cache.get("a"));
+        cache.invalidate("a", true);
+    }
+}
@@ -0,0 +1,92 @@
+package de.hhu.bsinfo.dxapp.dxramfspeer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PathLocksTest {
+
+    @Test
+    public void testNormalizeParentAncestors() {
+        Assert.assertEquals("a/b", PathLocks.normalize("/a/b/"));
+        Assert.assertEquals("", PathLocks.normalize("/"));
+        Assert.assertEquals("a", PathLocks.parent("/a/b"));
+        Assert.assertEquals("", PathLocks.parent("/a"));
+        Assert.assertArrayEquals(new String[] {"", "a", "a/b"}, PathLocks.ancestors("/a/b/c"));
+    }
+
+    @Test
+    public void testLockSortsAndDedupes() {
+        PathLocks locks = new PathLocks(8);
+        int[] locked = locks.lock("a/b", "/a/b/", "c", "a/b");
+        for (int i = 1; i < locked.length; i++) {
+            Assert.assertTrue(locked[i - 1] < locked[i]);
+        }
+        Assert.assertTrue(locked.length <= 2);
+        // reentrant: the same thread gets the lock again
+        locks.unlock(locks.lock("c"));
+        locks.unlock(locked);
+        locks.unlock(null);
+    }
+
+    @Test
+    public void testSamePathExcludes() throws Exception {
+        PathLocks locks = new PathLocks(64);
+        int[] locked = locks.lock("a/b");
+        AtomicBoolean got = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread other = new Thread(() -> {
+            int[] l = locks.lock("/a/b");
+            got.set(true);
+            locks.unlock(l);
+            done.countDown();
+        });
+        other.start();
+        Assert.assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(got.get());
+        locks.unlock(locked);
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(got.get());
+    }
+
+    /**
+     * @return true, if the other thread gets the paths, while we hold ours
+     */
+    private static boolean runsBeside(PathLocks locks, String[] ours, String[] others) throws Exception {
+        int[] locked = locks.lockPaths(ours);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread other = new Thread(() -> {
+            locks.unlock(locks.lockPaths(others));
+            done.countDown();
+        });
+        other.start();
+        boolean beside = done.await(100, TimeUnit.MILLISECONDS);
+        locks.unlock(locked);
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        return beside;
+    }
+
+    @Test
+    public void testDeleteWaitsForSubtree() throws Exception {
+        PathLocks locks = new PathLocks(4096);
+        // a create in "a/b/c" holds "a/b" shared: the delete of "a/b" waits and the other way round
+        Assert.assertFalse(runsBeside(locks, new String[] {"a/b/c"}, new String[] {"a", "a/b"}));
+        Assert.assertFalse(runsBeside(locks, new String[] {"a", "a/b"}, new String[] {"/a/b/c/"}));
+        // creates in two folders share their parents
+        Assert.assertTrue(runsBeside(locks, new String[] {"a/b/c"}, new String[] {"a/b/d"}));
+        Assert.assertTrue(runsBeside(locks, new String[] {"a/b"}, new String[] {"x"}));
+    }
+
+    @Test
+    public void testExclusiveAndSharedStripe() throws Exception {
+        // a single stripe: "a" is needed exclusive and shared, the lock must not wait for itself
+        PathLocks locks = new PathLocks(1);
+        int[] locked = locks.lockPaths("a/b", "a");
+        Assert.assertEquals(1, locked.length);
+        locks.unlock(locked);
+        Assert.assertFalse(runsBeside(locks, new String[] {"a"}, new String[] {"x"}));
+    }
+}
@@ -56,10 +56,10 @@ public final class DXNetMain {
         
         
         _fsNode = readFsNode("/folder/test1.txt");
-        LOG.debug("fsnode first blockinfo id: [%s]", String.format("0x%X", _fsNode.refIds[0]));
+        LOG.debug("fsnode first block id: [%s]", String.format("0x%X", _fsNode.refIds[0]));
         
         _blockinfo = readBlockinfo(_fsNode, 0);
-        _block = readBlock(_blockinfo);
+        _block = readBlock(_fsNode, _blockinfo);
         LOG.debug("block length: " + String.valueOf(_block._data.length));
         LOG.debug("block bytes: {} ...", new String(_block._data).substring(0, 25));
         
@@ -136,19 +136,15 @@ public final class DXNetMain {
     }
     
     public static Blockinfo readBlockinfo(FsNode fsn, int index) {
-        BlockinfoMessage biMsg = new BlockinfoMessage(CONNECTTOPEERID, String.valueOf(fsn.refIds[index]));
-        return biMsg.send(_dxn);
+        // the FsNode holds the block table
+        return fsn.blockinfo(index);
     }
     
-    public static Block readBlock(Blockinfo bi) {
-        AskBlockMessage msg = new AskBlockMessage(CONNECTTOPEERID, bi.ID);
-        boolean res = msg.send(_dxn);
-        LOG.debug("Block Response: " + String.valueOf(res));
-        if (res) {
-            return AskBlockMessage._result;
-        } else {
-            return null;
-        }
+    public static Block readBlock(FsNode fsn, Blockinfo bi) {
+        AskBlockMessage msg = new AskBlockMessage(CONNECTTOPEERID, bi.storageId, fsn.stamp, bi.offset);
+        Block block = msg.send(_dxn);
+        LOG.debug("Block Response: " + String.valueOf(block != null));
+        return block;
     }
     
 }